@@ -22,7 +22,12 @@ import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.apache.log4j.PatternLayout;
 
+import at.mukprojects.imageloader.concurrent.ExecutionMode;
+import at.mukprojects.imageloader.concurrent.LoaderTask;
+import at.mukprojects.imageloader.concurrent.Publisher;
+import at.mukprojects.imageloader.gif.GifData;
 import at.mukprojects.imageloader.gif.GifList;
+import at.mukprojects.imageloader.list.ListPublisher;
 import processing.core.PApplet;
 
 /**
@@ -43,6 +48,27 @@ public abstract class GifLoader {
      */
     protected PApplet applet;
 
+    /**
+     * The kind of threads, which run the tasks and downloads of the loader.
+     */
+    protected ExecutionMode executionMode;
+
+    /**
+     * The width, which the loaded GIFs get subsampled to. Zero if not limited.
+     */
+    protected int targetWidth;
+
+    /**
+     * The height, which the loaded GIFs get subsampled to. Zero if not limited.
+     */
+    protected int targetHeight;
+
+    /**
+     * The publisher of the loaded GIFs and the list it's attached to.
+     */
+    private ListPublisher<GifData> publisher;
+    private GifList publishedList;
+
     /**
      * Constructs a new ImageLoader.
      * 
@@ -51,6 +77,8 @@ public abstract class GifLoader {
      */
     public GifLoader(PApplet applet) {
 	this.applet = applet;
+	this.executionMode = ExecutionMode.PLATFORM_THREADS;
+	this.publisher = new ListPublisher<GifData>();
 
 	/*
 	 * Logger configuration
@@ -64,6 +92,96 @@ public abstract class GifLoader {
 	}
     }
 
+    /**
+     * Gets the execution mode of the loader.
+     * 
+     * @return The execution mode.
+     */
+    public ExecutionMode getExecutionMode() {
+	return executionMode;
+    }
+
+    /**
+     * Sets the execution mode of the loader. The mode is used by all tasks,
+     * which get started afterwards. Use the virtual thread mode to run many
+     * loaders and downloads at once.
+     * 
+     * @param executionMode
+     *            The execution mode.
+     */
+    public void setExecutionMode(ExecutionMode executionMode) {
+	this.executionMode = executionMode;
+    }
+
+    /**
+     * Sets the target size of the loaded GIFs. The GIFs are subsampled while
+     * they get decoded, so they are at least as large as the target size. A
+     * dimension of zero isn't limited. The size is used by all tasks, which
+     * get started afterwards.
+     * 
+     * @param targetWidth
+     *            The target width or zero.
+     * @param targetHeight
+     *            The target height or zero.
+     */
+    public void setTargetSize(int targetWidth, int targetHeight) {
+	this.targetWidth = targetWidth;
+	this.targetHeight = targetHeight;
+    }
+
+    /**
+     * Gets the target width of the loaded GIFs.
+     * 
+     * @return The target width or zero.
+     */
+    public int getTargetWidth() {
+	return targetWidth;
+    }
+
+    /**
+     * Gets the target height of the loaded GIFs.
+     * 
+     * @return The target height or zero.
+     */
+    public int getTargetHeight() {
+	return targetHeight;
+    }
+
+    /**
+     * Gets the publisher of the loaded GIFs. Every subscriber receives the
+     * GIFs, which get added to the list of the loader, as far as it
+     * requested them. If a subscriber doesn't request further GIFs, the
+     * loader task waits instead of fetching more of them.
+     * 
+     * @return The publisher.
+     */
+    public Publisher<GifData> getPublisher() {
+	return publisher;
+    }
+
+    /**
+     * Attaches the publisher of the loader to the given list and lets it
+     * throttle the task. Gets called by the loaders, whenever a task gets
+     * started.
+     * 
+     * @param gifList
+     *            The list, which gets filled by the task.
+     * @param task
+     *            The task, which gets throttled by the publisher.
+     */
+    protected synchronized void publish(GifList gifList, LoaderTask task) {
+	if (publishedList != gifList) {
+	    if (publishedList != null) {
+		publishedList.removeListener(publisher);
+	    }
+
+	    gifList.addListener(publisher);
+	    publishedList = gifList;
+	}
+
+	task.setFlowControl(publisher);
+    }
+
     /**
      * Starts the loader.
      * 
@@ -24,7 +24,14 @@ import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.apache.log4j.PatternLayout;
 
+import at.mukprojects.imageloader.cache.DiskCache;
+import at.mukprojects.imageloader.concurrent.ExecutionMode;
+import at.mukprojects.imageloader.concurrent.LoaderTask;
+import at.mukprojects.imageloader.concurrent.Publisher;
+import at.mukprojects.imageloader.image.Image;
+import at.mukprojects.imageloader.image.ImageDecoder;
 import at.mukprojects.imageloader.image.ImageList;
+import at.mukprojects.imageloader.list.ListPublisher;
 import processing.core.PApplet;
 import processing.core.PImage;
 
@@ -41,7 +48,8 @@ public abstract class ImageLoader {
     private static PApplet appletLoader;
 
     /**
-     * Loads an image file.
+     * Loads an image file. Remote images are loaded through the DiskCache, if
+     * the cache is enabled.
      * 
      * @param file
      *            The image file.
@@ -53,7 +61,29 @@ public abstract class ImageLoader {
 	    throw new IOException("The PApplet wasn't initialized by the constructor."
 		    + " You need to initialize a ImageLoader object first.");
 	}
-	return appletLoader.loadImage(file);
+	return appletLoader.loadImage(DiskCache.resolve(file));
+    }
+
+    /**
+     * Loads an image file, which is subsampled to the target size while it
+     * gets decoded. Remote images are loaded through the DiskCache, if the
+     * cache is enabled.
+     * 
+     * @param file
+     *            The image file.
+     * @param targetWidth
+     *            The target width or zero.
+     * @param targetHeight
+     *            The target height or zero.
+     * @return The image as an PImage object.
+     * @throws IOException
+     */
+    public static PImage loadImage(String file, int targetWidth, int targetHeight) throws IOException {
+	if (appletLoader == null) {
+	    throw new IOException("The PApplet wasn't initialized by the constructor."
+		    + " You need to initialize a ImageLoader object first.");
+	}
+	return ImageDecoder.load(appletLoader, DiskCache.resolve(file), targetWidth, targetHeight);
     }
 
     /**
@@ -67,6 +97,27 @@ public abstract class ImageLoader {
      */
     protected PApplet applet;
 
+    /**
+     * The kind of threads, which run the tasks and downloads of the loader.
+     */
+    protected ExecutionMode executionMode;
+
+    /**
+     * The width, which the loaded images get subsampled to. Zero if not limited.
+     */
+    protected int targetWidth;
+
+    /**
+     * The height, which the loaded images get subsampled to. Zero if not limited.
+     */
+    protected int targetHeight;
+
+    /**
+     * The publisher of the loaded images and the list it's attached to.
+     */
+    private ListPublisher<Image> publisher;
+    private ImageList publishedList;
+
     /**
      * Constructs a new ImageLoader.
      * 
@@ -76,6 +127,8 @@ public abstract class ImageLoader {
     public ImageLoader(PApplet applet) {
 	appletLoader = applet;
 	this.applet = applet;
+	this.executionMode = ExecutionMode.PLATFORM_THREADS;
+	this.publisher = new ListPublisher<Image>();
 
 	/*
 	 * Logger configuration
@@ -89,6 +142,96 @@ public abstract class ImageLoader {
 	}
     }
 
+    /**
+     * Gets the execution mode of the loader.
+     * 
+     * @return The execution mode.
+     */
+    public ExecutionMode getExecutionMode() {
+	return executionMode;
+    }
+
+    /**
+     * Sets the execution mode of the loader. The mode is used by all tasks,
+     * which get started afterwards. Use the virtual thread mode to run many
+     * loaders and downloads at once.
+     * 
+     * @param executionMode
+     *            The execution mode.
+     */
+    public void setExecutionMode(ExecutionMode executionMode) {
+	this.executionMode = executionMode;
+    }
+
+    /**
+     * Sets the target size of the loaded images. The images are subsampled while
+     * they get decoded, so they are at least as large as the target size. A
+     * dimension of zero isn't limited. The size is used by all tasks, which
+     * get started afterwards.
+     * 
+     * @param targetWidth
+     *            The target width or zero.
+     * @param targetHeight
+     *            The target height or zero.
+     */
+    public void setTargetSize(int targetWidth, int targetHeight) {
+	this.targetWidth = targetWidth;
+	this.targetHeight = targetHeight;
+    }
+
+    /**
+     * Gets the target width of the loaded images.
+     * 
+     * @return The target width or zero.
+     */
+    public int getTargetWidth() {
+	return targetWidth;
+    }
+
+    /**
+     * Gets the target height of the loaded images.
+     * 
+     * @return The target height or zero.
+     */
+    public int getTargetHeight() {
+	return targetHeight;
+    }
+
+    /**
+     * Gets the publisher of the loaded images. Every subscriber receives the
+     * images, which get added to the list of the loader, as far as it
+     * requested them. If a subscriber doesn't request further images, the
+     * loader task waits instead of fetching more of them.
+     * 
+     * @return The publisher.
+     */
+    public Publisher<Image> getPublisher() {
+	return publisher;
+    }
+
+    /**
+     * Attaches the publisher of the loader to the given list and lets it
+     * throttle the task. Gets called by the loaders, whenever a task gets
+     * started.
+     * 
+     * @param imageList
+     *            The list, which gets filled by the task.
+     * @param task
+     *            The task, which gets throttled by the publisher.
+     */
+    protected synchronized void publish(ImageList imageList, LoaderTask task) {
+	if (publishedList != imageList) {
+	    if (publishedList != null) {
+		publishedList.removeListener(publisher);
+	    }
+
+	    imageList.addListener(publisher);
+	    publishedList = imageList;
+	}
+
+	task.setFlowControl(publisher);
+    }
+
     /**
      * Starts the loader.
      * 
@@ -0,0 +1,361 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The DiskCache stores downloaded images and GIFs in a local directory, so
+ * they don't have to be fetched from the network again. The files are keyed
+ * by their URL and the least recently used files get deleted once the cache
+ * exceeds its size limit. Files, which were handed out recently, are protected
+ * from the eviction for a short time, so they can still be read by the caller.
+ * Files, which are larger than the size limit, aren't cached at all. The cache
+ * is disabled until a default cache is set.
+ * 
+ * @author Mathias Markl
+ */
+public class DiskCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiskCache.class);
+
+    private static final String TEMP_PREFIX = "download";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final int CONNECT_TIMEOUT = 10000;
+    private static final int READ_TIMEOUT = 30000;
+
+    /**
+     * The default time in milliseconds, for which a file handed out by the
+     * cache is protected from the eviction.
+     */
+    public static final long DEFAULT_PROTECTION_TIME = 10000;
+
+    private static volatile DiskCache defaultCache;
+
+    private File directory;
+    private long maxSize;
+    private long protectionTime;
+
+    private LinkedHashMap<String, CachedFile> files;
+    private long size;
+
+    /**
+     * Constructs a new DiskCache. Files, which are already stored in the
+     * directory, are taken over by the cache.
+     * 
+     * @param directory
+     *            The cache directory.
+     * @param maxSize
+     *            The maximum size of the cache in bytes.
+     * @throws IOException
+     */
+    public DiskCache(File directory, long maxSize) throws IOException {
+	this(directory, maxSize, DEFAULT_PROTECTION_TIME);
+    }
+
+    /**
+     * Constructs a new DiskCache. Files, which are already stored in the
+     * directory, are taken over by the cache.
+     * 
+     * @param directory
+     *            The cache directory.
+     * @param maxSize
+     *            The maximum size of the cache in bytes.
+     * @param protectionTime
+     *            The time in milliseconds, for which a file handed out by the
+     *            cache is protected from the eviction. While files are
+     *            protected, the cache may exceed its size limit.
+     * @throws IOException
+     */
+    public DiskCache(File directory, long maxSize, long protectionTime) throws IOException {
+	if (!directory.isDirectory() && !directory.mkdirs()) {
+	    throw new IOException("The cache directory couldn't be created.");
+	}
+
+	this.directory = directory;
+	this.maxSize = maxSize;
+	this.protectionTime = protectionTime;
+
+	files = new LinkedHashMap<String, CachedFile>(16, 0.75f, true);
+	size = 0;
+
+	File[] existingFiles = directory.listFiles();
+	Arrays.sort(existingFiles, new Comparator<File>() {
+	    @Override
+	    public int compare(File a, File b) {
+		return Long.compare(a.lastModified(), b.lastModified());
+	    }
+	});
+
+	for (File file : existingFiles) {
+	    if (file.getName().startsWith(TEMP_PREFIX) && file.getName().endsWith(TEMP_SUFFIX)) {
+		file.delete();
+	    } else if (file.isFile()) {
+		files.put(file.getName(), new CachedFile(file.length(), file.lastModified()));
+		size += file.length();
+	    }
+	}
+
+	evict(null);
+    }
+
+    /**
+     * Sets the cache, which is used by all loaders. Passing null disables the
+     * cache.
+     * 
+     * @param cache
+     *            The cache.
+     */
+    public static void setDefault(DiskCache cache) {
+	defaultCache = cache;
+    }
+
+    /**
+     * Gets the cache, which is used by all loaders.
+     * 
+     * @return The cache or null if the cache is disabled.
+     */
+    public static DiskCache getDefault() {
+	return defaultCache;
+    }
+
+    /**
+     * Resolves an image location through the default cache. Remote images are
+     * downloaded into the cache and the path of the local copy is returned.
+     * Local files, or any location which can't be cached, are returned
+     * unchanged.
+     * 
+     * @param location
+     *            The image URL or file path.
+     * @return The location, which should be loaded.
+     */
+    public static String resolve(String location) {
+	DiskCache cache = defaultCache;
+
+	if (cache == null || !isRemote(location)) {
+	    return location;
+	}
+
+	try {
+	    return cache.fetch(location).getAbsolutePath();
+	} catch (IOException e) {
+	    logger.warn("The image couldn't be cached: " + location, e);
+	    return location;
+	}
+    }
+
+    /**
+     * Gets the cache directory.
+     * 
+     * @return The directory.
+     */
+    public File getDirectory() {
+	return directory;
+    }
+
+    /**
+     * Gets the maximum size of the cache.
+     * 
+     * @return The maximum size in bytes.
+     */
+    public long getMaxSize() {
+	return maxSize;
+    }
+
+    /**
+     * Gets the current size of the cache.
+     * 
+     * @return The size in bytes.
+     */
+    public synchronized long getSize() {
+	return size;
+    }
+
+    /**
+     * Returns the local copy of a remote file. If the file isn't cached yet,
+     * it gets downloaded first. The returned file is protected from the
+     * eviction for the protection time of the cache.
+     * 
+     * @param url
+     *            The URL of the file.
+     * @return The local copy.
+     * @throws IOException
+     *             If the download fails or the file is larger than the
+     *             maximum size of the cache.
+     */
+    public File fetch(String url) throws IOException {
+	String name = fileName(url);
+	File file = new File(directory, name);
+
+	synchronized (this) {
+	    CachedFile cachedFile = files.get(name);
+
+	    if (cachedFile != null && file.isFile()) {
+		cachedFile.accessed = System.currentTimeMillis();
+		file.setLastModified(cachedFile.accessed);
+		return file;
+	    }
+	}
+
+	File tempFile = File.createTempFile(TEMP_PREFIX, TEMP_SUFFIX, directory);
+
+	try {
+	    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+	    connection.setConnectTimeout(CONNECT_TIMEOUT);
+	    connection.setReadTimeout(READ_TIMEOUT);
+
+	    if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+		throw new IOException("Unexpected response code " + connection.getResponseCode() + " for " + url);
+	    }
+
+	    if (connection.getContentLengthLong() > maxSize) {
+		connection.disconnect();
+		throw new IOException("The file " + url + " exceeds the maximum size of the cache.");
+	    }
+
+	    try (InputStream in = connection.getInputStream()) {
+		Files.copy(in, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	    }
+
+	    if (tempFile.length() > maxSize) {
+		throw new IOException("The file " + url + " exceeds the maximum size of the cache.");
+	    }
+
+	    Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+		    StandardCopyOption.ATOMIC_MOVE);
+	} finally {
+	    tempFile.delete();
+	}
+
+	synchronized (this) {
+	    CachedFile oldFile = files.put(name, new CachedFile(file.length(), System.currentTimeMillis()));
+	    size += file.length() - (oldFile == null ? 0 : oldFile.length);
+
+	    evict(name);
+	}
+
+	return file;
+    }
+
+    /**
+     * Deletes all cached files.
+     */
+    public synchronized void clear() {
+	for (String name : files.keySet()) {
+	    new File(directory, name).delete();
+	}
+
+	files.clear();
+	size = 0;
+    }
+
+    /**
+     * Deletes the least recently used files until the cache fits into its size
+     * limit. The files are ordered by their last access, so the eviction stops
+     * at the first protected file.
+     */
+    private void evict(String keep) {
+	Iterator<Map.Entry<String, CachedFile>> iterator = files.entrySet().iterator();
+	long protectedSince = System.currentTimeMillis() - protectionTime;
+
+	while (size > maxSize && iterator.hasNext()) {
+	    Map.Entry<String, CachedFile> entry = iterator.next();
+
+	    if (entry.getKey().equals(keep)) {
+		continue;
+	    }
+	    if (entry.getValue().accessed > protectedSince) {
+		break;
+	    }
+
+	    if (!new File(directory, entry.getKey()).delete()) {
+		logger.debug("The cached file " + entry.getKey() + " couldn't be deleted.");
+	    }
+
+	    size -= entry.getValue().length;
+	    iterator.remove();
+	}
+    }
+
+    private static boolean isRemote(String location) {
+	return location != null && (location.startsWith("http://") || location.startsWith("https://"));
+    }
+
+    private static String fileName(String url) {
+	StringBuilder name = new StringBuilder();
+
+	try {
+	    MessageDigest digest = MessageDigest.getInstance("SHA-1");
+
+	    for (byte b : digest.digest(url.getBytes(StandardCharsets.UTF_8))) {
+		name.append(String.format("%02x", b));
+	    }
+	} catch (NoSuchAlgorithmException e) {
+	    throw new IllegalStateException(e);
+	}
+
+	/*
+	 * Processing picks the decoder by the file extension, so the extension
+	 * of the URL is kept.
+	 */
+	String path = url.split("[?#]")[0];
+	int dot = path.lastIndexOf('.');
+
+	if (dot > path.lastIndexOf('/')) {
+	    String extension = path.substring(dot).toLowerCase();
+
+	    if (extension.matches("\\.[a-z0-9]{1,4}")) {
+		name.append(extension);
+	    }
+	}
+
+	return name.toString();
+    }
+
+    /**
+     * Bookkeeping of a cached file.
+     */
+    private static final class CachedFile {
+
+	private final long length;
+	private long accessed;
+
+	private CachedFile(long length, long accessed) {
+	    this.length = length;
+	    this.accessed = accessed;
+	}
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import processing.core.PImage;
+
+/**
+ * The PixelCache keeps the decoded pixels of all images and GIFs within a
+ * process wide memory budget. Once the budget is exceeded, the least recently
+ * used entries release their pixels and get decoded again on their next
+ * access. The pixels are released while the cache is locked, so an entry,
+ * which gets decoded again at the same time, can't lose its new pixels. The
+ * cache is disabled by default.
+ * 
+ * @author Mathias Markl
+ */
+public final class PixelCache {
+
+    private static final Object lock = new Object();
+
+    private static LinkedHashMap<PixelCacheEntry, Long> entries = new LinkedHashMap<PixelCacheEntry, Long>(16,
+	    0.75f, true);
+
+    private static long maxSize = 0;
+    private static long size = 0;
+
+    private PixelCache() {
+    }
+
+    /**
+     * Sets the memory budget of the cache. A value of zero or less disables
+     * the cache.
+     * 
+     * @param maxSize
+     *            The memory budget in bytes.
+     */
+    public static void setMaxSize(long maxSize) {
+	synchronized (lock) {
+	    PixelCache.maxSize = maxSize;
+
+	    if (maxSize <= 0) {
+		entries.clear();
+		size = 0;
+		return;
+	    }
+
+	    evict(null);
+	}
+    }
+
+    /**
+     * Gets the memory budget of the cache.
+     * 
+     * @return The memory budget in bytes.
+     */
+    public static long getMaxSize() {
+	synchronized (lock) {
+	    return maxSize;
+	}
+    }
+
+    /**
+     * Gets the number of bytes, which are currently held by the cache.
+     * 
+     * @return The size of the cache in bytes.
+     */
+    public static long getSize() {
+	synchronized (lock) {
+	    return size;
+	}
+    }
+
+    /**
+     * Returns the number of bytes occupied by the pixels of an image.
+     * 
+     * @param img
+     *            The image.
+     * @return The size in bytes.
+     */
+    public static long sizeOf(PImage img) {
+	return img == null ? 0 : 4L * img.width * img.height;
+    }
+
+    /**
+     * Registers the decoded pixels of an entry. If the entry is already known
+     * to the cache, its size gets updated. The size is read from the entry
+     * while the cache is locked, so pixels, which were released by a
+     * concurrent eviction, aren't counted.
+     * 
+     * @param entry
+     *            The entry.
+     */
+    public static void put(PixelCacheEntry entry) {
+	synchronized (lock) {
+	    if (maxSize <= 0) {
+		return;
+	    }
+
+	    long entrySize = entry.getDecodedSize();
+	    Long oldSize = entries.put(entry, entrySize);
+	    size += entrySize - (oldSize == null ? 0 : oldSize);
+
+	    evict(entry);
+	}
+    }
+
+    /**
+     * Marks an entry as recently used.
+     * 
+     * @param entry
+     *            The entry.
+     */
+    public static void touch(PixelCacheEntry entry) {
+	synchronized (lock) {
+	    if (maxSize > 0) {
+		entries.get(entry);
+	    }
+	}
+    }
+
+    /**
+     * Removes an entry from the cache without releasing its pixels.
+     * 
+     * @param entry
+     *            The entry.
+     */
+    public static void remove(PixelCacheEntry entry) {
+	synchronized (lock) {
+	    Long oldSize = entries.remove(entry);
+
+	    if (oldSize != null) {
+		size -= oldSize;
+	    }
+	}
+    }
+
+    /**
+     * Releases the least recently used entries until the cache fits into its
+     * budget. The caller must hold the lock.
+     */
+    private static void evict(PixelCacheEntry keep) {
+	Iterator<Map.Entry<PixelCacheEntry, Long>> iterator = entries.entrySet().iterator();
+
+	while (size > maxSize && iterator.hasNext()) {
+	    Map.Entry<PixelCacheEntry, Long> entry = iterator.next();
+
+	    if (entry.getKey() != keep) {
+		size -= entry.getValue();
+		iterator.remove();
+		entry.getKey().releasePixels();
+	    }
+	}
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.cache;
+
+/**
+ * An entry, whose decoded pixels are managed by the PixelCache.
+ * 
+ * @author Mathias Markl
+ */
+public interface PixelCacheEntry {
+
+    /**
+     * Releases the decoded pixels of the entry. The pixels have to be decoded
+     * again, the next time they are accessed. The method gets called while
+     * the cache is locked, so it must not block.
+     */
+    public void releasePixels();
+
+    /**
+     * Gets the number of bytes occupied by the decoded pixels of the entry.
+     * The method gets called while the cache is locked, so it must not block.
+     * 
+     * @return The decoded size in bytes.
+     */
+    public long getDecodedSize();
+}
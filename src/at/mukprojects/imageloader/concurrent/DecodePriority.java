@@ -0,0 +1,54 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.concurrent;
+
+/**
+ * The priority of a load, which is queued by the DecodeScheduler. Loads of a
+ * higher priority run first, loads of the same priority run in the order
+ * they were submitted.
+ * 
+ * @author Mathias Markl
+ */
+public enum DecodePriority {
+
+    /**
+     * The image is visible right now.
+     */
+    VISIBLE,
+
+    /**
+     * The image will be shown next, for example in a slideshow.
+     */
+    NEXT,
+
+    /**
+     * The image is loaded in advance without being needed soon.
+     */
+    BACKGROUND;
+
+    /**
+     * Returns true if this priority is higher than the given one.
+     * 
+     * @param priority
+     *            The other priority.
+     * @return True if this priority is higher.
+     */
+    public boolean isHigherThan(DecodePriority priority) {
+	return ordinal() < priority.ordinal();
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * A load, which was submitted to the DecodeScheduler. As long as the load is
+ * queued, it can be re-prioritized or cancelled.
+ * 
+ * @author Mathias Markl
+ */
+public class DecodeRequest<T> {
+
+    private DecodeScheduler scheduler;
+    private DecodeScheduler.Task task;
+    private CompletableFuture<T> future;
+
+    DecodeRequest(DecodeScheduler scheduler, DecodeScheduler.Task task, CompletableFuture<T> future) {
+	this.scheduler = scheduler;
+	this.task = task;
+	this.future = future;
+    }
+
+    /**
+     * Creates a request, which is already completed with the given value.
+     * 
+     * @param value
+     *            The value.
+     * @return The request.
+     */
+    public static <T> DecodeRequest<T> completed(T value) {
+	return new DecodeRequest<T>(null, null, CompletableFuture.completedFuture(value));
+    }
+
+    /**
+     * Gets the future result of the load.
+     * 
+     * @return The future.
+     */
+    public CompletableFuture<T> getFuture() {
+	return future;
+    }
+
+    /**
+     * Gets the priority of the load.
+     * 
+     * @return The priority or null if the request wasn't queued.
+     */
+    public DecodePriority getPriority() {
+	return task == null ? null : scheduler.getPriority(task);
+    }
+
+    /**
+     * Changes the priority of the load, if it's still queued.
+     * 
+     * @param priority
+     *            The new priority.
+     */
+    public void setPriority(DecodePriority priority) {
+	if (task != null) {
+	    scheduler.reprioritize(task, priority);
+	}
+    }
+
+    /**
+     * Raises the priority of the load, if the given priority is higher than
+     * the current one.
+     * 
+     * @param priority
+     *            The minimum priority.
+     */
+    public void raisePriority(DecodePriority priority) {
+	if (task != null) {
+	    scheduler.raise(task, priority);
+	}
+    }
+
+    /**
+     * Cancels the load, if it's still queued. The future of the request gets
+     * cancelled. A load, which is already running, can't be cancelled.
+     * 
+     * @return True if the load was cancelled.
+     */
+    public boolean cancel() {
+	return task != null && scheduler.cancel(task);
+    }
+
+    /**
+     * Indicates if the load is finished, failed or was cancelled.
+     * 
+     * @return True if the request is done.
+     */
+    public boolean isDone() {
+	return future.isDone();
+    }
+
+    /**
+     * Returns a request for the same load, whose result is transformed by the
+     * given function. Both requests share the priority of the load.
+     * 
+     * @param function
+     *            The function.
+     * @return The new request.
+     */
+    public <U> DecodeRequest<U> thenApply(Function<? super T, ? extends U> function) {
+	return new DecodeRequest<U>(scheduler, task, future.thenApply(function));
+    }
+}
@@ -0,0 +1,274 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.concurrent;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The DecodeScheduler runs the lazy loads of images and GIFs in the
+ * background, so the Processing draw thread never waits for a download or a
+ * decoding process. The loads are queued by their priority, so visible images
+ * get loaded before images, which are only loaded in advance. Queued loads
+ * can be re-prioritized or cancelled, when the view changes.
+ * 
+ * @author Mathias Markl
+ */
+public class DecodeScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(DecodeScheduler.class);
+
+    private static DecodeScheduler defaultScheduler;
+
+    private final Object lock = new Object();
+
+    private PriorityQueue<Task> queue;
+    private long sequence;
+    private boolean shutdown;
+
+    /**
+     * Constructs a new DecodeScheduler.
+     * 
+     * @param parallelism
+     *            The number of concurrent loads.
+     */
+    public DecodeScheduler(int parallelism) {
+	if (parallelism < 1) {
+	    throw new IllegalArgumentException("The scheduler needs at least one thread.");
+	}
+
+	queue = new PriorityQueue<Task>();
+	sequence = 0;
+	shutdown = false;
+
+	for (int i = 1; i <= parallelism; i++) {
+	    Thread thread = new Thread(new Worker(), "DecodeScheduler-" + i);
+	    thread.setDaemon(true);
+	    thread.start();
+	}
+    }
+
+    /**
+     * Gets the scheduler, which is used by all images and GIFs. The scheduler
+     * gets created with one thread per processor on first use.
+     * 
+     * @return The scheduler.
+     */
+    public static synchronized DecodeScheduler getDefault() {
+	if (defaultScheduler == null) {
+	    defaultScheduler = new DecodeScheduler(Runtime.getRuntime().availableProcessors());
+	}
+	return defaultScheduler;
+    }
+
+    /**
+     * Sets the scheduler, which is used by all images and GIFs. The previous
+     * scheduler finishes its queued loads and shuts down afterwards.
+     * 
+     * @param scheduler
+     *            The scheduler.
+     */
+    public static synchronized void setDefault(DecodeScheduler scheduler) {
+	if (defaultScheduler != null && defaultScheduler != scheduler) {
+	    defaultScheduler.shutdown();
+	}
+	defaultScheduler = scheduler;
+    }
+
+    /**
+     * Submits a load, which runs in the background with the priority NEXT.
+     * 
+     * @param load
+     *            The load.
+     * @return The future result of the load.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> load) {
+	return submit(load, DecodePriority.NEXT).getFuture();
+    }
+
+    /**
+     * Submits a load, which runs in the background with the given priority.
+     * 
+     * @param load
+     *            The load.
+     * @param priority
+     *            The priority of the load.
+     * @return The request, which can be used to re-prioritize or cancel the
+     *         load.
+     */
+    public <T> DecodeRequest<T> submit(final Callable<T> load, DecodePriority priority) {
+	final CompletableFuture<T> future = new CompletableFuture<T>();
+
+	Task task = new Task(priority, future, new Runnable() {
+	    @Override
+	    public void run() {
+		try {
+		    future.complete(load.call());
+		} catch (Exception e) {
+		    future.completeExceptionally(e);
+		}
+	    }
+	});
+
+	synchronized (lock) {
+	    if (shutdown) {
+		future.completeExceptionally(new RejectedExecutionException("The scheduler is shut down."));
+	    } else {
+		task.sequence = sequence++;
+		task.queued = true;
+		queue.add(task);
+		lock.notify();
+	    }
+	}
+
+	return new DecodeRequest<T>(this, task, future);
+    }
+
+    /**
+     * Gets the number of queued loads.
+     * 
+     * @return The number of loads, which wait for a thread.
+     */
+    public int getQueueSize() {
+	synchronized (lock) {
+	    return queue.size();
+	}
+    }
+
+    /**
+     * Shuts the scheduler down. Loads, which are already queued, will still be
+     * executed.
+     */
+    public void shutdown() {
+	synchronized (lock) {
+	    shutdown = true;
+	    lock.notifyAll();
+	}
+    }
+
+    DecodePriority getPriority(Task task) {
+	synchronized (lock) {
+	    return task.priority;
+	}
+    }
+
+    void reprioritize(Task task, DecodePriority priority) {
+	synchronized (lock) {
+	    if (task.queued) {
+		queue.remove(task);
+		task.priority = priority;
+		queue.add(task);
+	    } else {
+		task.priority = priority;
+	    }
+	}
+    }
+
+    void raise(Task task, DecodePriority priority) {
+	synchronized (lock) {
+	    if (priority.isHigherThan(task.priority)) {
+		reprioritize(task, priority);
+	    }
+	}
+    }
+
+    boolean cancel(Task task) {
+	synchronized (lock) {
+	    if (!task.queued) {
+		return false;
+	    }
+
+	    queue.remove(task);
+	    task.queued = false;
+	}
+
+	task.future.cancel(false);
+	return true;
+    }
+
+    /**
+     * A queued load.
+     */
+    static class Task implements Comparable<Task> {
+
+	private DecodePriority priority;
+	private long sequence;
+	private boolean queued;
+
+	private CompletableFuture<?> future;
+	private Runnable load;
+
+	private Task(DecodePriority priority, CompletableFuture<?> future, Runnable load) {
+	    this.priority = priority;
+	    this.future = future;
+	    this.load = load;
+	}
+
+	@Override
+	public int compareTo(Task other) {
+	    int result = priority.compareTo(other.priority);
+
+	    if (result == 0) {
+		result = sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+	    }
+
+	    return result;
+	}
+    }
+
+    /**
+     * Runs the queued loads.
+     */
+    private class Worker implements Runnable {
+
+	@Override
+	public void run() {
+	    while (true) {
+		Task task;
+
+		synchronized (lock) {
+		    while (queue.isEmpty()) {
+			if (shutdown) {
+			    return;
+			}
+
+			try {
+			    lock.wait();
+			} catch (InterruptedException e) {
+			    return;
+			}
+		    }
+
+		    task = queue.poll();
+		    task.queued = false;
+		}
+
+		try {
+		    task.load.run();
+		} catch (RuntimeException e) {
+		    logger.error("An error occured during a load.", e);
+		}
+	    }
+	}
+    }
+}
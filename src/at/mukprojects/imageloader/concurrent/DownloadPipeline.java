@@ -0,0 +1,329 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.concurrent;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The DownloadPipeline runs the downloads of the eager loader tasks in
+ * parallel. The number of concurrent downloads is limited in total and per
+ * host, so a single search doesn't flood a remote API.
+ * 
+ * @author Mathias Markl
+ */
+public class DownloadPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(DownloadPipeline.class);
+
+    /**
+     * Default number of concurrent downloads.
+     */
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    /**
+     * Default number of concurrent downloads per host.
+     */
+    public static final int DEFAULT_MAX_PER_HOST = 4;
+
+    /**
+     * Default number of concurrent downloads per host in the virtual thread
+     * pipeline.
+     */
+    public static final int DEFAULT_VIRTUAL_MAX_PER_HOST = 64;
+
+    private static DownloadPipeline defaultPipeline;
+    private static DownloadPipeline virtualPipeline;
+
+    private ExecutorService executor;
+    private int maxPerHost;
+
+    private Map<String, HostQueue> hosts;
+
+    /**
+     * Constructs a new DownloadPipeline.
+     * 
+     * @param parallelism
+     *            The maximum number of concurrent downloads.
+     * @param maxPerHost
+     *            The maximum number of concurrent downloads per host.
+     */
+    public DownloadPipeline(int parallelism, int maxPerHost) {
+	if (parallelism < 1 || maxPerHost < 1) {
+	    throw new IllegalArgumentException("The pipeline needs at least one download slot.");
+	}
+
+	this.executor = Executors.newFixedThreadPool(parallelism, new DownloadThreadFactory());
+	this.maxPerHost = maxPerHost;
+
+	hosts = new HashMap<String, HostQueue>();
+    }
+
+    /**
+     * Constructs a new DownloadPipeline, which runs its downloads on the given
+     * executor. The total number of concurrent downloads is only limited by
+     * the executor.
+     * 
+     * @param executor
+     *            The executor.
+     * @param maxPerHost
+     *            The maximum number of concurrent downloads per host.
+     */
+    public DownloadPipeline(ExecutorService executor, int maxPerHost) {
+	if (maxPerHost < 1) {
+	    throw new IllegalArgumentException("The pipeline needs at least one download slot.");
+	}
+
+	this.executor = executor;
+	this.maxPerHost = maxPerHost;
+
+	hosts = new HashMap<String, HostQueue>();
+    }
+
+    /**
+     * Gets the pipeline, which is used by all loaders. The pipeline gets
+     * created with the default limits on first use.
+     * 
+     * @return The pipeline.
+     */
+    public static synchronized DownloadPipeline getDefault() {
+	if (defaultPipeline == null) {
+	    defaultPipeline = new DownloadPipeline(DEFAULT_PARALLELISM, DEFAULT_MAX_PER_HOST);
+	}
+	return defaultPipeline;
+    }
+
+    /**
+     * Sets the pipeline, which is used by all loaders. The previous pipeline
+     * finishes its queued downloads and shuts down afterwards.
+     * 
+     * @param pipeline
+     *            The pipeline.
+     */
+    public static synchronized void setDefault(DownloadPipeline pipeline) {
+	if (defaultPipeline != null && defaultPipeline != pipeline) {
+	    defaultPipeline.shutdown();
+	}
+	defaultPipeline = pipeline;
+    }
+
+    /**
+     * Gets the pipeline, which is used by loaders in the virtual thread
+     * execution mode. Every download runs on its own virtual thread, so only
+     * the per host limit applies.
+     * 
+     * @return The pipeline.
+     */
+    public static synchronized DownloadPipeline getVirtual() {
+	if (virtualPipeline == null) {
+	    virtualPipeline = new DownloadPipeline(VirtualThreads.newExecutor("DownloadPipeline"),
+		    DEFAULT_VIRTUAL_MAX_PER_HOST);
+	}
+	return virtualPipeline;
+    }
+
+    /**
+     * Sets the pipeline, which is used by loaders in the virtual thread
+     * execution mode. The previous pipeline finishes its queued downloads and
+     * shuts down afterwards.
+     * 
+     * @param pipeline
+     *            The pipeline.
+     */
+    public static synchronized void setVirtual(DownloadPipeline pipeline) {
+	if (virtualPipeline != null && virtualPipeline != pipeline) {
+	    virtualPipeline.shutdown();
+	}
+	virtualPipeline = pipeline;
+    }
+
+    /**
+     * Submits a download. The download runs as soon as a slot for its host
+     * is available.
+     * 
+     * @param url
+     *            The URL, which gets downloaded.
+     * @param download
+     *            The download.
+     */
+    public void submit(String url, Runnable download) {
+	String host = getHost(url);
+	List<Runnable> rejected = null;
+
+	synchronized (this) {
+	    HostQueue queue = hosts.get(host);
+
+	    if (queue == null) {
+		queue = new HostQueue();
+		hosts.put(host, queue);
+	    }
+
+	    if (queue.active < maxPerHost) {
+		queue.active++;
+
+		if (!dispatch(host, download)) {
+		    rejected = drain(host, download);
+		}
+	    } else {
+		queue.pending.add(download);
+	    }
+	}
+
+	runRejected(rejected);
+    }
+
+    /**
+     * Shuts the pipeline down. Downloads, which are already queued, will
+     * still be executed. Once the executor rejects them, they run on the
+     * thread, which completed the previous download of their host.
+     */
+    public void shutdown() {
+	executor.shutdown();
+    }
+
+    /**
+     * Hands a download to the executor.
+     * 
+     * @return False if the executor is shut down.
+     */
+    private boolean dispatch(final String host, final Runnable download) {
+	try {
+	    executor.execute(new Runnable() {
+		@Override
+		public void run() {
+		    try {
+			download.run();
+		    } catch (RuntimeException e) {
+			logger.error("An error occured during a download.", e);
+		    } finally {
+			completed(host);
+		    }
+		}
+	    });
+	    return true;
+	} catch (RejectedExecutionException e) {
+	    return false;
+	}
+    }
+
+    private void completed(String host) {
+	List<Runnable> rejected = null;
+
+	synchronized (this) {
+	    HostQueue queue = hosts.get(host);
+
+	    if (queue == null) {
+		return;
+	    }
+
+	    Runnable next = queue.pending.poll();
+
+	    if (next != null) {
+		if (!dispatch(host, next)) {
+		    rejected = drain(host, next);
+		}
+	    } else if (--queue.active == 0) {
+		hosts.remove(host);
+	    }
+	}
+
+	runRejected(rejected);
+    }
+
+    /**
+     * Removes a host, whose download was rejected, and returns the rejected
+     * download together with all pending downloads of the host.
+     */
+    private List<Runnable> drain(String host, Runnable download) {
+	List<Runnable> rejected = new ArrayList<Runnable>();
+	rejected.add(download);
+
+	HostQueue queue = hosts.remove(host);
+
+	if (queue != null) {
+	    rejected.addAll(queue.pending);
+	}
+	return rejected;
+    }
+
+    /**
+     * Runs the downloads, which were rejected by the executor, on the calling
+     * thread. Every download has to run, so the callers can complete their
+     * bookkeeping, even though the pipeline is shut down.
+     */
+    private void runRejected(List<Runnable> rejected) {
+	if (rejected == null) {
+	    return;
+	}
+
+	logger.debug("The pipeline is shut down. " + rejected.size() + " downloads run on the calling thread.");
+
+	for (Runnable download : rejected) {
+	    try {
+		download.run();
+	    } catch (RuntimeException e) {
+		logger.error("An error occured during a download.", e);
+	    }
+	}
+    }
+
+    private static String getHost(String url) {
+	try {
+	    return new URL(url).getHost();
+	} catch (MalformedURLException e) {
+	    return "";
+	}
+    }
+
+    /**
+     * Pending and active downloads of a single host.
+     */
+    private static class HostQueue {
+
+	private int active = 0;
+	private ArrayDeque<Runnable> pending = new ArrayDeque<Runnable>();
+    }
+
+    /**
+     * Creates the daemon threads of the pipeline.
+     */
+    private static class DownloadThreadFactory implements ThreadFactory {
+
+	private AtomicInteger counter = new AtomicInteger();
+
+	@Override
+	public Thread newThread(Runnable runnable) {
+	    Thread thread = new Thread(runnable, "DownloadPipeline-" + counter.incrementAndGet());
+	    thread.setDaemon(true);
+	    return thread;
+	}
+    }
+}
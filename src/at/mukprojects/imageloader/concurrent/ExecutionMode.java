@@ -0,0 +1,38 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.concurrent;
+
+/**
+ * The kind of threads, which run the loader tasks and their downloads.
+ * 
+ * @author Mathias Markl
+ */
+public enum ExecutionMode {
+
+    /**
+     * Tasks and downloads run on platform threads.
+     */
+    PLATFORM_THREADS,
+
+    /**
+     * Tasks and every single download run on their own virtual thread. This
+     * mode needs Java 21 or newer. On older runtimes the loaders fall back to
+     * platform threads.
+     */
+    VIRTUAL_THREADS
+}
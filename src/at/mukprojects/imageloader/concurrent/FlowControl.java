@@ -0,0 +1,48 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.concurrent;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Throttles a loader task, so it doesn't fetch more entries than its
+ * consumers can take. The task waits for demand before it starts to fetch an
+ * entry, so the consumers never block the threads, which deliver the
+ * entries.
+ * 
+ * @author Mathias Markl
+ */
+public interface FlowControl {
+
+    /**
+     * Blocks until the consumers can take another entry in addition to the
+     * entries, which are already being fetched.
+     * 
+     * @param pending
+     *            Supplies the number of entries, which are being fetched.
+     * @throws InterruptedException
+     *             If the waiting thread gets interrupted.
+     */
+    public void awaitDemand(IntSupplier pending) throws InterruptedException;
+
+    /**
+     * Wakes up the waiting tasks after the number of entries, which are being
+     * fetched, has decreased without delivering an entry.
+     */
+    public void signal();
+}
@@ -0,0 +1,222 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.concurrent;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The LoaderScheduler runs the passes of many loader tasks on a small shared
+ * thread pool. By default every loader starts its own thread. Set a default
+ * scheduler to share the threads between all loaders instead.
+ * 
+ * @author Mathias Markl
+ */
+public class LoaderScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoaderScheduler.class);
+
+    private static LoaderScheduler defaultScheduler;
+
+    private ScheduledExecutorService executor;
+
+    /**
+     * Constructs a new LoaderScheduler.
+     * 
+     * @param poolSize
+     *            The number of threads, which run the loading passes.
+     */
+    public LoaderScheduler(int poolSize) {
+	executor = Executors.newScheduledThreadPool(poolSize, new SchedulerThreadFactory());
+    }
+
+    /**
+     * Gets the scheduler, which is used by all loaders.
+     * 
+     * @return The scheduler or null if every loader uses its own thread.
+     */
+    public static synchronized LoaderScheduler getDefault() {
+	return defaultScheduler;
+    }
+
+    /**
+     * Sets the scheduler, which is used by all loaders started afterwards.
+     * Passing null lets every loader use its own thread again.
+     * 
+     * @param scheduler
+     *            The scheduler.
+     */
+    public static synchronized void setDefault(LoaderScheduler scheduler) {
+	defaultScheduler = scheduler;
+    }
+
+    /**
+     * Starts a task. Tasks in the virtual thread execution mode run on their
+     * own virtual thread. Any other task runs on the default scheduler or on a
+     * new thread, if no default scheduler is set.
+     * 
+     * @param task
+     *            The task.
+     * @param name
+     *            The name of the task.
+     * @return The handle of the started task.
+     */
+    public static TaskHandle start(LoaderTask task, String name) {
+	LoaderScheduler scheduler = getDefault();
+
+	if (task.getExecutionMode() == ExecutionMode.VIRTUAL_THREADS) {
+	    ThreadHandle handle = new ThreadHandle(task, VirtualThreads.newThreadFactory(name).newThread(task));
+	    handle.thread.start();
+	    return handle;
+	} else if (scheduler != null) {
+	    return scheduler.schedule(task, name);
+	} else {
+	    ThreadHandle handle = new ThreadHandle(task, new Thread(task, name));
+	    handle.thread.start();
+	    return handle;
+	}
+    }
+
+    /**
+     * Schedules a task. The first pass runs immediately, every further pass
+     * after the delay of the task.
+     * 
+     * @param task
+     *            The task.
+     * @param name
+     *            The name of the task.
+     * @return The handle of the scheduled task.
+     */
+    public TaskHandle schedule(LoaderTask task, String name) {
+	ScheduledHandle handle = new ScheduledHandle(task, name);
+	handle.schedule(0);
+	return handle;
+    }
+
+    /**
+     * Shuts the scheduler down. All scheduled tasks will be stopped.
+     */
+    public void shutdown() {
+	executor.shutdownNow();
+    }
+
+    /**
+     * Handle of a task, which runs on its own thread.
+     */
+    private static class ThreadHandle implements TaskHandle {
+
+	private LoaderTask task;
+	private Thread thread;
+
+	private ThreadHandle(LoaderTask task, Thread thread) {
+	    this.task = task;
+	    this.thread = thread;
+	}
+
+	@Override
+	public void stop() {
+	    task.stop();
+	    thread.interrupt();
+	}
+
+	@Override
+	public String toString() {
+	    return thread.toString();
+	}
+    }
+
+    /**
+     * Handle of a task, which runs on the shared scheduler. The handle
+     * reschedules itself after every pass, until the task stops.
+     */
+    private class ScheduledHandle implements TaskHandle, Runnable {
+
+	private LoaderTask task;
+	private String name;
+
+	private Future<?> future;
+	private boolean stopped;
+
+	private ScheduledHandle(LoaderTask task, String name) {
+	    this.task = task;
+	    this.name = name;
+
+	    stopped = false;
+	}
+
+	@Override
+	public void run() {
+	    if (task.runPass()) {
+		schedule(task.getDelay());
+	    } else {
+		logger.info(name + " has stopped.");
+	    }
+	}
+
+	private synchronized void schedule(long delay) {
+	    if (stopped) {
+		return;
+	    }
+
+	    try {
+		future = executor.schedule(this, delay, TimeUnit.MILLISECONDS);
+	    } catch (RejectedExecutionException e) {
+		logger.warn("The scheduler is shut down. " + name + " will be stopped.");
+		task.stop();
+	    }
+	}
+
+	@Override
+	public synchronized void stop() {
+	    stopped = true;
+	    task.stop();
+
+	    if (future != null) {
+		future.cancel(true);
+	    }
+	}
+
+	@Override
+	public String toString() {
+	    return "Scheduled[" + name + "]";
+	}
+    }
+
+    /**
+     * Creates the daemon threads of the scheduler.
+     */
+    private static class SchedulerThreadFactory implements ThreadFactory {
+
+	private AtomicInteger counter = new AtomicInteger();
+
+	@Override
+	public Thread newThread(Runnable runnable) {
+	    Thread thread = new Thread(runnable, "LoaderScheduler-" + counter.incrementAndGet());
+	    thread.setDaemon(true);
+	    return thread;
+	}
+    }
+}
@@ -0,0 +1,346 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.concurrent;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Base class for any loader task. A task loads its images in passes. Between
+ * two passes the task is delayed, until it gets stopped or it was configured
+ * to run only once.
+ * 
+ * @author Mathias Markl
+ */
+public abstract class LoaderTask implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoaderTask.class);
+
+    private boolean runOnce;
+    private long delay;
+
+    private volatile boolean running;
+    private volatile boolean stopped;
+    private AtomicBoolean released;
+
+    private Set<String> downloads;
+    private volatile FlowControl flowControl;
+
+    private ExecutionMode executionMode;
+
+    private int targetWidth;
+    private int targetHeight;
+
+    /**
+     * Constructs a new LoaderTask.
+     * 
+     * @param runOnce
+     *            If the value is set to true, the loader will only run once.
+     * @param delay
+     *            The delay between two loading tasks. (milliseconds)
+     */
+    public LoaderTask(boolean runOnce, long delay) {
+	this.runOnce = runOnce;
+	this.delay = delay;
+
+	running = true;
+	stopped = false;
+	released = new AtomicBoolean(false);
+	downloads = ConcurrentHashMap.newKeySet();
+	executionMode = ExecutionMode.PLATFORM_THREADS;
+    }
+
+    /**
+     * Stops the task. Downloads, which are still queued, are discarded.
+     */
+    public void stop() {
+	stopped = true;
+	running = false;
+
+	finish();
+    }
+
+    /**
+     * Indicates if the task is still running.
+     * 
+     * @return True if the task is running.
+     */
+    public boolean isRunning() {
+	return running;
+    }
+
+    /**
+     * Indicates if the task was stopped. Unlike a stopped task, a task which
+     * finished its last pass or failed still completes its queued downloads.
+     * 
+     * @return True if the task was stopped.
+     */
+    public boolean isStopped() {
+	return stopped;
+    }
+
+    /**
+     * Gets the delay between two loading passes.
+     * 
+     * @return The delay. (milliseconds)
+     */
+    public long getDelay() {
+	return delay;
+    }
+
+    /**
+     * Gets the execution mode of the task.
+     * 
+     * @return The execution mode.
+     */
+    public ExecutionMode getExecutionMode() {
+	return executionMode;
+    }
+
+    /**
+     * Sets the execution mode of the task. The mode has to be set before the
+     * task is started.
+     * 
+     * @param executionMode
+     *            The execution mode.
+     */
+    public void setExecutionMode(ExecutionMode executionMode) {
+	this.executionMode = executionMode;
+    }
+
+    /**
+     * Gets the target width of the loaded images.
+     * 
+     * @return The target width or zero.
+     */
+    public int getTargetWidth() {
+	return targetWidth;
+    }
+
+    /**
+     * Gets the target height of the loaded images.
+     * 
+     * @return The target height or zero.
+     */
+    public int getTargetHeight() {
+	return targetHeight;
+    }
+
+    /**
+     * Sets the size, which the loaded images get subsampled to. The size has
+     * to be set before the task is started.
+     * 
+     * @param targetWidth
+     *            The target width or zero.
+     * @param targetHeight
+     *            The target height or zero.
+     */
+    public void setTargetSize(int targetWidth, int targetHeight) {
+	this.targetWidth = targetWidth;
+	this.targetHeight = targetHeight;
+    }
+
+    /**
+     * Sets the flow control, which throttles the task. Before every pass and
+     * every download the task waits, until the consumers of the loaded images
+     * can take more of them.
+     * 
+     * @param flowControl
+     *            The flow control or null.
+     */
+    public void setFlowControl(FlowControl flowControl) {
+	this.flowControl = flowControl;
+    }
+
+    /**
+     * Gets the pipeline, which runs the downloads of the task.
+     * 
+     * @return The pipeline.
+     */
+    protected DownloadPipeline getDownloadPipeline() {
+	if (executionMode == ExecutionMode.VIRTUAL_THREADS) {
+	    return DownloadPipeline.getVirtual();
+	} else {
+	    return DownloadPipeline.getDefault();
+	}
+    }
+
+    /**
+     * Submits a download to the pipeline of the task. Periodic passes find the
+     * same images again, so a download is skipped while another download with
+     * the same id is queued or running. Queued downloads are discarded once
+     * the task gets stopped. If the task has a flow control, the method waits
+     * for demand first.
+     * 
+     * @param id
+     *            The id of the downloaded image or of the downloaded version
+     *            of the image.
+     * @param url
+     *            The URL, which gets downloaded.
+     * @param download
+     *            The download.
+     * @return True if the download was submitted.
+     */
+    protected boolean submitDownload(final String id, String url, final Runnable download) {
+	if (downloads.contains(id)) {
+	    return false;
+	}
+
+	try {
+	    awaitDemand();
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    return false;
+	}
+
+	if (!downloads.add(id)) {
+	    return false;
+	}
+
+	getDownloadPipeline().submit(url, new Runnable() {
+	    @Override
+	    public void run() {
+		try {
+		    if (!stopped) {
+			download.run();
+		    }
+		} finally {
+		    downloads.remove(id);
+
+		    FlowControl currentFlowControl = flowControl;
+		    if (currentFlowControl != null) {
+			currentFlowControl.signal();
+		    }
+		}
+	    }
+	});
+
+	return true;
+    }
+
+    /**
+     * Indicates if a download with the given id is queued or running.
+     * 
+     * @param id
+     *            The id of the downloaded image.
+     * @return True if the download is pending.
+     */
+    protected boolean isDownloadPending(String id) {
+	return downloads.contains(id);
+    }
+
+    /**
+     * Waits until the consumers of the loaded images can take more of them.
+     * Downloads, which are still pending, count as taken.
+     * 
+     * @throws InterruptedException
+     */
+    protected void awaitDemand() throws InterruptedException {
+	FlowControl currentFlowControl = flowControl;
+
+	if (currentFlowControl != null && !stopped) {
+	    currentFlowControl.awaitDemand(new IntSupplier() {
+		@Override
+		public int getAsInt() {
+		    return downloads.size();
+		}
+	    });
+	}
+    }
+
+    /**
+     * Runs a single loading pass. If the pass fails, the task will be stopped.
+     * 
+     * @return True if the task should run again after the delay.
+     */
+    public boolean runPass() {
+	if (!running) {
+	    finish();
+	    return false;
+	}
+
+	try {
+	    awaitDemand();
+
+	    logger.debug("Task loads data.");
+	    load();
+	} catch (InterruptedException e) {
+	    logger.debug("Task was interrupted.");
+	    running = false;
+	} catch (Exception e) {
+	    logger.error("An error occured. The task will be stopped.", e);
+	    running = false;
+	}
+
+	if (running && runOnce) {
+	    logger.debug("Task is finished.");
+	    running = false;
+	}
+
+	if (!running) {
+	    finish();
+	}
+	return running;
+    }
+
+    @Override
+    public void run() {
+	logger.info("Task is running...");
+
+	while (runPass()) {
+	    try {
+		logger.debug("Task is delayed...");
+		Thread.sleep(delay);
+	    } catch (InterruptedException e) {
+		logger.debug("Task was interrupted.");
+		running = false;
+	    }
+	}
+
+	logger.info("Task has stopped.");
+    }
+
+    /**
+     * Releases the resources of the task once it stopped running.
+     */
+    private void finish() {
+	if (released.compareAndSet(false, true)) {
+	    release();
+	}
+    }
+
+    /**
+     * Gets called once, after the task stopped running, because it was
+     * stopped, finished its last pass or failed. Downloads, which are still
+     * queued, may run afterwards. The default implementation does nothing.
+     */
+    protected void release() {
+    }
+
+    /**
+     * Loads the images of a single pass.
+     * 
+     * @throws Exception
+     */
+    protected abstract void load() throws Exception;
+}
@@ -0,0 +1,38 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.concurrent;
+
+/**
+ * A producer of items, which are received by subscribers. The interface
+ * follows the Publisher of the Reactive Streams specification, so it can be
+ * bridged to java.util.concurrent.Flow on newer runtimes.
+ * 
+ * @author Mathias Markl
+ */
+public interface Publisher<T> {
+
+    /**
+     * Adds a subscriber. The publisher calls onSubscribe of the subscriber
+     * with a new subscription, before any other method of the subscriber gets
+     * called.
+     * 
+     * @param subscriber
+     *            The subscriber.
+     */
+    public void subscribe(Subscriber<? super T> subscriber);
+}
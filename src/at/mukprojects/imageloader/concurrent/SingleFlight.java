@@ -0,0 +1,181 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.concurrent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+
+/**
+ * Deduplicates concurrent loads of the same key. While a load is running or
+ * queued, every further request for its key waits for this load and shares
+ * its result, instead of loading the value a second time. Finished loads
+ * aren't remembered.
+ * 
+ * @author Mathias Markl
+ */
+public class SingleFlight<V> {
+
+    private Map<String, DecodeRequest<V>> flights;
+
+    /**
+     * Constructs a new SingleFlight.
+     */
+    public SingleFlight() {
+	flights = new HashMap<String, DecodeRequest<V>>();
+    }
+
+    /**
+     * Loads the value of the key on the calling thread or waits for the load,
+     * which is already running. A queued load of the key gets the priority
+     * VISIBLE, since the caller waits for it.
+     * 
+     * @param key
+     *            The key, usually the URL of the loaded file.
+     * @param load
+     *            The load.
+     * @return The loaded value.
+     * @throws Exception
+     *             If the load failed.
+     */
+    public V execute(String key, Callable<V> load) throws Exception {
+	while (true) {
+	    DecodeRequest<V> running;
+	    CompletableFuture<V> flight = null;
+
+	    synchronized (flights) {
+		running = flights.get(key);
+
+		if (running == null) {
+		    flight = new CompletableFuture<V>();
+		    running = new DecodeRequest<V>(null, null, flight);
+		    flights.put(key, running);
+		}
+	    }
+
+	    if (flight != null) {
+		run(key, running, load);
+	    } else {
+		running.raisePriority(DecodePriority.VISIBLE);
+	    }
+
+	    try {
+		return running.getFuture().get();
+	    } catch (CancellationException e) {
+		/*
+		 * The shared load was cancelled by another caller, so the value
+		 * gets loaded again.
+		 */
+	    } catch (ExecutionException e) {
+		Throwable cause = e.getCause();
+
+		if (cause instanceof Exception) {
+		    throw (Exception) cause;
+		}
+		throw e;
+	    }
+	}
+    }
+
+    /**
+     * Loads the value of the key on the default DecodeScheduler with the
+     * priority NEXT, unless the load is already running.
+     * 
+     * @param key
+     *            The key, usually the URL of the loaded file.
+     * @param load
+     *            The load.
+     * @return The future value. The future fails if the load failed.
+     */
+    public CompletableFuture<V> submit(String key, Callable<V> load) {
+	return submit(key, load, DecodePriority.NEXT).getFuture();
+    }
+
+    /**
+     * Loads the value of the key on the default DecodeScheduler with the given
+     * priority, unless the load is already running. If the load of the key is
+     * already queued with a lower priority, its priority gets raised. Since
+     * the returned request is shared by all callers of the key, cancelling it
+     * cancels the load for all of them.
+     * 
+     * @param key
+     *            The key, usually the URL of the loaded file.
+     * @param load
+     *            The load.
+     * @param priority
+     *            The priority of the load.
+     * @return The request of the load. Its future fails if the load failed.
+     */
+    public DecodeRequest<V> submit(final String key, Callable<V> load, DecodePriority priority) {
+	synchronized (flights) {
+	    DecodeRequest<V> running = flights.get(key);
+
+	    if (running != null) {
+		running.raisePriority(priority);
+		return running;
+	    }
+
+	    final DecodeRequest<V> request = DecodeScheduler.getDefault().submit(load, priority);
+	    flights.put(key, request);
+
+	    request.getFuture().whenComplete(new BiConsumer<V, Throwable>() {
+		@Override
+		public void accept(V result, Throwable error) {
+		    remove(key, request);
+		}
+	    });
+
+	    return request;
+	}
+    }
+
+    /**
+     * Indicates if a load of the key is running or queued.
+     * 
+     * @param key
+     *            The key.
+     * @return True if a load is running.
+     */
+    public boolean isRunning(String key) {
+	synchronized (flights) {
+	    return flights.containsKey(key);
+	}
+    }
+
+    private void run(String key, DecodeRequest<V> request, Callable<V> load) {
+	try {
+	    request.getFuture().complete(load.call());
+	} catch (Exception e) {
+	    request.getFuture().completeExceptionally(e);
+	} finally {
+	    remove(key, request);
+	}
+    }
+
+    private void remove(String key, DecodeRequest<V> request) {
+	synchronized (flights) {
+	    if (flights.get(key) == request) {
+		flights.remove(key);
+	    }
+	}
+    }
+}
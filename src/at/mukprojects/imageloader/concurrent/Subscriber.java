@@ -0,0 +1,58 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.concurrent;
+
+/**
+ * A receiver of the items of a Publisher. The subscriber only receives as
+ * many items as it requested by its subscription.
+ * 
+ * @author Mathias Markl
+ */
+public interface Subscriber<T> {
+
+    /**
+     * Gets called once after the subscriber was added to a publisher.
+     * 
+     * @param subscription
+     *            The subscription, which is used to request items.
+     */
+    public void onSubscribe(Subscription subscription);
+
+    /**
+     * Gets called for every requested item.
+     * 
+     * @param item
+     *            The item.
+     */
+    public void onNext(T item);
+
+    /**
+     * Gets called if the subscription failed. No further methods get called
+     * afterwards.
+     * 
+     * @param error
+     *            The error.
+     */
+    public void onError(Throwable error);
+
+    /**
+     * Gets called if the publisher has no more items. No further methods get
+     * called afterwards.
+     */
+    public void onComplete();
+}
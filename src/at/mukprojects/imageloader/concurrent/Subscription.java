@@ -0,0 +1,40 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.concurrent;
+
+/**
+ * The link between a Publisher and one of its subscribers.
+ * 
+ * @author Mathias Markl
+ */
+public interface Subscription {
+
+    /**
+     * Requests further items. The publisher won't deliver more items than
+     * requested.
+     * 
+     * @param n
+     *            The number of items. Must be greater than zero.
+     */
+    public void request(long n);
+
+    /**
+     * Cancels the subscription. The subscriber won't receive further items.
+     */
+    public void cancel();
+}
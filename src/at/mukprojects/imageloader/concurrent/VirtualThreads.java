@@ -0,0 +1,122 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates virtual threads, if the runtime supports them. The library is
+ * compiled for Java 8, so the virtual thread API is accessed by reflection.
+ * 
+ * @author Mathias Markl
+ */
+final class VirtualThreads {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreads.class);
+
+    private static Method ofVirtual;
+    private static Method name;
+    private static Method factory;
+    private static Method newThreadPerTaskExecutor;
+
+    static {
+	try {
+	    Class<?> builder = Class.forName("java.lang.Thread$Builder");
+
+	    ofVirtual = Thread.class.getMethod("ofVirtual");
+	    name = builder.getMethod("name", String.class, long.class);
+	    factory = builder.getMethod("factory");
+	    newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+	} catch (ReflectiveOperationException e) {
+	    ofVirtual = null;
+	    logger.debug("Virtual threads aren't supported by this runtime.");
+	}
+    }
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Indicates if the runtime supports virtual threads.
+     * 
+     * @return True if virtual threads are supported.
+     */
+    static boolean isSupported() {
+	return ofVirtual != null;
+    }
+
+    /**
+     * Returns a factory for virtual threads. If the runtime doesn't support
+     * them, the factory creates daemon platform threads.
+     * 
+     * @param prefix
+     *            The name prefix of the threads.
+     * @return The thread factory.
+     */
+    static ThreadFactory newThreadFactory(final String prefix) {
+	if (isSupported()) {
+	    try {
+		Object builder = name.invoke(ofVirtual.invoke(null), prefix + "-", 1L);
+		return (ThreadFactory) factory.invoke(builder);
+	    } catch (ReflectiveOperationException e) {
+		logger.warn("Virtual threads couldn't be created. Platform threads will be used instead.", e);
+	    }
+	}
+
+	return new ThreadFactory() {
+	    private AtomicInteger counter = new AtomicInteger();
+
+	    @Override
+	    public Thread newThread(Runnable runnable) {
+		Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	    }
+	};
+    }
+
+    /**
+     * Returns an executor, which starts a new virtual thread for every task.
+     * If the runtime doesn't support virtual threads, a cached pool of daemon
+     * platform threads is returned.
+     * 
+     * @param prefix
+     *            The name prefix of the threads.
+     * @return The executor.
+     */
+    static ExecutorService newExecutor(String prefix) {
+	ThreadFactory threadFactory = newThreadFactory(prefix);
+
+	if (isSupported()) {
+	    try {
+		return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+	    } catch (ReflectiveOperationException e) {
+		logger.warn("Virtual threads couldn't be created. Platform threads will be used instead.", e);
+	    }
+	}
+
+	return Executors.newCachedThreadPool(threadFactory);
+    }
+}
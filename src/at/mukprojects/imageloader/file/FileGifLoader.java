@@ -24,6 +24,8 @@ import com.tumblr.jumblr.JumblrClient;
 
 import at.mukprojects.giphy4j.Giphy;
 import at.mukprojects.imageloader.GifLoader;
+import at.mukprojects.imageloader.concurrent.LoaderScheduler;
+import at.mukprojects.imageloader.concurrent.TaskHandle;
 import at.mukprojects.imageloader.gif.GifList;
 import processing.core.PApplet;
 
@@ -36,8 +38,9 @@ public class FileGifLoader extends GifLoader {
 
     private static final Logger logger = LoggerFactory.getLogger(FileGifLoader.class);
 
-    private Thread thread = null;
-    private FileGifTask runnable = null;
+    private TaskHandle handle = null;
+
+    private boolean watchFiles = false;
 
     /**
      * Constructs a new FileGifLoader.
@@ -49,20 +52,47 @@ public class FileGifLoader extends GifLoader {
 	super(applet);
     }
 
+    /**
+     * Indicates if the loader watches the files for changes.
+     * 
+     * @return True if the loader watches the files.
+     */
+    public boolean isWatchFiles() {
+	return watchFiles;
+    }
+
+    /**
+     * Sets the watch mode of the loader. In watch mode the directory gets
+     * scanned only once. Afterwards the loader only applies the files, which
+     * were created, modified or deleted, to the list. Deleted files are
+     * removed from the list. The changes are applied after every delay, so
+     * the loader shouldn't run once. The mode is used by all tasks, which get
+     * started afterwards.
+     * 
+     * @param watchFiles
+     *            True if the loader should watch the files.
+     */
+    public void setWatchFiles(boolean watchFiles) {
+	this.watchFiles = watchFiles;
+    }
+
     @Override
     public GifList start(String searchParam, GifList gifList, boolean runOnce, long delay, boolean lazyLoad) {
-	if (thread != null) {
+	if (handle != null) {
 	    logger.info("Loader is already started.");
 	    logger.info("The restart method will be used instead.");
 
 	    return restart(searchParam, gifList, runOnce, delay, lazyLoad);
 	} else {
-	    runnable = new FileGifTask(applet, searchParam, gifList, runOnce, delay, lazyLoad);
-	    thread = new Thread(runnable, "GiphyTask");
+	    FileGifTask task = new FileGifTask(applet, searchParam, gifList, runOnce, delay, lazyLoad);
+	    task.setExecutionMode(executionMode);
+	    task.setTargetSize(targetWidth, targetHeight);
+	    task.setWatchFiles(watchFiles);
+	    publish(gifList, task);
 
-	    logger.info("Starting Thread: " + thread + "...");
-	    thread.start();
-	    logger.debug(thread + " successfully started.");
+	    logger.info("Starting Task: GiphyTask...");
+	    handle = LoaderScheduler.start(task, "GiphyTask");
+	    logger.debug(handle + " successfully started.");
 
 	    return gifList;
 	}
@@ -70,28 +100,34 @@ public class FileGifLoader extends GifLoader {
 
     @Override
     public GifList restart(String searchParam, GifList gifList, boolean runOnce, long delay, boolean lazyLoad) {
-	logger.info("Stopping the current thread: " + thread + "...");
-	runnable.stop();
-	logger.debug(thread + " successfully stopped.");
+	logger.info("Stopping the current task: " + handle + "...");
+	if (handle != null) {
+	    handle.stop();
+	}
+	logger.debug(handle + " successfully stopped.");
 
-	runnable = new FileGifTask(applet, searchParam, gifList, runOnce, delay, lazyLoad);
-	thread = new Thread(runnable, "GiphyTask");
+	FileGifTask task = new FileGifTask(applet, searchParam, gifList, runOnce, delay, lazyLoad);
+	task.setExecutionMode(executionMode);
+	task.setTargetSize(targetWidth, targetHeight);
+	task.setWatchFiles(watchFiles);
+	publish(gifList, task);
 
-	logger.info("Starting Thread: " + thread + "...");
-	thread.start();
-	logger.debug(thread + " successfully started.");
+	logger.info("Starting Task: GiphyTask...");
+	handle = LoaderScheduler.start(task, "GiphyTask");
+	logger.debug(handle + " successfully started.");
 
 	return gifList;
     }
 
     @Override
     public void stop() {
-	logger.info("Stopping the current thread: " + thread + "...");
+	logger.info("Stopping the current task: " + handle + "...");
 
-	runnable.stop();
-	thread = null;
-	runnable = null;
+	if (handle != null) {
+	    handle.stop();
+	}
 
-	logger.debug(thread + " successfully stopped.");
+	logger.debug(handle + " successfully stopped.");
+	handle = null;
     }
 }
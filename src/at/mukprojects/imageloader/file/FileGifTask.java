@@ -18,14 +18,17 @@
 package at.mukprojects.imageloader.file;
 
 import java.io.File;
+import java.io.FileFilter;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import at.mukprojects.imageloader.concurrent.LoaderTask;
 import at.mukprojects.imageloader.gif.GifData;
 import at.mukprojects.imageloader.gif.GifList;
 import processing.core.PApplet;
@@ -36,19 +39,27 @@ import processing.core.PImage;
  * 
  * @author Mathias Markl
  */
-public class FileGifTask implements Runnable {
+public class FileGifTask extends LoaderTask {
 
     private static final Logger logger = LoggerFactory.getLogger(FileGifTask.class);
 
+    private static final FileFilter FILE_FILTER = new FileFilter() {
+	@Override
+	public boolean accept(File file) {
+	    return file.getName().endsWith(".gif");
+	}
+    };
+
     private PApplet applet;
     private String searchParam;
     private GifList gifList;
     
     private boolean lazyLoad;
-    private boolean runOnce;
-    private long delay;
 
-    private volatile boolean running;
+    private boolean watchFiles;
+    private volatile FileWatcher watcher;
+
+    private Map<String, Long> versions;
 
     /**
      * Constructs a new FileGifTask.
@@ -68,91 +79,174 @@ public class FileGifTask implements Runnable {
      *            save memory space.
      */
     public FileGifTask(PApplet applet, String searchParam, GifList gifList, boolean runOnce, long delay, boolean lazyLoad) {
+	super(runOnce, delay);
+
 	this.applet = applet;
 	this.searchParam = searchParam;
 	this.gifList = gifList;
 
 	this.lazyLoad = lazyLoad;
-	this.runOnce = runOnce;
-	this.delay = delay;
 
-	running = true;
+	versions = new ConcurrentHashMap<String, Long>();
+    }
+
+    /**
+     * Indicates if the task watches the files for changes.
+     * 
+     * @return True if the task watches the files.
+     */
+    public boolean isWatchFiles() {
+	return watchFiles;
     }
 
     /**
-     * Stops the task.
+     * Sets the watch mode of the task. In watch mode the task scans the files
+     * only once. Afterwards every pass only applies the files, which were
+     * created, modified or deleted since the last pass.
+     * 
+     * @param watchFiles
+     *            True if the task should watch the files.
      */
-    public void stop() {
-	running = false;
+    public void setWatchFiles(boolean watchFiles) {
+	this.watchFiles = watchFiles;
     }
 
     @Override
-    public void run() {
-	logger.info("Task is running...");
+    protected void release() {
+	FileWatcher current = watcher;
 
-	for (int i = 0; running; i += 20) {
+	if (current != null) {
 	    try {
-		logger.debug("Task loads data.");
+		current.close();
+	    } catch (IOException e) {
+		logger.warn("The file watcher couldn't be closed.", e);
+	    }
+	}
+    }
 
-		List<File> files = getFiles(searchParam);
+    @Override
+    protected void load() throws IOException, InterruptedException {
+	if (!watchFiles) {
+	    FileScanner.getDefault().scan(new File(searchParam), FILE_FILTER, new FileScanner.Listener() {
+		@Override
+		public void fileFound(File file) {
+		    addFile(file);
+		}
 
-		for (File file : files) {
-		    String id = "File#" + file.getAbsolutePath();
+		@Override
+		public void directoryFound(File directory) {
+		}
+	    }, new BooleanSupplier() {
+		@Override
+		public boolean getAsBoolean() {
+		    return isStopped();
+		}
+	    });
+	} else if (watcher == null) {
+	    watcher = new FileWatcher(new File(searchParam), FILE_FILTER);
 
-		    String imgInfo = "";
-		    imgInfo += "Name: " + file.getName() + "\n";
-		    imgInfo += "Last Modified: " + new Date(file.lastModified()).toString();
+	    if (isStopped()) {
+		release();
+		return;
+	    }
 
-		    long timestamp = new Date().getTime();
-		    String imgUrl = file.getAbsolutePath();
+	    watcher.scan(new FileWatcher.Listener() {
+		@Override
+		public void fileChanged(File file) {
+		    addFile(file);
+		}
 
-		    PImage img = null;
-		    if (!lazyLoad) {
-			GifData gif = new GifData(id, imgInfo, timestamp, imgUrl, null);
-			gif.loadGif();
-			gifList.addImage(gif);
-		    } else {
-			gifList.addImage(new GifData(id, imgInfo, timestamp, imgUrl, null));
-		    }
+		@Override
+		public void fileDeleted(File file) {
 		}
-		
-
-		if (runOnce) {
-		    logger.debug("Task is finished.");
-		    running = false;
-		} else {
-		    logger.debug("Task is delayed...");
-		    Thread.sleep(delay);
+	    });
+	    logger.debug("Watching " + watcher.size() + " files.");
+	} else {
+	    watcher.poll(new FileWatcher.Listener() {
+		@Override
+		public void fileChanged(File file) {
+		    removeFile(file);
+		    addFile(file);
 		}
-	    } catch (InterruptedException | IOException e) {
-		logger.error("An error occured. The task will be stopped.", e);
-		running = false;
-	    }
+
+		@Override
+		public void fileDeleted(File file) {
+		    removeFile(file);
+		}
+	    });
 	}
+    }
 
-	logger.info("Task has stopped.");
+    private String getId(File file) {
+	return "File#" + file.getAbsolutePath();
     }
-    
-    private List<File> getFiles(String path) throws IOException {
-	List<File> files = new ArrayList<File>();
-	File pathLocation = new File(path);
 
-	if (!pathLocation.exists()) {
-	    throw new IOException("Path does not exist.");
+    private void addFile(File file) {
+	String id = getId(file);
+
+	String imgInfo = "";
+	imgInfo += "Name: " + file.getName() + "\n";
+	imgInfo += "Last Modified: " + new Date(file.lastModified()).toString();
+
+	long timestamp = new Date().getTime();
+	String imgUrl = file.getAbsolutePath();
+
+	PImage img = null;
+	GifData gif = new GifData(id, imgInfo, timestamp, imgUrl, null, getTargetWidth(), getTargetHeight());
+
+	if (!lazyLoad) {
+	    download(gif, file.lastModified());
+	} else {
+	    gifList.addImage(gif);
 	}
+    }
 
-	if (pathLocation.isFile()) {
-	    if (pathLocation.getName().endsWith(".gif")) {
-		files.add(pathLocation);
-	    }
-	} else if (pathLocation.isDirectory()) {
-	    File[] fileArray = pathLocation.listFiles();
+    /**
+     * Removes a file from the list. A download of the file, which is still
+     * pending, gets discarded.
+     */
+    private void removeFile(File file) {
+	String id = getId(file);
 
-	    for (int i = 0; i < fileArray.length; i++) {
-		files.addAll(getFiles(fileArray[i].getAbsolutePath()));
-	    }
+	synchronized (versions) {
+	    versions.remove(id);
+	    gifList.removeImage(id);
 	}
+    }
+
+    /**
+     * Downloads a version of a file. Every version gets its own download, so
+     * a replaced file is loaded again, even if the download of its previous
+     * version is still running. Only the latest version of a file, which
+     * wasn't removed in the meantime, gets added to the list.
+     */
+    private void download(final GifData gif, final long lastModified) {
+	versions.put(gif.getId(), lastModified);
+
+	submitDownload(gif.getId() + "@" + lastModified, gif.getGifUrl(), new Runnable() {
+	    @Override
+	    public void run() {
+		if (!isLatest(gif.getId(), lastModified)) {
+		    return;
+		}
+
+		try {
+		    gif.loadGif();
+
+		    synchronized (versions) {
+			if (isLatest(gif.getId(), lastModified)) {
+			    gifList.addImage(gif);
+			}
+		    }
+		} catch (IOException e) {
+		    logger.error("The GIF couldn't be loaded: " + gif.getGifUrl(), e);
+		}
+	    }
+	});
+    }
 
-	return files;
+    private boolean isLatest(String id, long lastModified) {
+	Long latest = versions.get(id);
+	return latest != null && latest == lastModified;
     }
 }
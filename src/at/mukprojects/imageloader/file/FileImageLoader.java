@@ -17,10 +17,14 @@
 
 package at.mukprojects.imageloader.file;
 
+import java.io.File;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import at.mukprojects.imageloader.ImageLoader;
+import at.mukprojects.imageloader.concurrent.LoaderScheduler;
+import at.mukprojects.imageloader.concurrent.TaskHandle;
 import at.mukprojects.imageloader.image.ImageList;
 import processing.core.PApplet;
 
@@ -33,8 +37,10 @@ public class FileImageLoader extends ImageLoader {
 
     private static final Logger logger = LoggerFactory.getLogger(FileImageLoader.class);
 
-    private Thread thread = null;
-    private FileImageTask runnable = null;
+    private TaskHandle handle = null;
+
+    private boolean watchFiles = false;
+    private File indexFile = null;
 
     /**
      * Constructs a new FileImageLoader.
@@ -43,20 +49,71 @@ public class FileImageLoader extends ImageLoader {
 	super(applet);
     }
 
+    /**
+     * Indicates if the loader watches the files for changes.
+     * 
+     * @return True if the loader watches the files.
+     */
+    public boolean isWatchFiles() {
+	return watchFiles;
+    }
+
+    /**
+     * Sets the watch mode of the loader. In watch mode the directory gets
+     * scanned only once. Afterwards the loader only applies the files, which
+     * were created, modified or deleted, to the list. Deleted files are
+     * removed from the list. The changes are applied after every delay, so
+     * the loader shouldn't run once. The mode is used by all tasks, which get
+     * started afterwards.
+     * 
+     * @param watchFiles
+     *            True if the loader should watch the files.
+     */
+    public void setWatchFiles(boolean watchFiles) {
+	this.watchFiles = watchFiles;
+    }
+
+    /**
+     * Gets the index file of the loader.
+     * 
+     * @return The index file or null if the loader doesn't use an index.
+     */
+    public File getIndexFile() {
+	return indexFile;
+    }
+
+    /**
+     * Sets the index file of the loader. The index remembers the files, their
+     * modification times and image sizes between two runs of the sketch. After
+     * a restart the list gets filled from the index at once, while the files
+     * are compared with the index in the background. The file is used by all
+     * tasks, which get started afterwards.
+     * 
+     * @param indexFile
+     *            The index file or null if no index should be used.
+     */
+    public void setIndexFile(File indexFile) {
+	this.indexFile = indexFile;
+    }
+
     @Override
     public ImageList start(String searchParam, ImageList imageList, boolean runOnce, long delay, boolean lazyLoad) {
-	if (thread != null) {
+	if (handle != null) {
 	    logger.info("Loader is already started.");
 	    logger.info("The restart method will be used instead.");
 
 	    return restart(searchParam, imageList, runOnce, delay, lazyLoad);
 	} else {
-	    runnable = new FileImageTask(applet, searchParam, imageList, runOnce, delay, lazyLoad);
-	    thread = new Thread(runnable, "FileTask");
+	    FileImageTask task = new FileImageTask(applet, searchParam, imageList, runOnce, delay, lazyLoad);
+	    task.setExecutionMode(executionMode);
+	    task.setTargetSize(targetWidth, targetHeight);
+	    task.setWatchFiles(watchFiles);
+	    task.setIndexFile(indexFile);
+	    publish(imageList, task);
 
-	    logger.info("Starting Thread: " + thread + "...");
-	    thread.start();
-	    logger.debug(thread + " successfully started.");
+	    logger.info("Starting Task: FileTask...");
+	    handle = LoaderScheduler.start(task, "FileTask");
+	    logger.debug(handle + " successfully started.");
 
 	    return imageList;
 	}
@@ -64,28 +121,35 @@ public class FileImageLoader extends ImageLoader {
 
     @Override
     public ImageList restart(String searchParam, ImageList imageList, boolean runOnce, long delay, boolean lazyLoad) {
-	logger.info("Stopping the current thread: " + thread + "...");
-	runnable.stop();
-	logger.debug(thread + " successfully stopped.");
+	logger.info("Stopping the current task: " + handle + "...");
+	if (handle != null) {
+	    handle.stop();
+	}
+	logger.debug(handle + " successfully stopped.");
 
-	runnable = new FileImageTask(applet, searchParam, imageList, runOnce, delay, lazyLoad);
-	thread = new Thread(runnable, "FileTask");
+	FileImageTask task = new FileImageTask(applet, searchParam, imageList, runOnce, delay, lazyLoad);
+	task.setExecutionMode(executionMode);
+	task.setTargetSize(targetWidth, targetHeight);
+	task.setWatchFiles(watchFiles);
+	task.setIndexFile(indexFile);
+	publish(imageList, task);
 
-	logger.info("Starting Thread: " + thread + "...");
-	thread.start();
-	logger.debug(thread + " successfully started.");
+	logger.info("Starting Task: FileTask...");
+	handle = LoaderScheduler.start(task, "FileTask");
+	logger.debug(handle + " successfully started.");
 
 	return imageList;
     }
 
     @Override
     public void stop() {
-	logger.info("Stopping the current thread: " + thread + "...");
+	logger.info("Stopping the current task: " + handle + "...");
 
-	runnable.stop();
-	thread = null;
-	runnable = null;
+	if (handle != null) {
+	    handle.stop();
+	}
 
-	logger.debug(thread + " successfully stopped.");
+	logger.debug(handle + " successfully stopped.");
+	handle = null;
     }
 }
@@ -18,15 +18,21 @@
 package at.mukprojects.imageloader.file;
 
 import java.io.File;
+import java.io.FileFilter;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import at.mukprojects.imageloader.concurrent.LoaderTask;
 import at.mukprojects.imageloader.image.Image;
+import at.mukprojects.imageloader.image.ImageDecoder;
 import at.mukprojects.imageloader.image.ImageList;
 import processing.core.PApplet;
 import processing.core.PImage;
@@ -36,19 +42,31 @@ import processing.core.PImage;
  * 
  * @author Mathias Markl
  */
-public class FileImageTask implements Runnable {
+public class FileImageTask extends LoaderTask {
 
     private static final Logger logger = LoggerFactory.getLogger(FileImageTask.class);
 
+    private static final FileFilter FILE_FILTER = new FileFilter() {
+	@Override
+	public boolean accept(File file) {
+	    return file.getName().endsWith(".gif") || file.getName().endsWith(".jpg")
+		    || file.getName().endsWith(".tga") || file.getName().endsWith(".png");
+	}
+    };
+
     private PApplet applet;
     private String searchParam;
     private ImageList imageList;
 
-    private boolean runOnce;
-    private long delay;
     private boolean lazyLoad;
 
-    private volatile boolean running;
+    private boolean watchFiles;
+    private volatile FileWatcher watcher;
+
+    private File indexFile;
+    private FileIndex index;
+
+    private Map<String, Long> versions;
 
     /**
      * Constructs a new FileImageTask.
@@ -69,89 +87,297 @@ public class FileImageTask implements Runnable {
      */
     public FileImageTask(PApplet applet, String searchParam, ImageList imageList, boolean runOnce, long delay,
 	    boolean lazyLoad) {
+	super(runOnce, delay);
+
 	this.applet = applet;
 	this.searchParam = searchParam;
 	this.imageList = imageList;
 
-	this.runOnce = runOnce;
-	this.delay = delay;
 	this.lazyLoad = lazyLoad;
 
-	running = true;
+	versions = new ConcurrentHashMap<String, Long>();
+    }
+
+    /**
+     * Indicates if the task watches the files for changes.
+     * 
+     * @return True if the task watches the files.
+     */
+    public boolean isWatchFiles() {
+	return watchFiles;
     }
 
     /**
-     * Stops the task.
+     * Sets the watch mode of the task. In watch mode the task scans the files
+     * only once. Afterwards every pass only applies the files, which were
+     * created, modified or deleted since the last pass.
+     * 
+     * @param watchFiles
+     *            True if the task should watch the files.
      */
-    public void stop() {
-	running = false;
+    public void setWatchFiles(boolean watchFiles) {
+	this.watchFiles = watchFiles;
+    }
+
+    /**
+     * Gets the index file of the task.
+     * 
+     * @return The index file or null if the task doesn't use an index.
+     */
+    public File getIndexFile() {
+	return indexFile;
+    }
+
+    /**
+     * Sets the index file of the task. The first pass fills the list from the
+     * index at once and compares the index with the file system afterwards.
+     * Changed files are indexed again and missing files are removed from the
+     * list and the index.
+     * 
+     * @param indexFile
+     *            The index file or null if no index should be used.
+     */
+    public void setIndexFile(File indexFile) {
+	this.indexFile = indexFile;
     }
 
     @Override
-    public void run() {
-	logger.info("Task is running...");
+    protected void release() {
+	FileWatcher current = watcher;
 
-	while (running) {
+	if (current != null) {
 	    try {
-		logger.debug("Task loads data.");
+		current.close();
+	    } catch (IOException e) {
+		logger.warn("The file watcher couldn't be closed.", e);
+	    }
+	}
+    }
 
-		List<File> files = getFiles(searchParam);
+    @Override
+    protected void load() throws IOException, InterruptedException {
+	if (indexFile != null && index == null) {
+	    index = new FileIndex(indexFile, new File(searchParam));
+	    index.load();
 
-		for (File file : files) {
-		    String id = "File#" + file.getAbsolutePath();
+	    for (FileIndex.Entry entry : index.getEntries()) {
+		addFile(entry.getPath(), entry.getLastModified(), entry.getWidth(), entry.getHeight());
+	    }
+	    logger.debug("Loaded " + index.size() + " files from the index.");
+	}
 
-		    String imgInfo = "";
-		    imgInfo += "Name: " + file.getName() + "\n";
-		    imgInfo += "Last Modified: " + new Date(file.lastModified()).toString();
+	final Set<String> found = index != null ? new HashSet<String>() : null;
 
-		    long timestamp = new Date().getTime();
-		    String imgUrl = file.getAbsolutePath();
+	if (!watchFiles) {
+	    FileScanner.getDefault().scan(new File(searchParam), FILE_FILTER, new FileScanner.Listener() {
+		@Override
+		public void fileFound(File file) {
+		    found(file, found);
+		}
 
-		    PImage img = null;
-		    if (!lazyLoad) {
-			img = applet.loadImage(imgUrl);
-		    }
+		@Override
+		public void directoryFound(File directory) {
+		}
+	    }, new BooleanSupplier() {
+		@Override
+		public boolean getAsBoolean() {
+		    return isStopped();
+		}
+	    });
+	    removeMissing(found);
+	} else if (watcher == null) {
+	    watcher = new FileWatcher(new File(searchParam), FILE_FILTER);
+
+	    if (isStopped()) {
+		release();
+		return;
+	    }
+
+	    watcher.scan(new FileWatcher.Listener() {
+		@Override
+		public void fileChanged(File file) {
+		    found(file, found);
+		}
 
-		    imageList.addImage(new Image(id, imgInfo, timestamp, imgUrl, img));
+		@Override
+		public void fileDeleted(File file) {
 		}
+	    });
+	    removeMissing(found);
+	    logger.debug("Watching " + watcher.size() + " files.");
+	} else {
+	    watcher.poll(new FileWatcher.Listener() {
+		@Override
+		public void fileChanged(File file) {
+		    replaceFile(file);
+		}
+
+		@Override
+		public void fileDeleted(File file) {
+		    removeFile(file.getAbsolutePath());
+
+		    if (index != null) {
+			index.remove(file.getAbsolutePath());
+		    }
+		}
+	    });
+	}
+
+	if (index != null) {
+	    try {
+		index.save();
+	    } catch (IOException e) {
+		logger.warn("The index " + indexFile + " couldn't be saved.", e);
+	    }
+	}
+    }
 
-		if (runOnce) {
-		    logger.debug("Task is finished.");
-		    running = false;
-		} else {
-		    logger.debug("Task is delayed...");
-		    Thread.sleep(delay);
+    /**
+     * Handles a file, which was found by a scan. Without an index the file
+     * gets added to the list. With an index unchanged files are skipped, as
+     * long as they are part of the list or their download is pending, while
+     * new or changed files replace their list entry and get indexed again.
+     */
+    private void found(File file, Set<String> found) {
+	String path = file.getAbsolutePath();
+
+	if (index == null) {
+	    addFile(path, file.lastModified(), -1, -1);
+	} else {
+	    found.add(path);
+
+	    if (index.isCurrent(file)) {
+		FileIndex.Entry entry = index.get(path);
+
+		if (!isAdded(path, entry.getLastModified())) {
+		    addFile(path, entry.getLastModified(), entry.getWidth(), entry.getHeight());
 		}
-	    } catch (InterruptedException | IOException e) {
-		logger.error("An error occured. The task will be stopped.", e);
-		running = false;
+	    } else {
+		replaceFile(file);
 	    }
 	}
+    }
 
-	logger.info("Task has stopped.");
+    /**
+     * Replaces the list entry of a new or modified file and indexes the file
+     * again.
+     */
+    private void replaceFile(File file) {
+	String path = file.getAbsolutePath();
+	removeFile(path);
+
+	if (index != null) {
+	    FileIndex.Entry entry = index.update(file);
+	    addFile(path, entry.getLastModified(), entry.getWidth(), entry.getHeight());
+	} else {
+	    addFile(path, file.lastModified(), -1, -1);
+	}
     }
 
-    private List<File> getFiles(String path) throws IOException {
-	List<File> files = new ArrayList<File>();
-	File pathLocation = new File(path);
+    /**
+     * Returns true if the file is part of the list or its download is
+     * pending. A finished download adds the image before it stops being
+     * pending, so the download is checked first.
+     */
+    private boolean isAdded(String path, long lastModified) {
+	String id = getId(path);
+	return isDownloadPending(getDownloadId(id, lastModified)) || imageList.containsImage(id);
+    }
 
-	if (!pathLocation.exists()) {
-	    throw new IOException("Path does not exist.");
+    /**
+     * Removes the indexed files, which weren't found by the last scan. A scan,
+     * which was cancelled, didn't find all files, so nothing is removed.
+     */
+    private void removeMissing(Set<String> found) {
+	if (index == null || isStopped()) {
+	    return;
 	}
 
-	if (pathLocation.isFile()) {
-	    if (pathLocation.getName().endsWith(".gif") || pathLocation.getName().endsWith(".jpg")
-		    || pathLocation.getName().endsWith(".tga") || pathLocation.getName().endsWith(".png")) {
-		files.add(pathLocation);
+	for (FileIndex.Entry entry : index.getEntries()) {
+	    if (!found.contains(entry.getPath())) {
+		index.remove(entry.getPath());
+		removeFile(entry.getPath());
 	    }
-	} else if (pathLocation.isDirectory()) {
-	    File[] fileArray = pathLocation.listFiles();
+	}
+    }
 
-	    for (int i = 0; i < fileArray.length; i++) {
-		files.addAll(getFiles(fileArray[i].getAbsolutePath()));
-	    }
+    private String getId(String path) {
+	return "File#" + path;
+    }
+
+    private String getDownloadId(String id, long lastModified) {
+	return id + "@" + lastModified;
+    }
+
+    /**
+     * Adds a file to the list. The size of the source image is passed on to
+     * lazy images, so their decoded size can be estimated before they are
+     * loaded. A size of -1 is unknown.
+     */
+    private void addFile(String path, long lastModified, int width, int height) {
+	String id = getId(path);
+
+	String imgInfo = "";
+	imgInfo += "Name: " + new File(path).getName() + "\n";
+	imgInfo += "Last Modified: " + new Date(lastModified).toString();
+
+	long timestamp = new Date().getTime();
+	String imgUrl = path;
+
+	if (!lazyLoad) {
+	    download(id, lastModified, imgInfo, timestamp, imgUrl);
+	} else {
+	    Image image = new Image(id, imgInfo, timestamp, imgUrl, null, getTargetWidth(), getTargetHeight());
+	    image.setSourceSize(width, height);
+
+	    imageList.addImage(image);
+	}
+    }
+
+    /**
+     * Removes a file from the list. A download of the file, which is still
+     * pending, gets discarded.
+     */
+    private void removeFile(String path) {
+	String id = getId(path);
+
+	synchronized (versions) {
+	    versions.remove(id);
+	    imageList.removeImage(id);
 	}
+    }
+
+    /**
+     * Downloads a version of a file. Every version gets its own download, so
+     * a replaced file is loaded again, even if the download of its previous
+     * version is still running. Only the latest version of a file, which
+     * wasn't removed in the meantime, gets added to the list.
+     */
+    private void download(final String id, final long lastModified, final String imgInfo, final long timestamp,
+	    final String imgUrl) {
+	versions.put(id, lastModified);
+
+	submitDownload(getDownloadId(id, lastModified), imgUrl, new Runnable() {
+	    @Override
+	    public void run() {
+		if (!isLatest(id, lastModified)) {
+		    return;
+		}
+
+		PImage img = ImageDecoder.load(applet, imgUrl, getTargetWidth(), getTargetHeight());
+
+		synchronized (versions) {
+		    if (isLatest(id, lastModified)) {
+			imageList.addImage(new Image(id, imgInfo, timestamp, imgUrl, img, getTargetWidth(),
+				getTargetHeight()));
+		    }
+		}
+	    }
+	});
+    }
 
-	return files;
+    private boolean isLatest(String id, long lastModified) {
+	Long latest = versions.get(id);
+	return latest != null && latest == lastModified;
     }
 }
@@ -0,0 +1,335 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.file;
+
+import java.awt.Dimension;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import at.mukprojects.imageloader.image.ImageDecoder;
+
+/**
+ * The FileIndex remembers the files of a FileImageLoader between two runs of
+ * a sketch. For every file it stores the path, the size, the modification
+ * time and the size of the image in a compact binary file. On startup the
+ * loader fills its list from the index at once and compares the index with
+ * the file system afterwards. An index belongs to the root, which was scanned
+ * for its files, so an index of another root is ignored.
+ * 
+ * @author Mathias Markl
+ */
+public class FileIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileIndex.class);
+
+    private static final int MAGIC = 0x494C4958;
+    private static final int VERSION = 2;
+
+    private File indexFile;
+    private String root;
+    private ConcurrentHashMap<String, Entry> entries;
+
+    private AtomicLong modifications;
+    private long savedModifications;
+
+    /**
+     * Constructs a new FileIndex.
+     * 
+     * @param indexFile
+     *            The file, which stores the index.
+     * @param root
+     *            The file or directory, which gets indexed.
+     */
+    public FileIndex(File indexFile, File root) {
+	this.indexFile = indexFile;
+	this.root = root.getAbsolutePath();
+
+	entries = new ConcurrentHashMap<String, Entry>();
+	modifications = new AtomicLong();
+	savedModifications = 0;
+    }
+
+    /**
+     * Reads the index file. A missing or damaged index file, or the index of
+     * another root, leaves the index empty, so all files are indexed again.
+     */
+    public synchronized void load() {
+	entries.clear();
+	savedModifications = modifications.get();
+
+	if (!indexFile.isFile()) {
+	    return;
+	}
+
+	try {
+	    DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+
+	    try {
+		if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+		    logger.warn("The index " + indexFile + " has an unknown format and will be rebuilt.");
+		    return;
+		}
+		if (!in.readUTF().equals(root)) {
+		    logger.info("The index " + indexFile + " belongs to another root and will be rebuilt.");
+		    return;
+		}
+
+		int count = in.readInt();
+
+		for (int i = 0; i < count; i++) {
+		    Entry entry = new Entry(in.readUTF(), in.readLong(), in.readLong(), in.readInt(), in.readInt());
+		    entries.put(entry.getPath(), entry);
+		}
+	    } finally {
+		in.close();
+	    }
+	} catch (EOFException e) {
+	    logger.warn("The index " + indexFile + " is incomplete and will be rebuilt.");
+	    entries.clear();
+	} catch (IOException e) {
+	    logger.warn("The index " + indexFile + " couldn't be read and will be rebuilt.", e);
+	    entries.clear();
+	}
+    }
+
+    /**
+     * Writes the index file, if the index was modified since it was loaded or
+     * saved. The file gets replaced at once, so an interrupted save doesn't
+     * damage the previous index. If the save fails, the index stays modified.
+     * 
+     * @throws IOException
+     *             If the index file couldn't be written.
+     */
+    public synchronized void save() throws IOException {
+	long currentModifications = modifications.get();
+
+	if (currentModifications == savedModifications) {
+	    return;
+	}
+
+	Collection<Entry> current = new ArrayList<Entry>(entries.values());
+	File parent = indexFile.getAbsoluteFile().getParentFile();
+
+	if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+	    throw new IOException("The directory " + parent + " couldn't be created.");
+	}
+
+	File tempFile = File.createTempFile(indexFile.getName(), ".tmp", parent);
+
+	try {
+	    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+
+	    try {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeUTF(root);
+		out.writeInt(current.size());
+
+		for (Entry entry : current) {
+		    out.writeUTF(entry.getPath());
+		    out.writeLong(entry.getSize());
+		    out.writeLong(entry.getLastModified());
+		    out.writeInt(entry.getWidth());
+		    out.writeInt(entry.getHeight());
+		}
+	    } finally {
+		out.close();
+	    }
+
+	    try {
+		Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+			StandardCopyOption.ATOMIC_MOVE);
+	    } catch (AtomicMoveNotSupportedException e) {
+		Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	    }
+	} finally {
+	    tempFile.delete();
+	}
+
+	savedModifications = currentModifications;
+    }
+
+    /**
+     * Gets the entry of the given path.
+     * 
+     * @param path
+     *            The absolute path of the file.
+     * @return The entry or null if the file isn't indexed.
+     */
+    public Entry get(String path) {
+	return entries.get(path);
+    }
+
+    /**
+     * Gets all entries of the index.
+     * 
+     * @return A copy of the entries.
+     */
+    public Collection<Entry> getEntries() {
+	return new ArrayList<Entry>(entries.values());
+    }
+
+    /**
+     * Indicates if the index entry of the file matches the size and the
+     * modification time of the file.
+     * 
+     * @param file
+     *            The file.
+     * @return True if the file is indexed and unchanged.
+     */
+    public boolean isCurrent(File file) {
+	Entry entry = entries.get(file.getAbsolutePath());
+	return entry != null && entry.getSize() == file.length() && entry.getLastModified() == file.lastModified();
+    }
+
+    /**
+     * Indexes a new or modified file. The size of the image is read from its
+     * header. If the header can't be read, the size is stored as -1.
+     * 
+     * @param file
+     *            The file.
+     * @return The new entry.
+     */
+    public Entry update(File file) {
+	int width = -1;
+	int height = -1;
+
+	try {
+	    Dimension dimension = ImageDecoder.readSize(file.getAbsolutePath());
+
+	    if (dimension != null) {
+		width = dimension.width;
+		height = dimension.height;
+	    }
+	} catch (IOException e) {
+	    logger.debug("The size of " + file + " couldn't be read.", e);
+	}
+
+	Entry entry = new Entry(file.getAbsolutePath(), file.length(), file.lastModified(), width, height);
+	entries.put(entry.getPath(), entry);
+	modifications.incrementAndGet();
+
+	return entry;
+    }
+
+    /**
+     * Removes a file from the index.
+     * 
+     * @param path
+     *            The absolute path of the file.
+     * @return True if the file was indexed.
+     */
+    public boolean remove(String path) {
+	if (entries.remove(path) != null) {
+	    modifications.incrementAndGet();
+	    return true;
+	}
+	return false;
+    }
+
+    /**
+     * Gets the number of indexed files.
+     * 
+     * @return The size of the index.
+     */
+    public int size() {
+	return entries.size();
+    }
+
+    /**
+     * A single indexed file.
+     */
+    public static class Entry {
+
+	private String path;
+	private long size;
+	private long lastModified;
+	private int width;
+	private int height;
+
+	private Entry(String path, long size, long lastModified, int width, int height) {
+	    this.path = path;
+	    this.size = size;
+	    this.lastModified = lastModified;
+	    this.width = width;
+	    this.height = height;
+	}
+
+	/**
+	 * Gets the absolute path of the file.
+	 * 
+	 * @return The path.
+	 */
+	public String getPath() {
+	    return path;
+	}
+
+	/**
+	 * Gets the size of the file.
+	 * 
+	 * @return The size in bytes.
+	 */
+	public long getSize() {
+	    return size;
+	}
+
+	/**
+	 * Gets the modification time of the file.
+	 * 
+	 * @return The modification time. (milliseconds)
+	 */
+	public long getLastModified() {
+	    return lastModified;
+	}
+
+	/**
+	 * Gets the width of the image.
+	 * 
+	 * @return The width or -1 if it's unknown.
+	 */
+	public int getWidth() {
+	    return width;
+	}
+
+	/**
+	 * Gets the height of the image.
+	 * 
+	 * @return The height or -1 if it's unknown.
+	 */
+	public int getHeight() {
+	    return height;
+	}
+    }
+}
@@ -0,0 +1,302 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.file;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The FileScanner walks a directory tree in parallel. Every directory gets
+ * listed by its own fork/join action, and the files are reported as soon as
+ * their directory was listed, so the first files are available long before
+ * the whole tree was walked. The files are reported on the thread, which
+ * runs the scan, so the listener may block without stalling the workers,
+ * which are shared by all scans.
+ * 
+ * @author Mathias Markl
+ */
+public class FileScanner {
+
+    /**
+     * Default number of directories, which are listed at once.
+     */
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    /**
+     * Marks the end of the found files.
+     */
+    private static final File END = new File("");
+
+    private static FileScanner defaultScanner;
+
+    private ForkJoinPool pool;
+
+    /**
+     * Constructs a new FileScanner.
+     * 
+     * @param parallelism
+     *            The number of directories, which are listed at once.
+     */
+    public FileScanner(int parallelism) {
+	if (parallelism < 1) {
+	    throw new IllegalArgumentException("The scanner needs at least one thread.");
+	}
+
+	pool = new ForkJoinPool(parallelism, new ScannerThreadFactory(), null, false);
+    }
+
+    /**
+     * Gets the scanner, which is used by the file loaders.
+     * 
+     * @return The scanner.
+     */
+    public static synchronized FileScanner getDefault() {
+	if (defaultScanner == null) {
+	    defaultScanner = new FileScanner(DEFAULT_PARALLELISM);
+	}
+	return defaultScanner;
+    }
+
+    /**
+     * Sets the scanner, which is used by the file loaders. The previous
+     * scanner finishes its running scans and shuts down afterwards.
+     * 
+     * @param scanner
+     *            The scanner.
+     */
+    public static synchronized void setDefault(FileScanner scanner) {
+	if (defaultScanner != null && defaultScanner != scanner) {
+	    defaultScanner.shutdown();
+	}
+	defaultScanner = scanner;
+    }
+
+    /**
+     * Walks the tree of the given root and reports the found files, until the
+     * walk is finished or cancelled. Once the scan is cancelled, the workers
+     * stop listing directories and the method returns without reporting the
+     * remaining files.
+     * 
+     * @param root
+     *            The root file or directory.
+     * @param filter
+     *            The filter, which selects the reported files.
+     * @param listener
+     *            The listener, which receives the found files and
+     *            directories.
+     * @param cancelled
+     *            Returns true if the scan should be cancelled.
+     * @throws IOException
+     *             If the root doesn't exist or the listener failed.
+     * @throws InterruptedException
+     *             If the calling thread was interrupted. The scan gets
+     *             cancelled as well.
+     */
+    public void scan(File root, FileFilter filter, Listener listener, BooleanSupplier cancelled)
+	    throws IOException, InterruptedException {
+	if (!root.exists()) {
+	    throw new IOException("Path does not exist.");
+	}
+
+	final Scan scan = new Scan(filter, listener, cancelled);
+	final ScanAction action = new ScanAction(root.getAbsoluteFile(), scan);
+
+	ForkJoinTask<?> task = pool.submit(new Runnable() {
+	    @Override
+	    public void run() {
+		try {
+		    action.invoke();
+		} finally {
+		    scan.found.add(END);
+		}
+	    }
+	});
+
+	try {
+	    File file;
+
+	    while ((file = scan.found.take()) != END) {
+		if (scan.isCancelled()) {
+		    return;
+		}
+		listener.fileFound(file);
+	    }
+
+	    task.get();
+	} catch (ExecutionException e) {
+	    Throwable cause = e.getCause();
+
+	    if (cause instanceof UncheckedIOException) {
+		throw ((UncheckedIOException) cause).getCause();
+	    } else if (cause instanceof RuntimeException) {
+		throw (RuntimeException) cause;
+	    } else if (cause instanceof Error) {
+		throw (Error) cause;
+	    }
+	    throw new IOException(cause);
+	} finally {
+	    scan.aborted = true;
+	}
+    }
+
+    /**
+     * Shuts the scanner down. Running scans will still be finished.
+     */
+    public void shutdown() {
+	pool.shutdown();
+    }
+
+    /**
+     * Receives the files and directories of a scan.
+     */
+    public interface Listener {
+
+	/**
+	 * Gets called for every file, which is accepted by the filter. The method
+	 * gets called on the thread, which runs the scan.
+	 * 
+	 * @param file
+	 *            The file.
+	 */
+	public void fileFound(File file);
+
+	/**
+	 * Gets called for every directory, before its files are listed. The
+	 * method gets called by the workers of the scanner.
+	 * 
+	 * @param directory
+	 *            The directory.
+	 * @throws IOException
+	 *             If the directory can't be handled.
+	 */
+	public void directoryFound(File directory) throws IOException;
+    }
+
+    /**
+     * The state of a single scan, which is shared by its actions.
+     */
+    private static class Scan {
+
+	private FileFilter filter;
+	private Listener listener;
+	private BooleanSupplier cancelled;
+
+	private BlockingQueue<File> found;
+	private volatile boolean aborted;
+
+	private Scan(FileFilter filter, Listener listener, BooleanSupplier cancelled) {
+	    this.filter = filter;
+	    this.listener = listener;
+	    this.cancelled = cancelled;
+
+	    found = new LinkedBlockingQueue<File>();
+	    aborted = false;
+	}
+
+	private boolean isCancelled() {
+	    return aborted || cancelled.getAsBoolean();
+	}
+    }
+
+    /**
+     * Lists a single directory and forks an action for each of its
+     * subdirectories. The found files are queued for the scanning thread.
+     */
+    private static class ScanAction extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	private File location;
+	private Scan scan;
+
+	private ScanAction(File location, Scan scan) {
+	    this.location = location;
+	    this.scan = scan;
+	}
+
+	@Override
+	protected void compute() {
+	    if (scan.isCancelled()) {
+		return;
+	    }
+
+	    if (location.isFile()) {
+		if (scan.filter.accept(location)) {
+		    scan.found.add(location);
+		}
+		return;
+	    }
+
+	    if (!location.isDirectory()) {
+		return;
+	    }
+
+	    try {
+		scan.listener.directoryFound(location);
+	    } catch (IOException e) {
+		throw new UncheckedIOException(e);
+	    }
+
+	    File[] children = location.listFiles();
+
+	    if (children == null) {
+		return;
+	    }
+
+	    List<ScanAction> directories = new ArrayList<ScanAction>();
+
+	    for (File child : children) {
+		if (child.isDirectory()) {
+		    directories.add(new ScanAction(child, scan));
+		} else if (child.isFile() && scan.filter.accept(child)) {
+		    scan.found.add(child);
+		}
+	    }
+
+	    invokeAll(directories);
+	}
+    }
+
+    /**
+     * Creates the worker threads of the scanner.
+     */
+    private static class ScannerThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+
+	private AtomicInteger counter = new AtomicInteger();
+
+	@Override
+	public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+	    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+	    thread.setName("FileScanner-" + counter.incrementAndGet());
+	    return thread;
+	}
+    }
+}
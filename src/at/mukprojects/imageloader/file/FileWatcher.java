@@ -0,0 +1,334 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BooleanSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The FileWatcher scans a directory tree once with the FileScanner and reports
+ * the changes of its files afterwards, instead of scanning the whole tree
+ * again. The changes are collected by a WatchService. If the WatchService lost
+ * events, the tree gets scanned again and compared with the known files. If
+ * the root is a single file, its changes aren't reported.
+ * 
+ * @author Mathias Markl
+ */
+public class FileWatcher implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileWatcher.class);
+
+    private File root;
+    private FileFilter filter;
+
+    private WatchService watchService;
+    private Map<WatchKey, Path> directories;
+    private ConcurrentSkipListMap<String, WatchKey> watched;
+    private ConcurrentSkipListMap<String, Long> files;
+
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new FileWatcher.
+     * 
+     * @param root
+     *            The watched file or directory.
+     * @param filter
+     *            The filter, which selects the reported files.
+     */
+    public FileWatcher(File root, FileFilter filter) {
+	this.root = root.getAbsoluteFile();
+	this.filter = filter;
+
+	directories = new ConcurrentHashMap<WatchKey, Path>();
+	watched = new ConcurrentSkipListMap<String, WatchKey>();
+	files = new ConcurrentSkipListMap<String, Long>();
+	closed = false;
+    }
+
+    /**
+     * Scans the watched tree and starts watching its directories. Every file,
+     * which is accepted by the filter, gets reported as changed as soon as it
+     * was found. Closing the watcher cancels the scan.
+     * 
+     * @param listener
+     *            The listener, which receives the files.
+     * @throws IOException
+     *             If the root doesn't exist or can't be watched.
+     * @throws InterruptedException
+     *             If the scan was interrupted.
+     */
+    public void scan(Listener listener) throws IOException, InterruptedException {
+	if (!root.exists()) {
+	    throw new IOException("Path does not exist.");
+	}
+
+	if (watchService == null) {
+	    watchService = FileSystems.getDefault().newWatchService();
+	}
+
+	scan(root, listener);
+    }
+
+    /**
+     * Reports the changes since the last call without waiting for further
+     * changes.
+     * 
+     * @param listener
+     *            The listener, which receives the changes.
+     * @throws IOException
+     *             If a new directory can't be watched.
+     * @throws InterruptedException
+     *             If the scan of a new directory was interrupted.
+     */
+    public void poll(Listener listener) throws IOException, InterruptedException {
+	if (watchService == null) {
+	    throw new IllegalStateException("The tree wasn't scanned yet.");
+	}
+
+	try {
+	    WatchKey key;
+
+	    while ((key = watchService.poll()) != null) {
+		Path directory = directories.get(key);
+
+		for (WatchEvent<?> event : key.pollEvents()) {
+		    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+			logger.debug("Events of " + root + " were lost. The tree gets scanned again.");
+			rescan(listener);
+		    } else if (directory != null) {
+			File file = directory.resolve((Path) event.context()).toFile();
+
+			if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+			    deleted(file, listener);
+			} else {
+			    changed(file, listener);
+			}
+		    }
+		}
+
+		if (!key.reset()) {
+		    unwatch(key);
+		}
+	    }
+	} catch (ClosedWatchServiceException e) {
+	    logger.debug("The watcher of " + root + " was closed.");
+	}
+    }
+
+    /**
+     * Gets the number of known files.
+     * 
+     * @return The number of files.
+     */
+    public int size() {
+	return files.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+	closed = true;
+
+	if (watchService != null) {
+	    watchService.close();
+	}
+    }
+
+    private void scan(File location, final Listener listener) throws IOException, InterruptedException {
+	try {
+	    FileScanner.getDefault().scan(location, filter, new FileScanner.Listener() {
+		@Override
+		public void fileFound(File file) {
+		    long lastModified = file.lastModified();
+		    Long known = files.put(file.getAbsolutePath(), lastModified);
+
+		    if (known == null || known != lastModified) {
+			listener.fileChanged(file);
+		    }
+		}
+
+		@Override
+		public void directoryFound(File directory) throws IOException {
+		    watch(directory);
+		}
+	    }, new BooleanSupplier() {
+		@Override
+		public boolean getAsBoolean() {
+		    return closed;
+		}
+	    });
+	} catch (ClosedWatchServiceException e) {
+	    logger.debug("The watcher of " + root + " was closed.");
+	}
+    }
+
+    private void watch(File directory) throws IOException {
+	Path path = directory.toPath();
+	WatchKey key = path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+		StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+	directories.put(key, path);
+	watched.put(directory.getAbsolutePath(), key);
+    }
+
+    private void unwatch(WatchKey key) {
+	Path path = directories.remove(key);
+
+	if (path != null) {
+	    watched.remove(path.toFile().getAbsolutePath(), key);
+	}
+    }
+
+    /**
+     * Returns true if the directory is watched already. A directory, which
+     * was deleted and created again, isn't watched anymore.
+     */
+    private boolean isWatched(File directory) {
+	WatchKey key = watched.get(directory.getAbsolutePath());
+	return key != null && key.isValid();
+    }
+
+    private void changed(File file, Listener listener) throws IOException, InterruptedException {
+	if (file.isDirectory()) {
+	    /*
+	     * Modifying a directory only changes its entries, which are reported
+	     * by their own events. Only new directories have to be scanned.
+	     */
+	    if (!isWatched(file)) {
+		scan(file, listener);
+	    }
+	} else if (file.isFile() && filter.accept(file)) {
+	    Long known = files.put(file.getAbsolutePath(), file.lastModified());
+
+	    if (known == null || known != file.lastModified()) {
+		listener.fileChanged(file);
+	    }
+	}
+    }
+
+    private void deleted(File file, Listener listener) {
+	String path = file.getAbsolutePath();
+
+	if (files.remove(path) != null) {
+	    listener.fileDeleted(file);
+	} else {
+	    /*
+	     * The path might have been a directory, so all files below it are
+	     * deleted as well and its directories aren't watched anymore.
+	     */
+	    String prefix = path + File.separator;
+	    List<String> below = new ArrayList<String>(files.subMap(prefix, prefix + Character.MAX_VALUE).keySet());
+
+	    for (String child : below) {
+		files.remove(child);
+		listener.fileDeleted(new File(child));
+	    }
+
+	    List<WatchKey> keys = new ArrayList<WatchKey>(
+		    watched.subMap(prefix, prefix + Character.MAX_VALUE).values());
+	    WatchKey key = watched.get(path);
+
+	    if (key != null) {
+		keys.add(key);
+	    }
+
+	    for (WatchKey child : keys) {
+		child.cancel();
+		unwatch(child);
+	    }
+	}
+    }
+
+    private void rescan(Listener listener) throws IOException, InterruptedException {
+	final Map<String, Long> known = new ConcurrentHashMap<String, Long>(files);
+	final List<File> found = new ArrayList<File>();
+	files.clear();
+
+	for (WatchKey key : directories.keySet()) {
+	    key.cancel();
+	}
+	directories.clear();
+	watched.clear();
+
+	scan(root, new Listener() {
+	    @Override
+	    public void fileChanged(File file) {
+		Long lastModified = known.remove(file.getAbsolutePath());
+
+		if (lastModified == null || lastModified != file.lastModified()) {
+		    found.add(file);
+		}
+	    }
+
+	    @Override
+	    public void fileDeleted(File file) {
+	    }
+	});
+
+	if (closed) {
+	    return;
+	}
+
+	for (File file : found) {
+	    listener.fileChanged(file);
+	}
+
+	for (String path : known.keySet()) {
+	    listener.fileDeleted(new File(path));
+	}
+    }
+
+    /**
+     * Receives the changes of the watched files.
+     */
+    public interface Listener {
+
+	/**
+	 * Gets called if a file was created or modified.
+	 * 
+	 * @param file
+	 *            The file.
+	 */
+	public void fileChanged(File file);
+
+	/**
+	 * Gets called if a file was deleted.
+	 * 
+	 * @param file
+	 *            The file.
+	 */
+	public void fileDeleted(File file);
+    }
+}
@@ -24,6 +24,8 @@ import com.flickr4java.flickr.Flickr;
 import com.flickr4java.flickr.REST;
 
 import at.mukprojects.imageloader.ImageLoader;
+import at.mukprojects.imageloader.concurrent.LoaderScheduler;
+import at.mukprojects.imageloader.concurrent.TaskHandle;
 import at.mukprojects.imageloader.image.ImageList;
 
 import processing.core.PApplet;
@@ -42,8 +44,7 @@ public class FlickrLoader extends ImageLoader {
 
     private Flickr flickr;
 
-    private Thread thread = null;
-    private FlickrTask runnable = null;
+    private TaskHandle handle = null;
 
     /**
      * Constructs a new ImageLoader.
@@ -74,18 +75,20 @@ public class FlickrLoader extends ImageLoader {
 
     @Override
     public ImageList start(String searchParam, ImageList imageList, boolean runOnce, long delay, boolean lazyLoad) {
-	if (thread != null) {
+	if (handle != null) {
 	    logger.info("Loader is already started.");
 	    logger.info("The restart method will be used instead.");
 
 	    return restart(searchParam, imageList, runOnce, delay, lazyLoad);
 	} else {
-	    runnable = new FlickrTask(applet, searchParam, imageList, flickr, runOnce, delay, lazyLoad);
-	    thread = new Thread(runnable, "FlickrTask");
+	    FlickrTask task = new FlickrTask(applet, searchParam, imageList, flickr, runOnce, delay, lazyLoad);
+	    task.setExecutionMode(executionMode);
+	    task.setTargetSize(targetWidth, targetHeight);
+	    publish(imageList, task);
 
-	    logger.info("Starting Thread: " + thread + "...");
-	    thread.start();
-	    logger.debug(thread + " successfully started.");
+	    logger.info("Starting Task: FlickrTask...");
+	    handle = LoaderScheduler.start(task, "FlickrTask");
+	    logger.debug(handle + " successfully started.");
 
 	    return imageList;
 	}
@@ -93,28 +96,33 @@ public class FlickrLoader extends ImageLoader {
 
     @Override
     public ImageList restart(String searchParam, ImageList imageList, boolean runOnce, long delay, boolean lazyLoad) {
-	logger.info("Stopping the current thread: " + thread + "...");
-	runnable.stop();
-	logger.debug(thread + " successfully stopped.");
+	logger.info("Stopping the current task: " + handle + "...");
+	if (handle != null) {
+	    handle.stop();
+	}
+	logger.debug(handle + " successfully stopped.");
 
-	runnable = new FlickrTask(applet, searchParam, imageList, flickr, runOnce, delay, lazyLoad);
-	thread = new Thread(runnable, "FlickrTask");
+	FlickrTask task = new FlickrTask(applet, searchParam, imageList, flickr, runOnce, delay, lazyLoad);
+	task.setExecutionMode(executionMode);
+	task.setTargetSize(targetWidth, targetHeight);
+	publish(imageList, task);
 
-	logger.info("Starting Thread: " + thread + "...");
-	thread.start();
-	logger.debug(thread + " successfully started.");
+	logger.info("Starting Task: FlickrTask...");
+	handle = LoaderScheduler.start(task, "FlickrTask");
+	logger.debug(handle + " successfully started.");
 
 	return imageList;
     }
 
     @Override
     public void stop() {
-	logger.info("Stopping the current thread: " + thread + "...");
+	logger.info("Stopping the current task: " + handle + "...");
 
-	runnable.stop();
-	thread = null;
-	runnable = null;
+	if (handle != null) {
+	    handle.stop();
+	}
 
-	logger.debug(thread + " successfully stopped.");
+	logger.debug(handle + " successfully stopped.");
+	handle = null;
     }
 }
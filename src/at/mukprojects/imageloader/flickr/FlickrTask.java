@@ -29,7 +29,10 @@ import com.flickr4java.flickr.photos.PhotoList;
 import com.flickr4java.flickr.photos.PhotosInterface;
 import com.flickr4java.flickr.photos.SearchParameters;
 
+import at.mukprojects.imageloader.cache.DiskCache;
+import at.mukprojects.imageloader.concurrent.LoaderTask;
 import at.mukprojects.imageloader.image.Image;
+import at.mukprojects.imageloader.image.ImageDecoder;
 import at.mukprojects.imageloader.image.ImageList;
 import processing.core.PApplet;
 import processing.core.PImage;
@@ -39,7 +42,7 @@ import processing.core.PImage;
  * 
  * @author Mathias Markl
  */
-public class FlickrTask implements Runnable {
+public class FlickrTask extends LoaderTask {
 
     private static final Logger logger = LoggerFactory.getLogger(FlickrTask.class);
 
@@ -48,11 +51,9 @@ public class FlickrTask implements Runnable {
     private ImageList imageList;
     private Flickr flickr;
 
-    private boolean runOnce;
-    private long delay;
     private boolean lazyLoad;
 
-    private volatile boolean running;
+    private int page;
 
     /**
      * Constructs a new FlickrTask.
@@ -75,75 +76,58 @@ public class FlickrTask implements Runnable {
      */
     public FlickrTask(PApplet applet, String searchParam, ImageList imageList, Flickr flickr, boolean runOnce,
 	    long delay, boolean lazyLoad) {
+	super(runOnce, delay);
+
 	this.applet = applet;
 	this.searchParam = searchParam;
 	this.imageList = imageList;
 	this.flickr = flickr;
 
-	this.runOnce = runOnce;
-	this.delay = delay;
 	this.lazyLoad = lazyLoad;
 
-	running = true;
-    }
-
-    /**
-     * Stops the task.
-     */
-    public void stop() {
-	running = false;
+	this.page = 0;
     }
 
     @Override
-    public void run() {
-	logger.info("Task is running...");
-
+    protected void load() throws FlickrException {
 	PhotosInterface photoInterface = flickr.getPhotosInterface();
 	SearchParameters searchParameters = new SearchParameters();
 	searchParameters.setAccuracy(1);
 	searchParameters.setTags(PApplet.split(searchParam, " "));
 
-	for (int i = 0; running; i++) {
-	    try {
-		logger.debug("Task loads data.");
+	PhotoList<Photo> photoList = photoInterface.search(searchParameters, 50, page);
 
-		PhotoList<Photo> photoList = photoInterface.search(searchParameters, 50, i);
+	for (Photo p : photoList) {
+	    Photo photo = photoInterface.getInfo(p.getId(), null);
 
-		for (Photo p : photoList) {
-		    Photo photo = photoInterface.getInfo(p.getId(), null);
+	    String id = "Flickr#" + photo.getId();
 
-		    String id = "Flickr#" + photo.getId();
+	    String imgInfo = "";
+	    imgInfo += "Title: " + photo.getTitle() + "\n";
+	    imgInfo += "Description: " + photo.getDescription() + "\n";
+	    imgInfo += "License: " + FlickrLicenses.fromId(photo.getLicense()).getText();
 
-		    String imgInfo = "";
-		    imgInfo += "Title: " + photo.getTitle() + "\n";
-		    imgInfo += "Description: " + photo.getDescription() + "\n";
-		    imgInfo += "License: " + FlickrLicenses.fromId(photo.getLicense()).getText();
+	    long timestamp = new Date().getTime();
+	    String imgUrl = photo.getLargeUrl();
 
-		    long timestamp = new Date().getTime();
-		    String imgUrl = photo.getLargeUrl();
-
-		    PImage img = null;
-		    if (!lazyLoad) {
-			img = applet.loadImage(imgUrl);
-		    }
-
-		    imageList.addImage(new Image(id, imgInfo, timestamp, imgUrl, img));
-		}
-
-		if (runOnce) {
-		    logger.debug("Task is finished.");
-		    running = false;
-		} else {
-		    logger.debug("Task is delayed...");
-		    Thread.sleep(delay);
-		}
-	    } catch (InterruptedException | FlickrException e) {
-		logger.error("An error occured. The task will be stopped.", e);
-		running = false;
+	    if (!lazyLoad) {
+		download(id, imgInfo, timestamp, imgUrl);
+	    } else {
+		imageList.addImage(new Image(id, imgInfo, timestamp, imgUrl, null, getTargetWidth(),
+			getTargetHeight()));
 	    }
 	}
 
-	logger.info("Task has stopped.");
+	page++;
     }
 
+    private void download(final String id, final String imgInfo, final long timestamp, final String imgUrl) {
+	submitDownload(id, imgUrl, new Runnable() {
+	    @Override
+	    public void run() {
+		PImage img = ImageDecoder.load(applet, DiskCache.resolve(imgUrl), getTargetWidth(), getTargetHeight());
+		imageList.addImage(new Image(id, imgInfo, timestamp, imgUrl, img, getTargetWidth(), getTargetHeight()));
+	    }
+	});
+    }
 }
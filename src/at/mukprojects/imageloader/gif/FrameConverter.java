@@ -0,0 +1,196 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.gif;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+import processing.core.PImage;
+
+/**
+ * Converts the frames of the GIF decoder into Processing images. The frames
+ * of the decoder are integer ARGB images, whose pixels are read directly from
+ * the data buffer instead of being converted pixel by pixel. Frames can be
+ * subsampled to reduce their size.
+ * 
+ * GIF pixels are either opaque or fully transparent, so the premultiplied
+ * pixels of the decoder don't differ from the non premultiplied pixels of a
+ * Processing image.
+ * 
+ * @author Mathias Markl
+ */
+final class FrameConverter {
+
+    private FrameConverter() {
+    }
+
+    /**
+     * Returns the size of a frame dimension after the subsampling.
+     * 
+     * @param size
+     *            The source size.
+     * @param subsampling
+     *            The subsampling factor.
+     * @return The subsampled size.
+     */
+    public static int getSubsampledSize(int size, int subsampling) {
+	return (size + subsampling - 1) / subsampling;
+    }
+
+    /**
+     * Returns the ARGB pixels of a frame, which is subsampled by the given
+     * factor. If possible the data array of the frame is returned, so the
+     * pixels must not be modified.
+     * 
+     * @param frame
+     *            The frame.
+     * @param subsampling
+     *            The subsampling factor.
+     * @return The pixels.
+     */
+    public static int[] getPixels(BufferedImage frame, int subsampling) {
+	int width = frame.getWidth();
+	int height = frame.getHeight();
+	int[] data = getData(frame);
+
+	if (data == null) {
+	    data = frame.getRGB(0, 0, width, height, null, 0, width);
+	}
+
+	if (subsampling <= 1) {
+	    return data;
+	}
+
+	int[] target = new int[getSubsampledSize(width, subsampling) * getSubsampledSize(height, subsampling)];
+	subsample(data, width, height, subsampling, target);
+
+	return target;
+    }
+
+    /**
+     * Copies the ARGB pixels of a frame, which is subsampled by the given
+     * factor, into the given array.
+     * 
+     * @param frame
+     *            The frame.
+     * @param subsampling
+     *            The subsampling factor.
+     * @param target
+     *            The target array, which must hold all subsampled pixels.
+     */
+    public static void copyPixels(BufferedImage frame, int subsampling, int[] target) {
+	int width = frame.getWidth();
+	int height = frame.getHeight();
+	int[] data = getData(frame);
+
+	if (subsampling <= 1) {
+	    if (data != null) {
+		System.arraycopy(data, 0, target, 0, data.length);
+	    } else {
+		frame.getRGB(0, 0, width, height, target, 0, width);
+	    }
+	} else {
+	    if (data == null) {
+		data = frame.getRGB(0, 0, width, height, null, 0, width);
+	    }
+	    subsample(data, width, height, subsampling, target);
+	}
+    }
+
+    /**
+     * Converts a frame, which is subsampled by the given factor, into a
+     * PImage. If possible the image uses the data array of the frame as its
+     * pixels, so no pixel is copied.
+     * 
+     * @param frame
+     *            The frame.
+     * @param subsampling
+     *            The subsampling factor.
+     * @return The image.
+     */
+    public static PImage toPImage(BufferedImage frame, int subsampling) {
+	int width = getSubsampledSize(frame.getWidth(), subsampling);
+	int height = getSubsampledSize(frame.getHeight(), subsampling);
+	int[] data = getData(frame);
+
+	PImage image = new PImage(width, height, PImage.ARGB);
+
+	if (subsampling <= 1 && data != null) {
+	    /*
+	     * The pixels allocated by the constructor are replaced by the data
+	     * array of the frame, so the frame doesn't have to be copied.
+	     */
+	    image.pixels = data;
+	} else {
+	    copyPixels(frame, subsampling, image.pixels);
+	}
+
+	return image;
+    }
+
+    /**
+     * Takes every n-th pixel of every n-th row.
+     */
+    private static void subsample(int[] source, int width, int height, int subsampling, int[] target) {
+	int index = 0;
+
+	for (int y = 0; y < height; y += subsampling) {
+	    int row = y * width;
+
+	    for (int x = 0; x < width; x += subsampling) {
+		target[index++] = source[row + x];
+	    }
+	}
+    }
+
+    /**
+     * Returns the data array of an integer ARGB frame, whose pixels are
+     * stored without gaps, or null for any other frame.
+     */
+    private static int[] getData(BufferedImage frame) {
+	int type = frame.getType();
+
+	if (type != BufferedImage.TYPE_INT_ARGB && type != BufferedImage.TYPE_INT_ARGB_PRE) {
+	    return null;
+	}
+
+	WritableRaster raster = frame.getRaster();
+	SampleModel sampleModel = raster.getSampleModel();
+	DataBuffer buffer = raster.getDataBuffer();
+
+	if (!(buffer instanceof DataBufferInt) || !(sampleModel instanceof SinglePixelPackedSampleModel)
+		|| raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0
+		|| buffer.getOffset() != 0) {
+	    return null;
+	}
+
+	int width = frame.getWidth();
+	int[] data = ((DataBufferInt) buffer).getData();
+
+	if (((SinglePixelPackedSampleModel) sampleModel).getScanlineStride() != width
+		|| data.length != width * frame.getHeight()) {
+	    return null;
+	}
+
+	return data;
+    }
+}
@@ -23,8 +23,22 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Date;
-
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import at.mukprojects.imageloader.cache.DiskCache;
+import at.mukprojects.imageloader.cache.PixelCache;
+import at.mukprojects.imageloader.cache.PixelCacheEntry;
+import at.mukprojects.imageloader.concurrent.DecodePriority;
+import at.mukprojects.imageloader.concurrent.DecodeRequest;
+import at.mukprojects.imageloader.concurrent.SingleFlight;
+import at.mukprojects.imageloader.image.ImageDecoder;
+import at.mukprojects.imageloader.image.ImagePyramid;
+import at.mukprojects.imageloader.list.ListEntry;
 import gifAnimation.GifDecoder;
 import processing.core.PImage;
 
@@ -33,7 +47,12 @@ import processing.core.PImage;
  * 
  * @author Mathias Markl
  */
-public class GifData {
+public class GifData implements ListEntry, PixelCacheEntry {
+
+    private static volatile boolean compactFrames = false;
+
+    private static final SingleFlight<LoadedFrames> frameLoads = new SingleFlight<LoadedFrames>();
+    private static final SingleFlight<PImage> previewLoads = new SingleFlight<PImage>();
 
     private String id;
 
@@ -43,10 +62,22 @@ public class GifData {
     private String gifUrl;
     private Integer delay;
 
-    private PImage[] frames;
-    private PImage previewImage;
+    private volatile PImage[] frames;
+    private volatile PImage previewImage;
+    private volatile IndexedFrame[] indexedFrames;
+
+    private volatile ImagePyramid framePyramid;
+    private volatile ImagePyramid previewPyramid;
+
+    private PImage frameImage;
+    private int frameImageIndex;
 
-    private GifDecoder decoder;
+    private volatile int targetWidth;
+    private volatile int targetHeight;
+
+    private volatile GifDecoder decoder;
+    private GifPlayer player;
+    private final Object playerLock = new Object();
 
     /**
      * Constructs a new GIF.
@@ -82,11 +113,62 @@ public class GifData {
      *            The GIFs.
      */
     public GifData(String id, String imgInfo, long timestamp, String imgUrl, PImage[] frames) {
+	this(id, imgInfo, timestamp, imgUrl, frames, 0, 0);
+    }
+
+    /**
+     * Constructs a new image, whose frames get decoded at a reduced size.
+     * 
+     * @param id
+     *            The image id. The id must be unique.
+     * @param imgInfo
+     *            The image info.
+     * @param timestamp
+     *            The image timestamp.
+     * @param imgUrl
+     *            The GIF URL.
+     * @param frames
+     *            The GIFs.
+     * @param targetWidth
+     *            The target width or zero.
+     * @param targetHeight
+     *            The target height or zero.
+     */
+    public GifData(String id, String imgInfo, long timestamp, String imgUrl, PImage[] frames, int targetWidth,
+	    int targetHeight) {
 	this.id = id;
 	this.imgInfo = imgInfo;
 	this.timestamp = timestamp;
 	this.gifUrl = imgUrl;
 	this.frames = frames;
+	this.targetWidth = targetWidth;
+	this.targetHeight = targetHeight;
+
+	if (frames != null) {
+	    PixelCache.put(this);
+	}
+    }
+
+    /**
+     * Enables or disables the compact frame storage for all GIFs loaded
+     * afterwards. Compact frames store one byte per pixel and are expanded to
+     * ARGB by getFrame, when they are drawn. Use getFrame instead of
+     * getGifFrames in this mode, because getGifFrames expands all frames.
+     * 
+     * @param enabled
+     *            True to store the frames in compact form.
+     */
+    public static void setCompactFrames(boolean enabled) {
+	compactFrames = enabled;
+    }
+
+    /**
+     * Returns true if the compact frame storage is enabled.
+     * 
+     * @return True if frames are stored in compact form.
+     */
+    public static boolean isCompactFrames() {
+	return compactFrames;
     }
 
     /**
@@ -148,13 +230,74 @@ public class GifData {
      * @return The GIF.
      */
     public PImage getPreviewImage() {
-	if (previewImage == null) {
+	PImage current = previewImage;
+
+	if (current == null) {
 	    try {
 		loadPreview();
 	    } catch (IOException e) {
 	    }
+	    current = previewImage;
+	} else {
+	    PixelCache.touch(this);
 	}
-	return previewImage;
+
+	return current;
+    }
+
+    /**
+     * Gets the preview image without blocking. If the image isn't loaded yet,
+     * it gets loaded by the DecodeScheduler in the background.
+     * 
+     * @return The future preview image. The future fails if the image
+     *         couldn't be loaded.
+     */
+    public CompletableFuture<PImage> getPreviewImageAsync() {
+	return requestPreviewImage(DecodePriority.VISIBLE).getFuture();
+    }
+
+    /**
+     * Requests the preview image with the given priority. If the image isn't
+     * loaded yet, it gets loaded by the DecodeScheduler in the background.
+     * 
+     * @param priority
+     *            The priority of the load.
+     * @return The request. Its future fails if the image couldn't be loaded.
+     */
+    public DecodeRequest<PImage> requestPreviewImage(DecodePriority priority) {
+	PImage current = previewImage;
+
+	if (current != null) {
+	    PixelCache.touch(this);
+	    return DecodeRequest.completed(current);
+	}
+
+	return previewLoads.submit(getLoadKey(false), newPreviewLoad(), priority).thenApply(
+		new Function<PImage, PImage>() {
+		    @Override
+		    public PImage apply(PImage loaded) {
+			return storePreview(loaded);
+		    }
+		});
+    }
+
+    /**
+     * Gets the preview image, if it's already loaded. Otherwise the image gets
+     * loaded in the background and the method returns null, so the caller can
+     * draw a placeholder until the image is ready.
+     * 
+     * @return The preview image or null.
+     */
+    public PImage getPreviewImageIfReady() {
+	PImage current = previewImage;
+
+	if (current == null) {
+	    requestPreviewImage(DecodePriority.VISIBLE);
+	} else {
+	    PixelCache.touch(this);
+	}
+
+	return current;
     }
 
     /**
@@ -164,13 +307,242 @@ public class GifData {
      * @return The GIF.
      */
     public PImage[] getGifFrames() {
-	if (frames == null) {
+	PImage[] current = frames;
+
+	if (current == null) {
 	    try {
-		loadGif();
+		current = loadFrames();
 	    } catch (IOException e) {
 	    }
+	} else {
+	    PixelCache.touch(this);
 	}
-	return frames;
+
+	return current;
+    }
+
+    /**
+     * Gets the GIF without blocking. If the GIF isn't loaded yet, it gets
+     * loaded by the DecodeScheduler in the background.
+     * 
+     * @return The future GIF. The future fails if the GIF couldn't be loaded.
+     */
+    public CompletableFuture<PImage[]> getGifFramesAsync() {
+	return requestGifFrames(DecodePriority.VISIBLE).getFuture();
+    }
+
+    /**
+     * Requests the GIF with the given priority. If the GIF isn't loaded yet, it
+     * gets loaded by the DecodeScheduler in the background. The returned
+     * request can be used to re-prioritize or cancel the load, when the GIF
+     * leaves the screen.
+     * 
+     * @param priority
+     *            The priority of the load.
+     * @return The request. Its future fails if the GIF couldn't be loaded.
+     */
+    public DecodeRequest<PImage[]> requestGifFrames(DecodePriority priority) {
+	PImage[] current = frames;
+
+	if (current != null) {
+	    PixelCache.touch(this);
+	    return DecodeRequest.completed(current);
+	}
+
+	final boolean compact = compactFrames;
+
+	return frameLoads.submit(getLoadKey(compact), newFrameLoad(compact), priority).thenApply(
+		new Function<LoadedFrames, PImage[]>() {
+		    @Override
+		    public PImage[] apply(LoadedFrames loaded) {
+			storeFrames(loaded);
+
+			PImage[] current = frames;
+			return current != null ? current : expandFrames();
+		    }
+		});
+    }
+
+    /**
+     * Gets the GIF, if it's already loaded. Otherwise the GIF gets loaded in
+     * the background and the method returns null, so the caller can draw a
+     * placeholder until the GIF is ready.
+     * 
+     * @return The GIF or null.
+     */
+    public PImage[] getGifFramesIfReady() {
+	PImage[] current = frames;
+
+	if (current == null) {
+	    requestGifFrames(DecodePriority.VISIBLE);
+	} else {
+	    PixelCache.touch(this);
+	}
+
+	return current;
+    }
+
+    /**
+     * Gets a variant of the preview image, which fits the size the image gets
+     * drawn with. The variants are scaled down by powers of two and generated
+     * the first time they are requested.
+     * 
+     * @param width
+     *            The width the image gets drawn with.
+     * @param height
+     *            The height the image gets drawn with.
+     * @return The preview image variant.
+     */
+    public PImage getPreviewImage(int width, int height) {
+	PImage current = getPreviewImage();
+
+	if (current == null) {
+	    return null;
+	}
+
+	ImagePyramid currentPyramid = previewPyramid;
+	if (currentPyramid == null || !currentPyramid.isSource(current)) {
+	    currentPyramid = new ImagePyramid(current);
+	    previewPyramid = currentPyramid;
+	}
+
+	return getVariant(currentPyramid, width, height)[0];
+    }
+
+    /**
+     * Gets a variant of the GIF frames, which fits the size the GIF gets drawn
+     * with. The variants are scaled down by powers of two and generated the
+     * first time they are requested.
+     * 
+     * @param width
+     *            The width the GIF gets drawn with.
+     * @param height
+     *            The height the GIF gets drawn with.
+     * @return The frame variants.
+     */
+    public PImage[] getGifFrames(int width, int height) {
+	PImage[] current = getGifFrames();
+
+	if (current == null) {
+	    return null;
+	}
+
+	ImagePyramid currentPyramid = framePyramid;
+	if (currentPyramid == null || !currentPyramid.isSource(current)) {
+	    currentPyramid = new ImagePyramid(current);
+	    framePyramid = currentPyramid;
+	}
+
+	return getVariant(currentPyramid, width, height);
+    }
+
+    /**
+     * Gets a single frame of the GIF. If the GIF is already decoded the frame
+     * is taken from the decoded frames. Compact frames are expanded into an
+     * image, which is reused by the next call. Otherwise the frame is streamed
+     * by a GifPlayer and only a few frames are held in memory. A streamed
+     * frame is recycled once it leaves the buffer of the player. If an error
+     * occurs during the loading process the method will return null.
+     * 
+     * @param index
+     *            The frame index.
+     * @return The frame.
+     */
+    public PImage getFrame(int index) {
+	PImage[] current = frames;
+
+	if (current != null) {
+	    PixelCache.touch(this);
+	    return index >= 0 && index < current.length ? current[index] : null;
+	}
+
+	try {
+	    if (indexedFrames != null || compactFrames) {
+		return expandFrame(index);
+	    }
+	    return getPlayer().getFrame(index);
+	} catch (IOException e) {
+	    return null;
+	}
+    }
+
+    /**
+     * Creates a new GifPlayer, which streams the frames of this GIF.
+     * 
+     * @param bufferSize
+     *            The number of frames held by the player.
+     * @return The player.
+     */
+    public GifPlayer createPlayer(int bufferSize) {
+	return new GifPlayer(this, bufferSize);
+    }
+
+    /**
+     * Sets the target size of the GIF. The frames are subsampled while they
+     * get decoded, so they are at least as large as the target size. A
+     * dimension of zero isn't limited. The size is used the next time the GIF
+     * gets decoded.
+     * 
+     * @param targetWidth
+     *            The target width or zero.
+     * @param targetHeight
+     *            The target height or zero.
+     */
+    public void setTargetSize(int targetWidth, int targetHeight) {
+	this.targetWidth = targetWidth;
+	this.targetHeight = targetHeight;
+    }
+
+    /**
+     * Gets the target width of the GIF.
+     * 
+     * @return The target width or zero.
+     */
+    public int getTargetWidth() {
+	return targetWidth;
+    }
+
+    /**
+     * Gets the target height of the GIF.
+     * 
+     * @return The target height or zero.
+     */
+    public int getTargetHeight() {
+	return targetHeight;
+    }
+
+    @Override
+    public long getDecodedSize() {
+	long size = 0;
+	PImage[] currentFrames = frames;
+	IndexedFrame[] currentIndexedFrames = indexedFrames;
+	PImage currentPreview = previewImage;
+
+	if (currentFrames != null) {
+	    for (PImage frame : currentFrames) {
+		size += 4L * frame.width * frame.height;
+	    }
+	}
+	if (currentIndexedFrames != null) {
+	    for (IndexedFrame frame : currentIndexedFrames) {
+		size += frame.getSize();
+	    }
+	}
+	if (size == 0 && currentPreview != null) {
+	    size += 4L * currentPreview.width * currentPreview.height;
+	}
+
+	ImagePyramid currentFramePyramid = framePyramid;
+	ImagePyramid currentPreviewPyramid = previewPyramid;
+
+	if (currentFramePyramid != null) {
+	    size += currentFramePyramid.getSize();
+	}
+	if (currentPreviewPyramid != null) {
+	    size += currentPreviewPyramid.getSize();
+	}
+
+	return size;
     }
 
     /**
@@ -178,80 +550,394 @@ public class GifData {
      */
     public void clearMemSpace() {
 	decoder = null;
+	closePlayer();
+	previewImage = null;
+	frames = null;
+	indexedFrames = null;
+	framePyramid = null;
+	previewPyramid = null;
+	PixelCache.remove(this);
+    }
+
+    @Override
+    public void releasePixels() {
+	decoder = null;
+	closePlayer();
 	previewImage = null;
 	frames = null;
+	indexedFrames = null;
+	framePyramid = null;
+	previewPyramid = null;
     }
 
     /**
-     * Returns the GIF decoder.
+     * Returns the GIF decoder. The GIF is loaded without keeping a decoder, so
+     * the first call decodes the GIF once more. The decoder holds an image of
+     * every frame and is kept until releaseDecoder is called or the memory
+     * space is freed. The GIF is decoded without holding the monitor of the
+     * GIF, so concurrent calls may decode it more than once, but all of them
+     * return the decoder, which was stored first.
      * 
      * @return The decoder.
      */
     public GifDecoder getDecoder() throws IOException {
-	if (decoder == null) {
-	    decoder = new GifDecoder();
-
-	    if (gifUrl.startsWith("http")) {
-		URL u = new URL(gifUrl);
-		HttpURLConnection uc = (HttpURLConnection) u.openConnection();
-		decoder.read(new BufferedInputStream(uc.getInputStream()));
-	    } else {
-		decoder.read(new BufferedInputStream(new FileInputStream(gifUrl)));
-	    }
+	GifDecoder current = decoder;
+
+	if (current == null) {
+	    current = storeDecoder(decode(new GifDecoder()));
 	}
-	
-	return decoder;
+
+	return current;
+    }
+
+    /**
+     * Releases the decoder returned by getDecoder.
+     */
+    public void releaseDecoder() {
+	decoder = null;
+    }
+
+    /**
+     * Returns true if the decoder returned by getDecoder is still held.
+     * 
+     * @return True if the GIF holds a decoder.
+     */
+    public boolean hasDecoder() {
+	return decoder != null;
     }
 
     /**
-     * Loads the preview image.
+     * Loads the preview image. Unless the GIF is already decoded, only the
+     * first image of the stream is read and decoded. The image is loaded
+     * without holding the monitor of the GIF and stored afterwards.
      */
     public void loadPreview() throws IOException {
-	decoder = getDecoder();
+	PImage[] currentFrames = frames;
+	GifDecoder current = decoder;
 
-	if (gifUrl.startsWith("http")) {
-	    URL u = new URL(gifUrl);
-	    HttpURLConnection uc = (HttpURLConnection) u.openConnection();
-	    decoder.read(new BufferedInputStream(uc.getInputStream()));
+	if (currentFrames != null) {
+	    storePreview(currentFrames[0]);
+	} else if (current != null) {
+	    storePreview(toPImage(current.getFrame(0)));
 	} else {
-	    decoder.read(new BufferedInputStream(new FileInputStream(gifUrl)));
+	    storePreview(share(previewLoads, getLoadKey(false), newPreviewLoad()));
 	}
-
-	BufferedImage frame = decoder.getFrame(0);
-	previewImage = new PImage(frame.getWidth(), frame.getHeight(), PImage.ARGB);
-	System.arraycopy(frame.getRGB(0, 0, frame.getWidth(), frame.getHeight(), null, 0, frame.getWidth()), 0,
-		previewImage.pixels, 0, frame.getWidth() * frame.getHeight());
     }
 
     /**
-     * Loads the GIF.
+     * Loads the GIF. The frames are streamed from the decoder, which only
+     * keeps the last frames, so no decoder is held after loading. If the
+     * compact frame storage is enabled, the frames are stored in compact form.
+     * The frames are loaded without holding the monitor of the GIF and stored
+     * afterwards.
      */
     public void loadGif() throws IOException {
-	decoder = getDecoder();
+	GifDecoder current = decoder;
 
-	if (gifUrl.startsWith("http")) {
-	    URL u = new URL(gifUrl);
-	    HttpURLConnection uc = (HttpURLConnection) u.openConnection();
-	    decoder.read(new BufferedInputStream(uc.getInputStream()));
-	} else {
-	    decoder.read(new BufferedInputStream(new FileInputStream(gifUrl)));
+	if (current == null || compactFrames) {
+	    boolean compact = compactFrames;
+	    storeFrames(share(frameLoads, getLoadKey(compact), newFrameLoad(compact)));
+	    return;
 	}
 
-	int n = decoder.getFrameCount();
+	int n = current.getFrameCount();
 
-	frames = new PImage[n];
+	LoadedFrames loaded = new LoadedFrames();
+	loaded.frames = new PImage[n];
 	int delaySum = 0;
 
 	for (int j = 0; j < n; j++) {
-	    delaySum += decoder.getDelay(j);
-	    BufferedImage frame = decoder.getFrame(j);
-	    frames[j] = new PImage(frame.getWidth(), frame.getHeight(), PImage.ARGB);
-	    System.arraycopy(frame.getRGB(0, 0, frame.getWidth(), frame.getHeight(), null, 0, frame.getWidth()), 0,
-		    frames[j].pixels, 0, frame.getWidth() * frame.getHeight());
+	    delaySum += current.getDelay(j);
+	    loaded.frames[j] = toPImage(current.getFrame(j));
 	}
 
-	delay = delaySum / n;
-	previewImage = frames[0];
+	loaded.delay = delaySum / n;
+	storeFrames(loaded);
+    }
+
+    /**
+     * Loads the frames, unless they are already loaded.
+     */
+    private PImage[] loadFrames() throws IOException {
+	PImage[] current = frames;
+
+	if (current == null) {
+	    loadGif();
+	    current = frames;
+
+	    if (current == null) {
+		current = expandFrames();
+	    }
+	    if (current == null) {
+		throw new IOException("The GIF " + gifUrl + " couldn't be loaded.");
+	    }
+	}
+
+	return current;
+    }
+
+    /**
+     * Creates the load of the frames, which is shared by all GIFs of the same
+     * URL, size and storage.
+     */
+    private Callable<LoadedFrames> newFrameLoad(final boolean compact) {
+	return new Callable<LoadedFrames>() {
+	    @Override
+	    public LoadedFrames call() throws Exception {
+		return streamFrames(compact);
+	    }
+	};
+    }
+
+    /**
+     * Creates the load of the preview image, which is shared by all GIFs of
+     * the same URL and size.
+     */
+    private Callable<PImage> newPreviewLoad() {
+	return new Callable<PImage>() {
+	    @Override
+	    public PImage call() throws Exception {
+		return toPImage(decode(new StreamingGifDecoder()).getFrame(0));
+	    }
+	};
+    }
+
+    private String getLoadKey(boolean compact) {
+	return gifUrl + "@" + targetWidth + "x" + targetHeight + (compact ? "/compact" : "");
+    }
+
+    /**
+     * Runs a load, which is shared with concurrent loads of the same key.
+     */
+    private static <V> V share(SingleFlight<V> loads, String key, Callable<V> load) throws IOException {
+	try {
+	    return loads.execute(key, load);
+	} catch (IOException e) {
+	    throw e;
+	} catch (Exception e) {
+	    throw new IOException(e);
+	}
+    }
+
+    private synchronized GifDecoder storeDecoder(GifDecoder loaded) {
+	if (decoder == null) {
+	    decoder = loaded;
+	}
+	return decoder;
+    }
+
+    private synchronized PImage storePreview(PImage loaded) {
+	previewImage = loaded;
+	PixelCache.put(this);
+	return loaded;
+    }
+
+    private synchronized void storeFrames(LoadedFrames loaded) {
+	delay = loaded.delay;
+
+	if (loaded.indexedFrames != null) {
+	    indexedFrames = loaded.indexedFrames;
+	    previewImage = loaded.indexedFrames[0].toPImage();
+	} else {
+	    frames = loaded.frames;
+	    previewImage = loaded.frames[0];
+	}
+
+	PixelCache.put(this);
+    }
+
+    /**
+     * Streams the frames of the GIF either into images or compact frames.
+     */
+    private LoadedFrames streamFrames(boolean compact) throws IOException {
+	StreamingGifDecoder streamingDecoder = new StreamingGifDecoder();
+	List<PImage> loadedFrames = new ArrayList<PImage>();
+	List<IndexedFrame> loadedIndexedFrames = new ArrayList<IndexedFrame>();
+	int count = 0;
+	int delaySum = 0;
+
+	try {
+	    if (!streamingDecoder.open(openStream())) {
+		throw new IOException("The GIF " + gifUrl + " couldn't be opened.");
+	    }
+
+	    BufferedImage frame;
+	    while ((frame = streamingDecoder.nextFrame()) != null) {
+		delaySum += streamingDecoder.getDelay(count);
+		count++;
+
+		if (compact) {
+		    int subsampling = getSubsampling(frame);
+		    int width = FrameConverter.getSubsampledSize(frame.getWidth(), subsampling);
+		    int height = FrameConverter.getSubsampledSize(frame.getHeight(), subsampling);
+
+		    loadedIndexedFrames.add(IndexedFrame.create(FrameConverter.getPixels(frame, subsampling), width,
+			    height));
+		} else {
+		    loadedFrames.add(toPImage(frame));
+		}
+	    }
+
+	    if (!streamingDecoder.isFinished() || count == 0) {
+		throw new IOException("The GIF " + gifUrl + " couldn't be decoded.");
+	    }
+	} finally {
+	    streamingDecoder.close();
+	}
+
+	LoadedFrames loaded = new LoadedFrames();
+	loaded.delay = delaySum / count;
+
+	if (compact) {
+	    loaded.indexedFrames = loadedIndexedFrames.toArray(new IndexedFrame[count]);
+	} else {
+	    loaded.frames = loadedFrames.toArray(new PImage[count]);
+	}
+
+	return loaded;
+    }
+
+    /**
+     * Expands a compact frame into the reused frame image. Missing frames are
+     * loaded without holding the monitor of the GIF.
+     */
+    private PImage expandFrame(int index) throws IOException {
+	IndexedFrame[] current = indexedFrames;
+
+	if (current == null) {
+	    LoadedFrames loaded = share(frameLoads, getLoadKey(true), newFrameLoad(true));
+	    storeFrames(loaded);
+	    current = loaded.indexedFrames;
+	} else {
+	    PixelCache.touch(this);
+	}
+
+	return expandInto(current, index);
+    }
+
+    /**
+     * Expands a compact frame into the reused frame image.
+     */
+    private synchronized PImage expandInto(IndexedFrame[] current, int index) {
+	if (index < 0 || index >= current.length) {
+	    return null;
+	}
+
+	IndexedFrame frame = current[index];
+	if (frameImage == null || frameImage.width != frame.getWidth() || frameImage.height != frame.getHeight()) {
+	    frameImage = new PImage(frame.getWidth(), frame.getHeight(), PImage.ARGB);
+	    frameImageIndex = -1;
+	}
+
+	if (frameImageIndex != index) {
+	    frame.expandInto(frameImage);
+	    frameImageIndex = index;
+	}
+
+	return frameImage;
+    }
+
+    /**
+     * Expands all compact frames into images.
+     */
+    private synchronized PImage[] expandFrames() {
+	IndexedFrame[] current = indexedFrames;
+
+	if (current == null) {
+	    return frames;
+	}
+
+	PImage[] expandedFrames = new PImage[current.length];
+	for (int i = 0; i < current.length; i++) {
+	    expandedFrames[i] = current[i].toPImage();
+	}
+	frames = expandedFrames;
+
+	PixelCache.put(this);
+
+	return expandedFrames;
+    }
+
+    /**
+     * Returns a level of the pyramid and updates the size of the GIF within
+     * the PixelCache, if a new level was generated.
+     */
+    private PImage[] getVariant(ImagePyramid pyramid, int width, int height) {
+	long size = pyramid.getSize();
+	PImage[] variant = pyramid.getFrames(width, height);
+
+	if (pyramid.getSize() != size) {
+	    PixelCache.put(this);
+	}
+
+	return variant;
+    }
+
+    /**
+     * Returns the subsampling factor of a frame for the target size.
+     */
+    int getSubsampling(BufferedImage frame) {
+	return ImageDecoder.getSubsampling(frame.getWidth(), frame.getHeight(), targetWidth, targetHeight);
+    }
+
+    /**
+     * Converts a frame into a PImage of the target size.
+     */
+    private PImage toPImage(BufferedImage frame) {
+	return FrameConverter.toPImage(frame, getSubsampling(frame));
+    }
+
+    /**
+     * Returns the player used by getFrame.
+     */
+    private GifPlayer getPlayer() {
+	synchronized (playerLock) {
+	    if (player == null) {
+		player = new GifPlayer(this, GifPlayer.DEFAULT_BUFFER_SIZE);
+	    }
+	    return player;
+	}
+    }
+
+    /**
+     * Closes the player used by getFrame.
+     */
+    private void closePlayer() {
+	synchronized (playerLock) {
+	    if (player != null) {
+		player.close();
+		player = null;
+	    }
+	}
+    }
+
+    /**
+     * Reads the GIF with the given decoder.
+     */
+    private GifDecoder decode(GifDecoder gifDecoder) throws IOException {
+	int status = gifDecoder.read(openStream());
+
+	if (status != GifDecoder.STATUS_OK || gifDecoder.getFrameCount() == 0) {
+	    throw new IOException("The GIF " + gifUrl + " couldn't be decoded (status " + status + ").");
+	}
+
+	return gifDecoder;
+    }
+
+    /**
+     * Opens the GIF file. Remote GIFs are loaded through the DiskCache, if the
+     * cache is enabled.
+     */
+    BufferedInputStream openStream() throws IOException {
+	String location = DiskCache.resolve(gifUrl);
+
+	if (location.startsWith("http")) {
+	    URL u = new URL(location);
+	    HttpURLConnection uc = (HttpURLConnection) u.openConnection();
+	    return new BufferedInputStream(uc.getInputStream());
+	} else {
+	    return new BufferedInputStream(new FileInputStream(location));
+	}
     }
 
     @Override
@@ -267,4 +953,14 @@ public class GifData {
 
 	return s;
     }
+
+    /**
+     * The frames of a GIF, which were loaded by a shared load.
+     */
+    private static class LoadedFrames {
+
+	private PImage[] frames;
+	private IndexedFrame[] indexedFrames;
+	private int delay;
+    }
 }
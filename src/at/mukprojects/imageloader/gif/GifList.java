@@ -17,11 +17,21 @@
 
 package at.mukprojects.imageloader.gif;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
 
+import at.mukprojects.imageloader.list.DecodedSizeCounter;
+import at.mukprojects.imageloader.list.EvictionPolicy;
+import at.mukprojects.imageloader.list.IndexedStore;
+import at.mukprojects.imageloader.list.ListListener;
+import at.mukprojects.imageloader.list.ListNotifier;
+import at.mukprojects.imageloader.list.TimestampIndex;
+import processing.core.PApplet;
+
 /**
  * The ImageList holds all loaded GIFs.
  * 
@@ -30,13 +40,50 @@ import java.util.concurrent.ConcurrentHashMap;
 public class GifList {
 
     private ConcurrentHashMap<String, GifData> images;
+    private IndexedStore<GifData> indexedImages;
+    private TimestampIndex<GifData> recentImages;
     private Random random;
 
+    private int maxEntries;
+    private long maxDecodedSize;
+    private EvictionPolicy<GifData> evictionPolicy;
+    private DecodedSizeCounter<GifData> decodedSize;
+    private ListNotifier<GifData> notifier;
+
     /**
      * Constructs a new ImageList.
      */
     public GifList() {
+	this(0, 0, null);
+    }
+
+    /**
+     * Constructs a new bounded GifList. Once one of the limits is exceeded, the
+     * eviction policy selects the entries which get removed.
+     * 
+     * @param maxEntries
+     *            The maximum number of entries. A value of zero or less
+     *            disables the limit.
+     * @param maxDecodedSize
+     *            The maximum number of bytes, which may be occupied by decoded
+     *            pixels. A value of zero or less disables the limit.
+     * @param evictionPolicy
+     *            The eviction policy. Every list needs its own policy instance.
+     */
+    public GifList(int maxEntries, long maxDecodedSize, EvictionPolicy<GifData> evictionPolicy) {
+	if ((maxEntries > 0 || maxDecodedSize > 0) && evictionPolicy == null) {
+	    throw new IllegalArgumentException("A bounded list needs an eviction policy.");
+	}
+
+	this.maxEntries = maxEntries;
+	this.maxDecodedSize = maxDecodedSize;
+	this.evictionPolicy = evictionPolicy;
+	decodedSize = new DecodedSizeCounter<GifData>();
+	notifier = new ListNotifier<GifData>();
+
 	images = new ConcurrentHashMap<String, GifData>();
+	indexedImages = new IndexedStore<GifData>();
+	recentImages = new TimestampIndex<GifData>();
 	random = new Random();
     }
 
@@ -44,7 +91,20 @@ public class GifList {
      * Clears the list.
      */
     public void clearList() {
-	images.clear();
+	synchronized (this) {
+	    images.clear();
+	    indexedImages.clear();
+	    recentImages.clear();
+	    decodedSize.clear();
+
+	    if (evictionPolicy != null) {
+		evictionPolicy.cleared();
+	    }
+
+	    notifier.cleared();
+	}
+
+	notifier.dispatch();
     }
 
     /**
@@ -55,9 +115,122 @@ public class GifList {
      *            The image, which should be added to the list.
      */
     public void addImage(GifData gif) {
-	if (!images.containsKey(gif.getId())) {
-	    images.put(gif.getId(), gif);
+	synchronized (this) {
+	    if (images.putIfAbsent(gif.getId(), gif) != null) {
+		return;
+	    }
+
+	    indexedImages.add(gif);
+	    recentImages.add(gif);
+	    decodedSize.add(gif);
+
+	    notifier.added(gif);
+
+	    if (evictionPolicy != null) {
+		evictionPolicy.added(gif);
+		notifier.evicted(evict());
+	    }
+	}
+
+	notifier.dispatch();
+    }
+
+    /**
+     * Removes the image with the given identifier from the list.
+     * 
+     * @param key
+     *            The image identifier.
+     * @return The removed image or null if the list has no image with the
+     *         given identifier.
+     */
+    public GifData removeImage(String key) {
+	GifData gif;
+
+	synchronized (this) {
+	    gif = images.remove(key);
+
+	    if (gif == null) {
+		return null;
+	    }
+
+	    indexedImages.remove(gif);
+	    recentImages.remove(gif);
+	    decodedSize.remove(gif);
+
+	    if (evictionPolicy != null) {
+		evictionPolicy.removed(gif);
+	    }
+
+	    notifier.removed(gif);
+	}
+
+	notifier.dispatch();
+	return gif;
+    }
+
+    /**
+     * Enforces the limits of a bounded list. Lazy images occupy memory once
+     * they are loaded, so the decoded size of the list can grow after the
+     * images were added. The list keeps a running total of the decoded size,
+     * which gets refreshed whenever an image is read. Trimming refreshes the
+     * sizes of all images first.
+     */
+    public void trim() {
+	if (evictionPolicy == null) {
+	    return;
+	}
+
+	synchronized (this) {
+	    for (int i = 0; i < indexedImages.size(); i++) {
+		GifData gif = indexedImages.get(i);
+
+		if (gif != null) {
+		    decodedSize.update(gif);
+		}
+	    }
+
+	    notifier.evicted(evict());
 	}
+
+	notifier.dispatch();
+    }
+
+    /**
+     * Adds a listener, which gets notified immediately whenever an image gets
+     * added, evicted or removed or the list gets cleared. The listener gets
+     * called by a thread, which changed the list, and sees the changes in
+     * their order.
+     * 
+     * @param listener
+     *            The listener.
+     */
+    public void addListener(ListListener<GifData> listener) {
+	notifier.addListener(listener);
+    }
+
+    /**
+     * Adds a listener, which gets notified once per frame on the animation
+     * thread of the given applet, right before draw() gets called. The events
+     * of a frame are coalesced, so an image, which was added and evicted or
+     * removed during the same frame, isn't reported.
+     * 
+     * @param listener
+     *            The listener.
+     * @param applet
+     *            The Processing PApplet.
+     */
+    public void addListener(ListListener<GifData> listener, PApplet applet) {
+	notifier.addListener(listener, applet);
+    }
+
+    /**
+     * Removes a listener.
+     * 
+     * @param listener
+     *            The listener.
+     */
+    public void removeListener(ListListener<GifData> listener) {
+	notifier.removeListener(listener);
     }
 
     /**
@@ -87,6 +260,18 @@ public class GifList {
 	return images.values();
     }
 
+    /**
+     * Indicates if the list has a GIF with the given identifier. Unlike
+     * getImage, the check doesn't count as an access of the GIF.
+     * 
+     * @param key
+     *            The GIF identifier.
+     * @return True if the list has the GIF.
+     */
+    public boolean containsImage(String key) {
+	return images.containsKey(key);
+    }
+
     /**
      * Returns the image with a given identifier.
      * 
@@ -95,7 +280,7 @@ public class GifList {
      * @return The image.
      */
     public GifData getImage(String key) {
-	return images.get(key);
+	return accessed(images.get(key));
     }
 
     /**
@@ -104,11 +289,7 @@ public class GifList {
      * @return A random image.
      */
     public GifData getRandom() {
-	if (images.isEmpty()) {
-	    return null;
-	} else {
-	    return getImage(random.nextInt(images.size()));
-	}
+	return accessed(indexedImages.getRandom(random));
     }
 
     /**
@@ -117,31 +298,81 @@ public class GifList {
      * @return The last added image.
      */
     public GifData getMostRecentImage() {
-	GifData outputImg = null;
+	return recentImages.getMostRecent();
+    }
 
-	for (GifData img : images.values()) {
-	    if (outputImg == null) {
-		outputImg = img;
-	    }
+    /**
+     * Gets the n most recent images, starting with the newest one.
+     * 
+     * @param n
+     *            The maximum number of images.
+     * @return A list of the most recent images.
+     */
+    public List<GifData> getMostRecent(int n) {
+	return recentImages.getMostRecent(n);
+    }
+
+    /**
+     * Gets all images with a timestamp equal to or greater than the given
+     * timestamp, starting with the oldest one.
+     * 
+     * @param timestamp
+     *            The timestamp.
+     * @return A list of all images since the given timestamp.
+     */
+    public List<GifData> getSince(long timestamp) {
+	return recentImages.getSince(timestamp);
+    }
 
-	    if (img.getTimestamp() > outputImg.getTimestamp()) {
-		outputImg = img;
+    /**
+     * Gets the image of the given index or null if the index has no image.
+     * 
+     * @param index
+     *            The index.
+     * @return The image.
+     */
+    public GifData getImage(int index) {
+	return accessed(indexedImages.get(index));
+    }
+
+    private GifData accessed(GifData gif) {
+	if (gif != null && evictionPolicy != null) {
+	    evictionPolicy.accessed(gif);
+
+	    if (maxDecodedSize > 0) {
+		decodedSize.update(gif);
 	    }
 	}
-
-	return outputImg;
+	return gif;
     }
 
-    private GifData getImage(int index) {
-	int counter = 0;
+    private List<GifData> evict() {
+	List<GifData> evicted = new ArrayList<GifData>();
 
-	for (GifData img : images.values()) {
-	    if (counter == index) {
-		return img;
+	while (true) {
+	    GifData victim;
+
+	    if (maxEntries > 0 && images.size() > maxEntries) {
+		victim = evictionPolicy.selectVictim();
+	    } else if (maxDecodedSize > 0 && decodedSize.getSize() > maxDecodedSize) {
+		victim = evictionPolicy.selectDecodedVictim();
+	    } else {
+		break;
+	    }
+
+	    if (victim == null) {
+		break;
 	    }
-	    counter++;
+
+	    images.remove(victim.getId());
+	    indexedImages.remove(victim);
+	    recentImages.remove(victim);
+	    decodedSize.remove(victim);
+	    evictionPolicy.removed(victim);
+
+	    evicted.add(victim);
 	}
 
-	return null;
+	return evicted;
     }
 }
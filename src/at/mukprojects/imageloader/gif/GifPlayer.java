@@ -0,0 +1,526 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.gif;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import processing.core.PImage;
+
+/**
+ * Plays a GIF without decoding all frames up front. The frames are decoded
+ * from the stream on demand and stored in a ring buffer of a fixed size, so
+ * the memory usage of the player doesn't depend on the length of the GIF.
+ * The images of the ring buffer are recycled, a frame returned by the player
+ * is only valid until it leaves the buffer.
+ * 
+ * Frames decoded ahead by a background thread are decoded outside the monitor
+ * of the player and published one by one, so frames which are already
+ * buffered can be played while the decoding is running.
+ * 
+ * Every time the GIF is played from the beginning, the stream is opened
+ * again. The stream is opened before the locks of the player are taken, so
+ * opening a slow stream doesn't block the buffered frames. Remote GIFs should
+ * still be used together with the DiskCache.
+ * 
+ * @author Mathias Markl
+ */
+public class GifPlayer {
+
+    /**
+     * The default number of frames held by a player.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 4;
+
+    private GifData gif;
+
+    private ReentrantLock decodeLock;
+    private volatile boolean closeRequested;
+    private int[] scratch;
+    private BufferedInputStream prepared;
+
+    private PImage[] buffer;
+    private int[] delays;
+
+    private StreamingGifDecoder decoder;
+    private int firstFrame;
+    private int decodedFrames;
+    private int frameCount;
+    private int currentFrame;
+
+    /**
+     * Constructs a new GifPlayer.
+     * 
+     * @param gif
+     *            The GIF, which should be played.
+     * @param bufferSize
+     *            The number of frames held by the player. The size must be at
+     *            least two.
+     */
+    public GifPlayer(GifData gif, int bufferSize) {
+	if (bufferSize < 2) {
+	    throw new IllegalArgumentException("The buffer size must be at least two.");
+	}
+
+	this.gif = gif;
+	this.decodeLock = new ReentrantLock();
+	this.buffer = new PImage[bufferSize];
+	this.delays = new int[bufferSize];
+	this.frameCount = -1;
+	this.currentFrame = -1;
+    }
+
+    /**
+     * Returns the frame of the given index. Frames within the buffer are
+     * returned without decoding them again, earlier frames restart the
+     * stream.
+     * 
+     * @param index
+     *            The frame index.
+     * @return The frame or null if the GIF has no frame of the given index.
+     * @throws IOException
+     *             If the GIF couldn't be read.
+     */
+    public PImage getFrame(int index) throws IOException {
+	synchronized (this) {
+	    if (index < 0 || (frameCount >= 0 && index >= frameCount)) {
+		return null;
+	    }
+	    if (index >= firstFrame && index < decodedFrames) {
+		return buffer[index % buffer.length];
+	    }
+	}
+
+	BufferedInputStream stream = prepare(index);
+
+	lockDecoder(stream);
+
+	try {
+	    synchronized (this) {
+		return decodeFrame(index);
+	    }
+	} finally {
+	    unlockDecoder();
+	}
+    }
+
+    /**
+     * Advances the player to the next frame and returns it. After the last
+     * frame the player starts with the first frame again.
+     * 
+     * @return The next frame.
+     * @throws IOException
+     *             If the GIF couldn't be read.
+     */
+    public PImage nextFrame() throws IOException {
+	synchronized (this) {
+	    int next = currentFrame + 1;
+
+	    if ((frameCount < 0 || next < frameCount) && next >= firstFrame && next < decodedFrames) {
+		currentFrame = next;
+		return buffer[next % buffer.length];
+	    }
+	}
+
+	PImage frame = decodeNext();
+
+	if (frame == null) {
+	    /*
+	     * The stream ended, so the number of frames is known now and the
+	     * next frame is the first one.
+	     */
+	    frame = decodeNext();
+	}
+
+	if (frame == null) {
+	    throw new IOException("The GIF " + gif.getGifUrl() + " has no frames.");
+	}
+
+	return frame;
+    }
+
+    /**
+     * Decodes the frames after the current frame until the buffer is full.
+     * The method can be called from a background thread, so the following
+     * calls of nextFrame don't need to decode. The frames are decoded without
+     * holding the monitor of the player.
+     * 
+     * @throws IOException
+     *             If the GIF couldn't be read.
+     */
+    public void decodeAhead() throws IOException {
+	int first;
+
+	synchronized (this) {
+	    first = decodedFrames;
+	}
+
+	BufferedInputStream stream = prepare(first);
+
+	lockDecoder(stream);
+
+	try {
+	    decodeBuffer();
+	} finally {
+	    unlockDecoder();
+	}
+    }
+
+    /**
+     * Returns the index of the current frame or -1 if no frame has been
+     * played yet.
+     * 
+     * @return The index of the current frame.
+     */
+    public synchronized int getCurrentFrame() {
+	return currentFrame;
+    }
+
+    /**
+     * Returns the delay of the current frame in milliseconds.
+     * 
+     * @return The delay or -1 if no frame has been played yet.
+     */
+    public synchronized int getDelay() {
+	if (currentFrame < 0) {
+	    return -1;
+	}
+	return delays[currentFrame % buffer.length];
+    }
+
+    /**
+     * Returns the number of frames. The number is known after the GIF has been
+     * played once, before that the method returns -1.
+     * 
+     * @return The number of frames.
+     */
+    public synchronized int getFrameCount() {
+	return frameCount;
+    }
+
+    /**
+     * Closes the stream of the player. The buffered frames remain valid. If a
+     * frame is being decoded, the stream gets closed by the decoding thread as
+     * soon as it is done, so the method doesn't block.
+     */
+    public void close() {
+	closeRequested = true;
+	closeIfRequested();
+    }
+
+    /**
+     * Decodes the frame after the current frame and advances the player to
+     * it.
+     * 
+     * @return The frame or null if the stream ended before the frame.
+     */
+    private PImage decodeNext() throws IOException {
+	int next;
+
+	synchronized (this) {
+	    next = getNextIndex();
+	}
+
+	BufferedInputStream stream = prepare(next);
+
+	lockDecoder(stream);
+
+	try {
+	    synchronized (this) {
+		next = getNextIndex();
+		PImage frame = decodeFrame(next);
+
+		if (frame != null) {
+		    currentFrame = next;
+		}
+		return frame;
+	    }
+	} finally {
+	    unlockDecoder();
+	}
+    }
+
+    /**
+     * Returns the index of the frame after the current frame. The caller must
+     * hold the monitor.
+     */
+    private int getNextIndex() {
+	int next = currentFrame + 1;
+
+	if (frameCount >= 0 && next >= frameCount) {
+	    return 0;
+	}
+	return next;
+    }
+
+    /**
+     * Decodes the frames after the current frame until the buffer is full.
+     * The frames are decoded outside the monitor. The caller must hold the
+     * decode lock.
+     */
+    private void decodeBuffer() throws IOException {
+	StreamingGifDecoder current;
+	int next;
+	int last;
+
+	synchronized (this) {
+	    last = Math.max(currentFrame, 0) + buffer.length - 1;
+
+	    if (frameCount >= 0) {
+		last = Math.min(last, frameCount - 1);
+	    }
+
+	    if (last < decodedFrames) {
+		return;
+	    }
+
+	    if (decoder == null) {
+		restart();
+	    }
+
+	    current = decoder;
+	    next = decodedFrames;
+	}
+
+	for (; next <= last; next++) {
+	    BufferedImage image = current.nextFrame();
+
+	    if (image == null) {
+		synchronized (this) {
+		    finish(current.isFinished());
+		}
+		return;
+	    }
+
+	    int subsampling = gif.getSubsampling(image);
+	    int[] pixels = convert(image, subsampling);
+	    int delay = current.getDelay(next);
+
+	    synchronized (this) {
+		store(pixels, image, subsampling, delay);
+	    }
+	}
+    }
+
+    /**
+     * Opens the stream of the GIF, if the frame of the given index can only
+     * be reached by playing the GIF from the beginning. The stream is opened
+     * without holding a lock of the player.
+     * 
+     * @return The stream or null if no restart is needed.
+     */
+    private BufferedInputStream prepare(int index) throws IOException {
+	synchronized (this) {
+	    if (index < 0 || (frameCount >= 0 && index >= frameCount)) {
+		return null;
+	    }
+	    if (index >= firstFrame && (index < decodedFrames || decoder != null)) {
+		return null;
+	    }
+	}
+
+	return gif.openStream();
+    }
+
+    /**
+     * Takes the decode lock and hands the prepared stream to the player.
+     */
+    private void lockDecoder(BufferedInputStream stream) {
+	decodeLock.lock();
+	prepared = stream;
+    }
+
+    /**
+     * Releases the decode lock. A close, which was requested while the lock
+     * was held, is carried out afterwards.
+     */
+    private void unlockDecoder() {
+	closePrepared();
+	decodeLock.unlock();
+	closeIfRequested();
+    }
+
+    /**
+     * Closes the decoder, if a close was requested and no frame is being
+     * decoded. Otherwise the thread, which holds the decode lock, closes the
+     * decoder once it releases the lock.
+     */
+    private void closeIfRequested() {
+	if (closeRequested && decodeLock.tryLock()) {
+	    try {
+		synchronized (this) {
+		    if (closeRequested) {
+			closeRequested = false;
+			closeDecoder();
+		    }
+		}
+	    } finally {
+		decodeLock.unlock();
+	    }
+	}
+    }
+
+    /**
+     * Closes the prepared stream, if the player didn't need it. The caller
+     * must hold the decode lock.
+     */
+    private void closePrepared() {
+	if (prepared != null) {
+	    try {
+		prepared.close();
+	    } catch (IOException e) {
+	    }
+	    prepared = null;
+	}
+    }
+
+    /**
+     * Returns the frame of the given index and decodes it, if it isn't
+     * buffered. The caller must hold the decode lock and the monitor.
+     */
+    private PImage decodeFrame(int index) throws IOException {
+	if (index < 0 || (frameCount >= 0 && index >= frameCount)) {
+	    return null;
+	}
+
+	if (!decodeUntil(index)) {
+	    return null;
+	}
+
+	return buffer[index % buffer.length];
+    }
+
+    /**
+     * Decodes the stream until the frame of the given index is buffered.
+     */
+    private boolean decodeUntil(int index) throws IOException {
+	if (index >= firstFrame && index < decodedFrames) {
+	    return true;
+	}
+
+	if (decoder == null || index < firstFrame) {
+	    restart();
+	}
+
+	while (decodedFrames <= index) {
+	    BufferedImage image = decoder.nextFrame();
+
+	    if (image == null) {
+		finish(decoder.isFinished());
+		return false;
+	    }
+
+	    int subsampling = gif.getSubsampling(image);
+	    store(convert(image, subsampling), image, subsampling, decoder.getDelay(decodedFrames));
+	}
+
+	return true;
+    }
+
+    /**
+     * Closes the stream after the last frame. If the stream ended before the
+     * GIF was finished, the GIF is broken.
+     */
+    private void finish(boolean finished) throws IOException {
+	closeDecoder();
+
+	if (!finished) {
+	    throw new IOException("The GIF " + gif.getGifUrl() + " couldn't be decoded.");
+	}
+
+	frameCount = decodedFrames;
+    }
+
+    /**
+     * Converts a decoded frame into the scratch pixels of the player. The
+     * caller must hold the decode lock.
+     */
+    private int[] convert(BufferedImage image, int subsampling) {
+	int width = FrameConverter.getSubsampledSize(image.getWidth(), subsampling);
+	int height = FrameConverter.getSubsampledSize(image.getHeight(), subsampling);
+
+	if (scratch == null || scratch.length < width * height) {
+	    scratch = new int[width * height];
+	}
+
+	FrameConverter.copyPixels(image, subsampling, scratch);
+	return scratch;
+    }
+
+    /**
+     * Stores the converted pixels of a frame in the buffer and recycles the
+     * oldest frame, if the buffer is full.
+     */
+    private void store(int[] pixels, BufferedImage image, int subsampling, int delay) {
+	int slot = decodedFrames % buffer.length;
+	int width = FrameConverter.getSubsampledSize(image.getWidth(), subsampling);
+	int height = FrameConverter.getSubsampledSize(image.getHeight(), subsampling);
+
+	PImage frame = buffer[slot];
+	if (frame == null || frame.width != width || frame.height != height) {
+	    frame = new PImage(width, height, PImage.ARGB);
+	    buffer[slot] = frame;
+	}
+
+	System.arraycopy(pixels, 0, frame.pixels, 0, width * height);
+	frame.updatePixels();
+	delays[slot] = delay;
+
+	decodedFrames++;
+	if (decodedFrames - firstFrame > buffer.length) {
+	    firstFrame++;
+	}
+    }
+
+    /**
+     * Opens the stream of the GIF again. The stream, which was prepared
+     * before the locks were taken, is used if there is one. The caller must
+     * hold the decode lock and the monitor.
+     */
+    private void restart() throws IOException {
+	closeDecoder();
+
+	BufferedInputStream stream = prepared;
+	prepared = null;
+
+	if (stream == null) {
+	    stream = gif.openStream();
+	}
+
+	decoder = new StreamingGifDecoder();
+	firstFrame = 0;
+	decodedFrames = 0;
+
+	if (!decoder.open(stream)) {
+	    closeDecoder();
+	    throw new IOException("The GIF " + gif.getGifUrl() + " couldn't be opened.");
+	}
+    }
+
+    /**
+     * Closes the stream of the player.
+     */
+    private void closeDecoder() {
+	if (decoder != null) {
+	    decoder.close();
+	    decoder = null;
+	}
+    }
+}
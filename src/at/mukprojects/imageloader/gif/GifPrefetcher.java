@@ -0,0 +1,80 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.gif;
+
+import at.mukprojects.imageloader.concurrent.DecodePriority;
+import at.mukprojects.imageloader.concurrent.DecodeRequest;
+import at.mukprojects.imageloader.list.PrefetchOrder;
+import at.mukprojects.imageloader.list.Prefetcher;
+
+/**
+ * The GifPrefetcher picks the next GIFs of a GifList in advance and loads
+ * them in the background. The prefetcher listens to the list until it gets
+ * closed.
+ * 
+ * @author Mathias Markl
+ */
+public class GifPrefetcher extends Prefetcher<GifData> {
+
+    private GifList list;
+
+    /**
+     * Constructs a new GifPrefetcher.
+     * 
+     * @param list
+     *            The list, which provides the GIFs.
+     * @param ahead
+     *            The number of GIFs, which are picked in advance.
+     * @param maxDecodedSize
+     *            The maximum number of bytes, which may be occupied by
+     *            prefetched pixels. A value of zero or less disables the
+     *            limit.
+     * @param order
+     *            The order of the picks.
+     */
+    public GifPrefetcher(GifList list, int ahead, long maxDecodedSize, PrefetchOrder order) {
+	super(ahead, maxDecodedSize, order);
+	this.list = list;
+
+	list.addListener(this);
+    }
+
+    /**
+     * Stops listening to the list. The prefetcher shouldn't be used
+     * afterwards.
+     */
+    public void close() {
+	list.removeListener(this);
+	reset();
+    }
+
+    @Override
+    protected int size() {
+	return list.size();
+    }
+
+    @Override
+    protected GifData get(int index) {
+	return list.getImage(index);
+    }
+
+    @Override
+    protected DecodeRequest<?> load(GifData entry, DecodePriority priority) {
+	return entry.requestGifFrames(priority);
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.gif;
+
+import java.util.Arrays;
+
+import processing.core.PImage;
+
+/**
+ * A compact GIF frame, which stores one byte per pixel and a palette of at
+ * most 256 colors. Frames with more colors, which can occur after the
+ * composition of several images, keep their ARGB pixels.
+ * 
+ * @author Mathias Markl
+ */
+public class IndexedFrame {
+
+    private static final int MAX_COLORS = 256;
+    private static final int TABLE_SIZE = 1024;
+
+    private int width;
+    private int height;
+
+    private byte[] indices;
+    private int[] palette;
+    private int[] pixels;
+
+    private IndexedFrame(int width, int height, byte[] indices, int[] palette, int[] pixels) {
+	this.width = width;
+	this.height = height;
+	this.indices = indices;
+	this.palette = palette;
+	this.pixels = pixels;
+    }
+
+    /**
+     * Creates a compact frame from ARGB pixels.
+     * 
+     * @param argb
+     *            The ARGB pixels. The array isn't used by the frame.
+     * @param width
+     *            The frame width.
+     * @param height
+     *            The frame height.
+     * @return The frame.
+     */
+    public static IndexedFrame create(int[] argb, int width, int height) {
+	int length = width * height;
+
+	int[] colors = new int[MAX_COLORS];
+	int[] keys = new int[TABLE_SIZE];
+	int[] slots = new int[TABLE_SIZE];
+	int colorCount = 0;
+
+	byte[] indices = new byte[length];
+	int lastColor = 0;
+	int lastIndex = -1;
+
+	for (int i = 0; i < length; i++) {
+	    int color = argb[i];
+
+	    if (color != lastColor || lastIndex < 0) {
+		int hash = (color * 0x9E3779B9) >>> 22;
+
+		while (slots[hash] != 0 && keys[hash] != color) {
+		    hash = (hash + 1) & (TABLE_SIZE - 1);
+		}
+
+		if (slots[hash] == 0) {
+		    if (colorCount == MAX_COLORS) {
+			return new IndexedFrame(width, height, null, null, Arrays.copyOf(argb, length));
+		    }
+
+		    colors[colorCount] = color;
+		    keys[hash] = color;
+		    colorCount++;
+		    slots[hash] = colorCount;
+		}
+
+		lastColor = color;
+		lastIndex = slots[hash] - 1;
+	    }
+
+	    indices[i] = (byte) lastIndex;
+	}
+
+	return new IndexedFrame(width, height, indices, Arrays.copyOf(colors, colorCount), null);
+    }
+
+    /**
+     * Gets the frame width.
+     * 
+     * @return The width.
+     */
+    public int getWidth() {
+	return width;
+    }
+
+    /**
+     * Gets the frame height.
+     * 
+     * @return The height.
+     */
+    public int getHeight() {
+	return height;
+    }
+
+    /**
+     * Returns true if the frame is stored with a palette.
+     * 
+     * @return True if the frame is indexed.
+     */
+    public boolean isIndexed() {
+	return indices != null;
+    }
+
+    /**
+     * Gets the memory used by the frame in bytes.
+     * 
+     * @return The size of the frame.
+     */
+    public long getSize() {
+	if (indices != null) {
+	    return indices.length + 4L * palette.length;
+	}
+	return 4L * pixels.length;
+    }
+
+    /**
+     * Expands the frame into a new ARGB image.
+     * 
+     * @return The image.
+     */
+    public PImage toPImage() {
+	PImage image = new PImage(width, height, PImage.ARGB);
+	expandInto(image);
+	return image;
+    }
+
+    /**
+     * Expands the frame into the pixels of the given image. The image must
+     * have the size of the frame.
+     * 
+     * @param image
+     *            The target image.
+     */
+    public void expandInto(PImage image) {
+	int[] target = image.pixels;
+
+	if (indices != null) {
+	    for (int i = 0; i < indices.length; i++) {
+		target[i] = palette[indices[i] & 0xFF];
+	    }
+	} else {
+	    System.arraycopy(pixels, 0, target, 0, pixels.length);
+	}
+
+	image.updatePixels();
+    }
+}
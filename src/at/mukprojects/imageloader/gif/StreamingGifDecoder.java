@@ -0,0 +1,167 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.gif;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+
+import gifAnimation.GifDecoder;
+
+/**
+ * A GIF decoder which reads the stream one image at a time. The read method
+ * stops after the first image, which is used to build preview images without
+ * decoding the whole animation. After the decoder has been opened, the images
+ * can be read with nextFrame. Only the last two frames are kept by the
+ * decoder, so the memory usage doesn't depend on the length of the animation.
+ * 
+ * @author Mathias Markl
+ */
+class StreamingGifDecoder extends GifDecoder {
+
+    private static final int KEPT_FRAMES = 2;
+
+    private int droppedFrames;
+    private boolean finished;
+
+    /**
+     * Opens the stream and reads the GIF header.
+     * 
+     * @param stream
+     *            The GIF stream.
+     * @return True if the header could be read.
+     */
+    public boolean open(BufferedInputStream stream) {
+	init();
+	droppedFrames = 0;
+	finished = false;
+	in = stream;
+
+	readHeader();
+
+	return !err();
+    }
+
+    /**
+     * Reads the next image of the opened stream.
+     * 
+     * @return The next frame or null if the end of the stream is reached or
+     *         an error occurred.
+     */
+    public BufferedImage nextFrame() {
+	if (finished || !readNextImage()) {
+	    return null;
+	}
+
+	return getFrame(frameCount - 1);
+    }
+
+    /**
+     * Returns true if the end of the stream has been reached without an
+     * error.
+     * 
+     * @return True if the stream has been read completely.
+     */
+    public boolean isFinished() {
+	return finished && !err();
+    }
+
+    /**
+     * Closes the stream.
+     */
+    public void close() {
+	if (in != null) {
+	    try {
+		in.close();
+	    } catch (IOException e) {
+	    }
+	    in = null;
+	}
+    }
+
+    @Override
+    public BufferedImage getFrame(int n) {
+	int index = n - droppedFrames;
+
+	if (index < 0 || index >= frames.size()) {
+	    return null;
+	}
+
+	return super.getFrame(index);
+    }
+
+    @Override
+    public int getDelay(int n) {
+	int index = n - droppedFrames;
+
+	if (index < 0 || index >= frames.size()) {
+	    return -1;
+	}
+
+	return super.getDelay(index);
+    }
+
+    @Override
+    protected void readContents() {
+	readNextImage();
+    }
+
+    /**
+     * Reads the blocks of the stream until an image has been read. The
+     * graphic control extension is needed for the delay and transparency of
+     * the image, all other extensions are skipped.
+     */
+    private boolean readNextImage() {
+	while (!err()) {
+	    int code = read();
+
+	    switch (code) {
+	    case 0x2C:
+		readImage();
+		dropFrames();
+		return !err();
+	    case 0x21:
+		if (read() == 0xF9) {
+		    readGraphicControlExt();
+		} else {
+		    skip();
+		}
+		break;
+	    case 0x3B:
+		finished = true;
+		return false;
+	    case 0x00:
+		break;
+	    default:
+		status = STATUS_FORMAT_ERROR;
+	    }
+	}
+
+	return false;
+    }
+
+    /**
+     * Drops the frames, which aren't needed to dispose the next image.
+     */
+    private void dropFrames() {
+	while (frames.size() > KEPT_FRAMES) {
+	    frames.remove(0);
+	    droppedFrames++;
+	}
+    }
+}
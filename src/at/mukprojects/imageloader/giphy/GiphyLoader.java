@@ -22,6 +22,8 @@ import org.slf4j.LoggerFactory;
 
 import at.mukprojects.giphy4j.Giphy;
 import at.mukprojects.imageloader.GifLoader;
+import at.mukprojects.imageloader.concurrent.LoaderScheduler;
+import at.mukprojects.imageloader.concurrent.TaskHandle;
 import at.mukprojects.imageloader.gif.GifList;
 import processing.core.PApplet;
 
@@ -36,8 +38,7 @@ public class GiphyLoader extends GifLoader {
 
     private String apiKey;
 
-    private Thread thread = null;
-    private GiphyTask runnable = null;
+    private TaskHandle handle = null;
 
     private Giphy giphy4j;
 
@@ -57,18 +58,20 @@ public class GiphyLoader extends GifLoader {
 
     @Override
     public GifList start(String searchParam, GifList gifList, boolean runOnce, long delay, boolean lazyLoad) {
-	if (thread != null) {
+	if (handle != null) {
 	    logger.info("Loader is already started.");
 	    logger.info("The restart method will be used instead.");
 
 	    return restart(searchParam, gifList, runOnce, delay, lazyLoad);
 	} else {
-	    runnable = new GiphyTask(applet, searchParam, gifList, apiKey, giphy4j, runOnce, delay, lazyLoad);
-	    thread = new Thread(runnable, "GiphyTask");
+	    GiphyTask task = new GiphyTask(applet, searchParam, gifList, apiKey, giphy4j, runOnce, delay, lazyLoad);
+	    task.setExecutionMode(executionMode);
+	    task.setTargetSize(targetWidth, targetHeight);
+	    publish(gifList, task);
 
-	    logger.info("Starting Thread: " + thread + "...");
-	    thread.start();
-	    logger.debug(thread + " successfully started.");
+	    logger.info("Starting Task: GiphyTask...");
+	    handle = LoaderScheduler.start(task, "GiphyTask");
+	    logger.debug(handle + " successfully started.");
 
 	    return gifList;
 	}
@@ -76,28 +79,33 @@ public class GiphyLoader extends GifLoader {
 
     @Override
     public GifList restart(String searchParam, GifList gifList, boolean runOnce, long delay, boolean lazyLoad) {
-	logger.info("Stopping the current thread: " + thread + "...");
-	runnable.stop();
-	logger.debug(thread + " successfully stopped.");
+	logger.info("Stopping the current task: " + handle + "...");
+	if (handle != null) {
+	    handle.stop();
+	}
+	logger.debug(handle + " successfully stopped.");
 
-	runnable = new GiphyTask(applet, searchParam, gifList, apiKey, giphy4j, runOnce, delay, lazyLoad);
-	thread = new Thread(runnable, "GiphyTask");
+	GiphyTask task = new GiphyTask(applet, searchParam, gifList, apiKey, giphy4j, runOnce, delay, lazyLoad);
+	task.setExecutionMode(executionMode);
+	task.setTargetSize(targetWidth, targetHeight);
+	publish(gifList, task);
 
-	logger.info("Starting Thread: " + thread + "...");
-	thread.start();
-	logger.debug(thread + " successfully started.");
+	logger.info("Starting Task: GiphyTask...");
+	handle = LoaderScheduler.start(task, "GiphyTask");
+	logger.debug(handle + " successfully started.");
 
 	return gifList;
     }
 
     @Override
     public void stop() {
-	logger.info("Stopping the current thread: " + thread + "...");
+	logger.info("Stopping the current task: " + handle + "...");
 
-	runnable.stop();
-	thread = null;
-	runnable = null;
+	if (handle != null) {
+	    handle.stop();
+	}
 
-	logger.debug(thread + " successfully stopped.");
+	logger.debug(handle + " successfully stopped.");
+	handle = null;
     }
 }
@@ -27,6 +27,7 @@ import at.mukprojects.giphy4j.Giphy;
 import at.mukprojects.giphy4j.entity.giphy.GiphyData;
 import at.mukprojects.giphy4j.entity.search.SearchFeed;
 import at.mukprojects.giphy4j.exception.GiphyException;
+import at.mukprojects.imageloader.concurrent.LoaderTask;
 import at.mukprojects.imageloader.gif.GifData;
 import at.mukprojects.imageloader.gif.GifList;
 import processing.core.PApplet;
@@ -36,7 +37,7 @@ import processing.core.PApplet;
  * 
  * @author Mathias Markl
  */
-public class GiphyTask implements Runnable {
+public class GiphyTask extends LoaderTask {
 
     private static final Logger logger = LoggerFactory.getLogger(GiphyTask.class);
 
@@ -48,10 +49,7 @@ public class GiphyTask implements Runnable {
     private boolean lazyLoad;
     private Giphy giphy;
 
-    private boolean runOnce;
-    private long delay;
-
-    private volatile boolean running;
+    private int offset;
 
     /**
      * Constructs a new GoogleTask.
@@ -76,6 +74,8 @@ public class GiphyTask implements Runnable {
      */
     public GiphyTask(PApplet applet, String searchParam, GifList gifList, String apiKey, Giphy giphy, boolean runOnce,
 	    long delay, boolean lazyLoad) {
+	super(runOnce, delay);
+
 	this.applet = applet;
 	this.searchParam = searchParam;
 	this.gifList = gifList;
@@ -84,67 +84,51 @@ public class GiphyTask implements Runnable {
 	this.lazyLoad = lazyLoad;
 	this.giphy = giphy;
 
-	this.runOnce = runOnce;
-	this.delay = delay;
-
-	running = true;
-    }
-
-    /**
-     * Stops the task.
-     */
-    public void stop() {
-	running = false;
+	this.offset = 0;
     }
 
     @Override
-    public void run() {
-	logger.info("Task is running...");
-
-	for (int i = 0; running; i += 25) {
-	    try {
-		logger.debug("Task loads data.");
-
-		SearchFeed feed = giphy.search(searchParam, 25, i);
-
-		if (feed.getDataList() != null && feed.getDataList().size() > 0) {
-		    for (GiphyData result : feed.getDataList()) {
-			String id = "Giphy#" + result.getId();
-
-			String imgInfo = "";
-			imgInfo += "Slug: " + result.getSlug() + "\n";
-			imgInfo += "Source: " + result.getSource() + "\n";
-			imgInfo += "ImportDatetime: " + result.getImportDatetime();
-
-			long timestamp = new Date().getTime();
-			String imgUrl = result.getImages().getOriginal().getUrl();
-
-			if (!lazyLoad) {
-			    GifData gif = new GifData(id, imgInfo, timestamp, imgUrl, null);
-			    gif.loadGif();
-			    gifList.addImage(gif);
-			} else {
-			    gifList.addImage(new GifData(id, imgInfo, timestamp, imgUrl, null));
-			}
-		    }
-		} else {
-		    logger.warn("No results were found.");
-		}
+    protected void load() throws GiphyException {
+	SearchFeed feed = giphy.search(searchParam, 25, offset);
+
+	if (feed.getDataList() != null && feed.getDataList().size() > 0) {
+	    for (GiphyData result : feed.getDataList()) {
+		String id = "Giphy#" + result.getId();
+
+		String imgInfo = "";
+		imgInfo += "Slug: " + result.getSlug() + "\n";
+		imgInfo += "Source: " + result.getSource() + "\n";
+		imgInfo += "ImportDatetime: " + result.getImportDatetime();
+
+		long timestamp = new Date().getTime();
+		String imgUrl = result.getImages().getOriginal().getUrl();
 
-		if (runOnce) {
-		    logger.debug("Task is finished.");
-		    running = false;
+		GifData gif = new GifData(id, imgInfo, timestamp, imgUrl, null, getTargetWidth(), getTargetHeight());
+
+		if (!lazyLoad) {
+		    download(gif);
 		} else {
-		    logger.debug("Task is delayed...");
-		    Thread.sleep(delay);
+		    gifList.addImage(gif);
 		}
-	    } catch (InterruptedException | GiphyException | IOException e) {
-		logger.error("An error occured. The task will be stopped.", e);
-		running = false;
 	    }
+	} else {
+	    logger.warn("No results were found.");
 	}
 
-	logger.info("Task has stopped.");
+	offset += 25;
     }
 
+    private void download(final GifData gif) {
+	submitDownload(gif.getId(), gif.getGifUrl(), new Runnable() {
+	    @Override
+	    public void run() {
+		try {
+		    gif.loadGif();
+		    gifList.addImage(gif);
+		} catch (IOException e) {
+		    logger.error("The GIF couldn't be loaded: " + gif.getGifUrl(), e);
+		}
+	    }
+	});
+    }
 }
@@ -21,6 +21,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import at.mukprojects.imageloader.ImageLoader;
+import at.mukprojects.imageloader.concurrent.LoaderScheduler;
+import at.mukprojects.imageloader.concurrent.TaskHandle;
 import at.mukprojects.imageloader.image.ImageList;
 import processing.core.PApplet;
 
@@ -41,8 +43,7 @@ public class GoogleLoader extends ImageLoader {
     private String apiKey;
     private String searchEngineId;
 
-    private Thread thread = null;
-    private GoogleTask runnable = null;
+    private TaskHandle handle = null;
 
     /**
      * Constructs a new ImageLoader.
@@ -78,18 +79,21 @@ public class GoogleLoader extends ImageLoader {
 
     @Override
     public ImageList start(String searchParam, ImageList imageList, boolean runOnce, long delay, boolean lazyLoad) {
-	if (thread != null) {
+	if (handle != null) {
 	    logger.info("Loader is already started.");
 	    logger.info("The restart method will be used instead.");
 
 	    return restart(searchParam, imageList, runOnce, delay, lazyLoad);
 	} else {
-	    runnable = new GoogleTask(applet, searchParam, imageList, apiKey, searchEngineId, runOnce, delay, lazyLoad);
-	    thread = new Thread(runnable, "GoogleTask");
+	    GoogleTask task = new GoogleTask(applet, searchParam, imageList, apiKey, searchEngineId, runOnce, delay,
+		    lazyLoad);
+	    task.setExecutionMode(executionMode);
+	    task.setTargetSize(targetWidth, targetHeight);
+	    publish(imageList, task);
 
-	    logger.info("Starting Thread: " + thread + "...");
-	    thread.start();
-	    logger.debug(thread + " successfully started.");
+	    logger.info("Starting Task: GoogleTask...");
+	    handle = LoaderScheduler.start(task, "GoogleTask");
+	    logger.debug(handle + " successfully started.");
 
 	    return imageList;
 	}
@@ -97,28 +101,34 @@ public class GoogleLoader extends ImageLoader {
 
     @Override
     public ImageList restart(String searchParam, ImageList imageList, boolean runOnce, long delay, boolean lazyLoad) {
-	logger.info("Stopping the current thread: " + thread + "...");
-	runnable.stop();
-	logger.debug(thread + " successfully stopped.");
+	logger.info("Stopping the current task: " + handle + "...");
+	if (handle != null) {
+	    handle.stop();
+	}
+	logger.debug(handle + " successfully stopped.");
 
-	runnable = new GoogleTask(applet, searchParam, imageList, apiKey, searchEngineId, runOnce, delay, lazyLoad);
-	thread = new Thread(runnable, "GoogleTask");
+	GoogleTask task = new GoogleTask(applet, searchParam, imageList, apiKey, searchEngineId, runOnce, delay,
+		lazyLoad);
+	task.setExecutionMode(executionMode);
+	task.setTargetSize(targetWidth, targetHeight);
+	publish(imageList, task);
 
-	logger.info("Starting Thread: " + thread + "...");
-	thread.start();
-	logger.debug(thread + " successfully started.");
+	logger.info("Starting Task: GoogleTask...");
+	handle = LoaderScheduler.start(task, "GoogleTask");
+	logger.debug(handle + " successfully started.");
 
 	return imageList;
     }
 
     @Override
     public void stop() {
-	logger.info("Stopping the current thread: " + thread + "...");
+	logger.info("Stopping the current task: " + handle + "...");
 
-	runnable.stop();
-	thread = null;
-	runnable = null;
+	if (handle != null) {
+	    handle.stop();
+	}
 
-	logger.debug(thread + " successfully stopped.");
+	logger.debug(handle + " successfully stopped.");
+	handle = null;
     }
 }
@@ -32,8 +32,11 @@ import com.google.api.services.customsearch.Customsearch;
 import com.google.api.services.customsearch.model.Result;
 import com.google.api.services.customsearch.model.Search;
 
+import at.mukprojects.imageloader.cache.DiskCache;
+import at.mukprojects.imageloader.concurrent.LoaderTask;
 import at.mukprojects.imageloader.flickr.FlickrLicenses;
 import at.mukprojects.imageloader.image.Image;
+import at.mukprojects.imageloader.image.ImageDecoder;
 import at.mukprojects.imageloader.image.ImageList;
 import processing.core.PApplet;
 import processing.core.PImage;
@@ -43,7 +46,7 @@ import processing.core.PImage;
  * 
  * @author Mathias Markl
  */
-public class GoogleTask implements Runnable {
+public class GoogleTask extends LoaderTask {
 
     private static final Logger logger = LoggerFactory.getLogger(GoogleTask.class);
 
@@ -54,11 +57,9 @@ public class GoogleTask implements Runnable {
     private String apiKey;
     private String searchEngineId;
 
-    private boolean runOnce;
-    private long delay;
     private boolean lazyLoad;
 
-    private volatile boolean running;
+    private long offset;
 
     /**
      * Constructs a new GoogleTask.
@@ -83,6 +84,8 @@ public class GoogleTask implements Runnable {
      */
     public GoogleTask(PApplet applet, String searchParam, ImageList imageList, String apiKey, String searchEngineId,
 	    boolean runOnce, long delay, boolean lazyLoad) {
+	super(runOnce, delay);
+
 	this.applet = applet;
 	this.searchParam = searchParam;
 	this.imageList = imageList;
@@ -90,83 +93,64 @@ public class GoogleTask implements Runnable {
 	this.apiKey = apiKey;
 	this.searchEngineId = searchEngineId;
 
-	this.runOnce = runOnce;
-	this.delay = delay;
 	this.lazyLoad = lazyLoad;
 
-	running = true;
-    }
-
-    /**
-     * Stops the task.
-     */
-    public void stop() {
-	running = false;
+	this.offset = 10L;
     }
 
     @Override
-    public void run() {
-	logger.info("Task is running...");
-
-	for (long i = 10L; running; i += 10) {
-	    try {
-		logger.debug("Task loads data.");
-
-		HttpTransport httpTransport = new NetHttpTransport();
-		JsonFactory jsonFactory = new JacksonFactory();
+    protected void load() throws IOException {
+	HttpTransport httpTransport = new NetHttpTransport();
+	JsonFactory jsonFactory = new JacksonFactory();
 
-		Customsearch customsearch = new Customsearch.Builder(httpTransport, jsonFactory, null)
-			.setApplicationName("ImageLoader").build();
+	Customsearch customsearch = new Customsearch.Builder(httpTransport, jsonFactory, null)
+		.setApplicationName("ImageLoader").build();
 
-		List<Result> resultList = null;
+	List<Result> resultList = null;
 
-		Customsearch.Cse.List list = customsearch.cse().list(searchParam);
+	Customsearch.Cse.List list = customsearch.cse().list(searchParam);
 
-		list.setKey(apiKey);
-		list.setCx(searchEngineId);
-		list.setSearchType("image");
-		list.setStart(i);
+	list.setKey(apiKey);
+	list.setCx(searchEngineId);
+	list.setSearchType("image");
+	list.setStart(offset);
 
-		Search results = list.execute();
-		resultList = results.getItems();
+	Search results = list.execute();
+	resultList = results.getItems();
 
-		if (resultList != null && resultList.size() > 0) {
-		    for (Result result : resultList) {
-			String id = "Google#" + result.getLink();
+	if (resultList != null && resultList.size() > 0) {
+	    for (Result result : resultList) {
+		String id = "Google#" + result.getLink();
 
-			String imgInfo = "";
-			imgInfo += "Title: " + result.getTitle() + "\n";
-			imgInfo += "DisplayLink: " + result.getDisplayLink() + "\n";
-			imgInfo += "Snippet: " + result.getSnippet();
+		String imgInfo = "";
+		imgInfo += "Title: " + result.getTitle() + "\n";
+		imgInfo += "DisplayLink: " + result.getDisplayLink() + "\n";
+		imgInfo += "Snippet: " + result.getSnippet();
 
-			long timestamp = new Date().getTime();
-			String imgUrl = result.getLink();
+		long timestamp = new Date().getTime();
+		String imgUrl = result.getLink();
 
-			PImage img = null;
-			if (!lazyLoad) {
-			    img = applet.loadImage(imgUrl);
-			}
-
-			imageList.addImage(new Image(id, imgInfo, timestamp, imgUrl, img));
-		    }
-		} else {
-		    logger.warn("No results were found.");
-		}
-
-		if (runOnce) {
-		    logger.debug("Task is finished.");
-		    running = false;
+		if (!lazyLoad) {
+		    download(id, imgInfo, timestamp, imgUrl);
 		} else {
-		    logger.debug("Task is delayed...");
-		    Thread.sleep(delay);
+		    imageList.addImage(new Image(id, imgInfo, timestamp, imgUrl, null, getTargetWidth(),
+			    getTargetHeight()));
 		}
-	    } catch (InterruptedException | IOException e) {
-		logger.error("An error occured. The task will be stopped.", e);
-		running = false;
 	    }
+	} else {
+	    logger.warn("No results were found.");
 	}
 
-	logger.info("Task has stopped.");
+	offset += 10;
     }
 
+    private void download(final String id, final String imgInfo, final long timestamp, final String imgUrl) {
+	submitDownload(id, imgUrl, new Runnable() {
+	    @Override
+	    public void run() {
+		PImage img = ImageDecoder.load(applet, DiskCache.resolve(imgUrl), getTargetWidth(), getTargetHeight());
+		imageList.addImage(new Image(id, imgInfo, timestamp, imgUrl, img, getTargetWidth(), getTargetHeight()));
+	    }
+	});
+    }
 }
@@ -17,9 +17,19 @@
 
 package at.mukprojects.imageloader.image;
 
+import java.io.IOException;
 import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 import at.mukprojects.imageloader.ImageLoader;
+import at.mukprojects.imageloader.cache.PixelCache;
+import at.mukprojects.imageloader.cache.PixelCacheEntry;
+import at.mukprojects.imageloader.concurrent.DecodePriority;
+import at.mukprojects.imageloader.concurrent.DecodeRequest;
+import at.mukprojects.imageloader.concurrent.SingleFlight;
+import at.mukprojects.imageloader.list.ListEntry;
 import processing.core.PImage;
 
 /**
@@ -27,7 +37,9 @@ import processing.core.PImage;
  * 
  * @author Mathias Markl
  */
-public class Image {
+public class Image implements ListEntry, PixelCacheEntry {
+
+    private static final SingleFlight<PImage> loads = new SingleFlight<PImage>();
 
     private String id;
 
@@ -35,7 +47,15 @@ public class Image {
     private long timestamp;
 
     private String imgUrl;
-    private PImage img;
+    private volatile PImage img;
+
+    private volatile ImagePyramid pyramid;
+
+    private volatile int targetWidth;
+    private volatile int targetHeight;
+
+    private volatile int sourceWidth;
+    private volatile int sourceHeight;
 
     /**
      * Constructs a new image.
@@ -52,11 +72,40 @@ public class Image {
      *            The image.
      */
     public Image(String id, String imgInfo, long timestamp, String imgUrl, PImage img) {
+	this(id, imgInfo, timestamp, imgUrl, img, 0, 0);
+    }
+
+    /**
+     * Constructs a new image, which gets decoded at a reduced size.
+     * 
+     * @param id
+     *            The image id. The id must be unique.
+     * @param imgInfo
+     *            The image info.
+     * @param timestamp
+     *            The image timestamp.
+     * @param imgUrl
+     *            The image url.
+     * @param img
+     *            The image.
+     * @param targetWidth
+     *            The target width or zero.
+     * @param targetHeight
+     *            The target height or zero.
+     */
+    public Image(String id, String imgInfo, long timestamp, String imgUrl, PImage img, int targetWidth,
+	    int targetHeight) {
 	this.id = id;
 	this.imgInfo = imgInfo;
 	this.timestamp = timestamp;
 	this.imgUrl = imgUrl;
 	this.img = img;
+	this.targetWidth = targetWidth;
+	this.targetHeight = targetHeight;
+
+	if (img != null) {
+	    PixelCache.put(this);
+	}
     }
 
     /**
@@ -97,24 +146,252 @@ public class Image {
 
     /**
      * Gets the image. If the image is in lazy load mode and an error occurs during
-     * the loading process the method will return null.
+     * the loading process the method will return null. The image gets loaded
+     * again, if the PixelCache has released it.
      * 
      * @return The image.
      */
     public PImage getImg() {
-	if(img == null) {
+	PImage current = img;
+
+	if (current == null) {
 	    try {
-		img = ImageLoader.loadImage(imgUrl);
-	    } catch(Exception e) {}
+		current = load();
+	    } catch (Exception e) {
+	    }
+	} else {
+	    PixelCache.touch(this);
+	}
+
+	return current;
+    }
+
+    /**
+     * Gets the image without blocking. If the image isn't loaded yet, it gets
+     * loaded by the DecodeScheduler in the background.
+     * 
+     * @return The future image. The future fails if the image couldn't be
+     *         loaded.
+     */
+    public CompletableFuture<PImage> getImgAsync() {
+	return requestImg(DecodePriority.VISIBLE).getFuture();
+    }
+
+    /**
+     * Requests the image with the given priority. If the image isn't loaded
+     * yet, it gets loaded by the DecodeScheduler in the background. The
+     * returned request can be used to re-prioritize or cancel the load, when
+     * the image leaves the screen.
+     * 
+     * @param priority
+     *            The priority of the load.
+     * @return The request. Its future fails if the image couldn't be loaded.
+     */
+    public DecodeRequest<PImage> requestImg(DecodePriority priority) {
+	PImage current = img;
+
+	if (current != null) {
+	    PixelCache.touch(this);
+	    return DecodeRequest.completed(current);
+	}
+
+	return loads.submit(getLoadKey(), newLoad(), priority).thenApply(new Function<PImage, PImage>() {
+	    @Override
+	    public PImage apply(PImage loaded) {
+		return store(loaded);
+	    }
+	});
+    }
+
+    /**
+     * Gets the image, if it's already loaded. Otherwise the image gets loaded
+     * in the background and the method returns null, so the caller can draw a
+     * placeholder until the image is ready.
+     * 
+     * @return The image or null.
+     */
+    public PImage getImgIfReady() {
+	PImage current = img;
+
+	if (current == null) {
+	    requestImg(DecodePriority.VISIBLE);
+	} else {
+	    PixelCache.touch(this);
+	}
+
+	return current;
+    }
+
+    /**
+     * Gets a variant of the image, which fits the size the image gets drawn
+     * with. The variants are scaled down by powers of two and generated the
+     * first time they are requested. The smallest variant, which is still at
+     * least as large as the given size, is returned. A dimension of zero isn't
+     * considered.
+     * 
+     * @param width
+     *            The width the image gets drawn with.
+     * @param height
+     *            The height the image gets drawn with.
+     * @return The image variant.
+     */
+    public PImage getImg(int width, int height) {
+	PImage current = getImg();
+
+	if (current == null) {
+	    return null;
+	}
+
+	ImagePyramid currentPyramid = pyramid;
+	if (currentPyramid == null || !currentPyramid.isSource(current)) {
+	    currentPyramid = new ImagePyramid(current);
+	    pyramid = currentPyramid;
+	}
+
+	long size = currentPyramid.getSize();
+	PImage variant = currentPyramid.get(width, height);
+
+	if (currentPyramid.getSize() != size) {
+	    PixelCache.put(this);
 	}
-	return img;
+
+	return variant;
+    }
+
+    /**
+     * Sets the target size of the image. The image is subsampled while it
+     * gets decoded, so it's at least as large as the target size. A dimension
+     * of zero isn't limited. The size is used the next time the image gets
+     * decoded.
+     * 
+     * @param targetWidth
+     *            The target width or zero.
+     * @param targetHeight
+     *            The target height or zero.
+     */
+    public void setTargetSize(int targetWidth, int targetHeight) {
+	this.targetWidth = targetWidth;
+	this.targetHeight = targetHeight;
+    }
+
+    /**
+     * Gets the target width of the image.
+     * 
+     * @return The target width or zero.
+     */
+    public int getTargetWidth() {
+	return targetWidth;
+    }
+
+    /**
+     * Gets the target height of the image.
+     * 
+     * @return The target height or zero.
+     */
+    public int getTargetHeight() {
+	return targetHeight;
+    }
+
+    /**
+     * Sets the size of the source image, if it's known before the image gets
+     * loaded, for example from a file index. The size is used to estimate the
+     * decoded size of the image.
+     * 
+     * @param sourceWidth
+     *            The width of the source image.
+     * @param sourceHeight
+     *            The height of the source image.
+     */
+    public void setSourceSize(int sourceWidth, int sourceHeight) {
+	this.sourceWidth = sourceWidth;
+	this.sourceHeight = sourceHeight;
     }
-    
+
+    /**
+     * Estimates the number of bytes, which the decoded pixels of the image
+     * occupy, before the image is loaded. The estimate needs the size of the
+     * source image.
+     * 
+     * @return The estimated size in bytes or zero if the size can't be
+     *         estimated.
+     */
+    public long estimateDecodedSize() {
+	int width = sourceWidth;
+	int height = sourceHeight;
+
+	if (width <= 0 || height <= 0) {
+	    return 0;
+	}
+
+	int factor = ImageDecoder.getSubsampling(width, height, targetWidth, targetHeight);
+	return 4L * ((width + factor - 1) / factor) * ((height + factor - 1) / factor);
+    }
+
+    /**
+     * Loads the image, unless it's already loaded. Concurrent loads of the
+     * same URL and size share a single download and decoding process.
+     */
+    private PImage load() throws Exception {
+	PImage current = img;
+
+	if (current == null) {
+	    current = store(loads.execute(getLoadKey(), newLoad()));
+	}
+
+	return current;
+    }
+
+    /**
+     * Creates the load of the image, which is shared by all images of the
+     * same URL and size.
+     */
+    private Callable<PImage> newLoad() {
+	final String url = imgUrl;
+	final int width = targetWidth;
+	final int height = targetHeight;
+
+	return new Callable<PImage>() {
+	    @Override
+	    public PImage call() throws Exception {
+		PImage loaded = ImageLoader.loadImage(url, width, height);
+
+		if (loaded == null) {
+		    throw new IOException("The image " + url + " couldn't be loaded.");
+		}
+		return loaded;
+	    }
+	};
+    }
+
+    private String getLoadKey() {
+	return imgUrl + "@" + targetWidth + "x" + targetHeight;
+    }
+
+    private PImage store(PImage loaded) {
+	img = loaded;
+	PixelCache.put(this);
+	return loaded;
+    }
+
+    @Override
+    public long getDecodedSize() {
+	ImagePyramid currentPyramid = pyramid;
+	return PixelCache.sizeOf(img) + (currentPyramid == null ? 0 : currentPyramid.getSize());
+    }
+
     /**
      * Frees the memory space.
      */
     public void clearMemSpace() {
 	img = null;
+	pyramid = null;
+	PixelCache.remove(this);
+    }
+
+    @Override
+    public void releasePixels() {
+	img = null;
+	pyramid = null;
     }
 
     @Override
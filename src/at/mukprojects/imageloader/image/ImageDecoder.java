@@ -0,0 +1,221 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.image;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import processing.core.PApplet;
+import processing.core.PImage;
+
+/**
+ * Decodes images at a reduced resolution. The image is subsampled by the
+ * image reader while it gets decoded, so the memory and time needed by the
+ * decoding process depend on the target size instead of the source size.
+ * 
+ * @author Mathias Markl
+ */
+public final class ImageDecoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageDecoder.class);
+
+    private ImageDecoder() {
+    }
+
+    /**
+     * Returns the subsampling factor for an image of the given size. The
+     * factor is the largest integer, which keeps the image at least as large
+     * as the target size. A target dimension of zero or less isn't limited.
+     * 
+     * @param width
+     *            The source width.
+     * @param height
+     *            The source height.
+     * @param targetWidth
+     *            The target width.
+     * @param targetHeight
+     *            The target height.
+     * @return The subsampling factor.
+     */
+    public static int getSubsampling(int width, int height, int targetWidth, int targetHeight) {
+	int factor = Integer.MAX_VALUE;
+
+	if (targetWidth > 0) {
+	    factor = Math.min(factor, width / targetWidth);
+	}
+	if (targetHeight > 0) {
+	    factor = Math.min(factor, height / targetHeight);
+	}
+
+	if (factor == Integer.MAX_VALUE) {
+	    return 1;
+	}
+	return Math.max(factor, 1);
+    }
+
+    /**
+     * Loads an image, which is subsampled to the target size. If no target
+     * size is set or the format isn't supported by ImageIO, the image is
+     * loaded at full size by the PApplet.
+     * 
+     * @param applet
+     *            The Processing PApplet.
+     * @param location
+     *            The file path or URL of the image.
+     * @param targetWidth
+     *            The target width or zero.
+     * @param targetHeight
+     *            The target height or zero.
+     * @return The image.
+     */
+    public static PImage load(PApplet applet, String location, int targetWidth, int targetHeight) {
+	if (targetWidth > 0 || targetHeight > 0) {
+	    try {
+		PImage image = decode(location, targetWidth, targetHeight);
+
+		if (image != null) {
+		    return image;
+		}
+	    } catch (IOException e) {
+		logger.debug("The image couldn't be subsampled: " + location, e);
+	    }
+	}
+
+	return applet.loadImage(location);
+    }
+
+    /**
+     * Decodes an image, which is subsampled to the target size.
+     * 
+     * @param location
+     *            The file path or URL of the image.
+     * @param targetWidth
+     *            The target width or zero.
+     * @param targetHeight
+     *            The target height or zero.
+     * @return The image or null if the format isn't supported.
+     * @throws IOException
+     *             If the image couldn't be read.
+     */
+    public static PImage decode(String location, final int targetWidth, final int targetHeight) throws IOException {
+	return read(location, new ReaderAction<PImage>() {
+	    @Override
+	    public PImage read(ImageReader reader) throws IOException {
+		int factor = getSubsampling(reader.getWidth(0), reader.getHeight(0), targetWidth, targetHeight);
+
+		ImageReadParam param = reader.getDefaultReadParam();
+		param.setSourceSubsampling(factor, factor, 0, 0);
+
+		return toPImage(reader.read(0, param));
+	    }
+	});
+    }
+
+    /**
+     * Reads the size of an image from its header without decoding its pixels.
+     * 
+     * @param location
+     *            The file path or URL of the image.
+     * @return The size or null if the format isn't supported.
+     * @throws IOException
+     *             If the image couldn't be read.
+     */
+    public static Dimension readSize(String location) throws IOException {
+	return read(location, new ReaderAction<Dimension>() {
+	    @Override
+	    public Dimension read(ImageReader reader) throws IOException {
+		return new Dimension(reader.getWidth(0), reader.getHeight(0));
+	    }
+	});
+    }
+
+    /**
+     * Opens an image with the first matching ImageIO reader and passes the
+     * reader to the action.
+     * 
+     * @return The result of the action or null if the format isn't supported.
+     */
+    private static <T> T read(String location, ReaderAction<T> action) throws IOException {
+	InputStream in = location.startsWith("http") ? new URL(location).openStream()
+		: new FileInputStream(location);
+
+	try {
+	    ImageInputStream imageIn = ImageIO.createImageInputStream(in);
+
+	    if (imageIn == null) {
+		return null;
+	    }
+
+	    try {
+		Iterator<ImageReader> readers = ImageIO.getImageReaders(imageIn);
+
+		if (!readers.hasNext()) {
+		    return null;
+		}
+
+		ImageReader reader = readers.next();
+
+		try {
+		    reader.setInput(imageIn, true, true);
+		    return action.read(reader);
+		} finally {
+		    reader.dispose();
+		}
+	    } finally {
+		imageIn.close();
+	    }
+	} finally {
+	    in.close();
+	}
+    }
+
+    /**
+     * Converts a decoded image into a PImage.
+     */
+    private static PImage toPImage(BufferedImage image) {
+	int width = image.getWidth();
+	int height = image.getHeight();
+	int format = image.getColorModel().hasAlpha() ? PImage.ARGB : PImage.RGB;
+
+	PImage result = new PImage(width, height, format);
+	image.getRGB(0, 0, width, height, result.pixels, 0, width);
+
+	return result;
+    }
+
+    /**
+     * Reads an image from an ImageIO reader, which has its input set already.
+     */
+    private interface ReaderAction<T> {
+
+	T read(ImageReader reader) throws IOException;
+    }
+}
@@ -17,11 +17,21 @@
 
 package at.mukprojects.imageloader.image;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
 
+import at.mukprojects.imageloader.list.DecodedSizeCounter;
+import at.mukprojects.imageloader.list.EvictionPolicy;
+import at.mukprojects.imageloader.list.IndexedStore;
+import at.mukprojects.imageloader.list.ListListener;
+import at.mukprojects.imageloader.list.ListNotifier;
+import at.mukprojects.imageloader.list.TimestampIndex;
+import processing.core.PApplet;
+
 /**
  * The ImageList holds all loaded images.
  * 
@@ -30,13 +40,50 @@ import java.util.concurrent.ConcurrentHashMap;
 public class ImageList {
 
     private ConcurrentHashMap<String, Image> images;
+    private IndexedStore<Image> indexedImages;
+    private TimestampIndex<Image> recentImages;
     private Random random;
 
+    private int maxEntries;
+    private long maxDecodedSize;
+    private EvictionPolicy<Image> evictionPolicy;
+    private DecodedSizeCounter<Image> decodedSize;
+    private ListNotifier<Image> notifier;
+
     /**
      * Constructs a new ImageList.
      */
     public ImageList() {
+	this(0, 0, null);
+    }
+
+    /**
+     * Constructs a new bounded ImageList. Once one of the limits is exceeded, the
+     * eviction policy selects the entries which get removed.
+     * 
+     * @param maxEntries
+     *            The maximum number of entries. A value of zero or less
+     *            disables the limit.
+     * @param maxDecodedSize
+     *            The maximum number of bytes, which may be occupied by decoded
+     *            pixels. A value of zero or less disables the limit.
+     * @param evictionPolicy
+     *            The eviction policy. Every list needs its own policy instance.
+     */
+    public ImageList(int maxEntries, long maxDecodedSize, EvictionPolicy<Image> evictionPolicy) {
+	if ((maxEntries > 0 || maxDecodedSize > 0) && evictionPolicy == null) {
+	    throw new IllegalArgumentException("A bounded list needs an eviction policy.");
+	}
+
+	this.maxEntries = maxEntries;
+	this.maxDecodedSize = maxDecodedSize;
+	this.evictionPolicy = evictionPolicy;
+	decodedSize = new DecodedSizeCounter<Image>();
+	notifier = new ListNotifier<Image>();
+
 	images = new ConcurrentHashMap<String, Image>();
+	indexedImages = new IndexedStore<Image>();
+	recentImages = new TimestampIndex<Image>();
 	random = new Random();
     }
 
@@ -44,7 +91,20 @@ public class ImageList {
      * Clears the list.
      */
     public void clearList() {
-	images.clear();
+	synchronized (this) {
+	    images.clear();
+	    indexedImages.clear();
+	    recentImages.clear();
+	    decodedSize.clear();
+
+	    if (evictionPolicy != null) {
+		evictionPolicy.cleared();
+	    }
+
+	    notifier.cleared();
+	}
+
+	notifier.dispatch();
     }
 
     /**
@@ -55,9 +115,122 @@ public class ImageList {
      *            The image, which should be added to the list.
      */
     public void addImage(Image img) {
-	if (!images.containsKey(img.getId())) {
-	    images.put(img.getId(), img);
+	synchronized (this) {
+	    if (images.putIfAbsent(img.getId(), img) != null) {
+		return;
+	    }
+
+	    indexedImages.add(img);
+	    recentImages.add(img);
+	    decodedSize.add(img);
+
+	    notifier.added(img);
+
+	    if (evictionPolicy != null) {
+		evictionPolicy.added(img);
+		notifier.evicted(evict());
+	    }
+	}
+
+	notifier.dispatch();
+    }
+
+    /**
+     * Removes the image with the given identifier from the list.
+     * 
+     * @param key
+     *            The image identifier.
+     * @return The removed image or null if the list has no image with the
+     *         given identifier.
+     */
+    public Image removeImage(String key) {
+	Image img;
+
+	synchronized (this) {
+	    img = images.remove(key);
+
+	    if (img == null) {
+		return null;
+	    }
+
+	    indexedImages.remove(img);
+	    recentImages.remove(img);
+	    decodedSize.remove(img);
+
+	    if (evictionPolicy != null) {
+		evictionPolicy.removed(img);
+	    }
+
+	    notifier.removed(img);
 	}
+
+	notifier.dispatch();
+	return img;
+    }
+
+    /**
+     * Enforces the limits of a bounded list. Lazy images occupy memory once
+     * they are loaded, so the decoded size of the list can grow after the
+     * images were added. The list keeps a running total of the decoded size,
+     * which gets refreshed whenever an image is read. Trimming refreshes the
+     * sizes of all images first.
+     */
+    public void trim() {
+	if (evictionPolicy == null) {
+	    return;
+	}
+
+	synchronized (this) {
+	    for (int i = 0; i < indexedImages.size(); i++) {
+		Image img = indexedImages.get(i);
+
+		if (img != null) {
+		    decodedSize.update(img);
+		}
+	    }
+
+	    notifier.evicted(evict());
+	}
+
+	notifier.dispatch();
+    }
+
+    /**
+     * Adds a listener, which gets notified immediately whenever an image gets
+     * added, evicted or removed or the list gets cleared. The listener gets
+     * called by a thread, which changed the list, and sees the changes in
+     * their order.
+     * 
+     * @param listener
+     *            The listener.
+     */
+    public void addListener(ListListener<Image> listener) {
+	notifier.addListener(listener);
+    }
+
+    /**
+     * Adds a listener, which gets notified once per frame on the animation
+     * thread of the given applet, right before draw() gets called. The events
+     * of a frame are coalesced, so an image, which was added and evicted or
+     * removed during the same frame, isn't reported.
+     * 
+     * @param listener
+     *            The listener.
+     * @param applet
+     *            The Processing PApplet.
+     */
+    public void addListener(ListListener<Image> listener, PApplet applet) {
+	notifier.addListener(listener, applet);
+    }
+
+    /**
+     * Removes a listener.
+     * 
+     * @param listener
+     *            The listener.
+     */
+    public void removeListener(ListListener<Image> listener) {
+	notifier.removeListener(listener);
     }
 
     /**
@@ -87,6 +260,18 @@ public class ImageList {
 	return images.values();
     }
 
+    /**
+     * Indicates if the list has an image with the given identifier. Unlike
+     * getImage, the check doesn't count as an access of the image.
+     * 
+     * @param key
+     *            The image identifier.
+     * @return True if the list has the image.
+     */
+    public boolean containsImage(String key) {
+	return images.containsKey(key);
+    }
+
     /**
      * Returns the image with a given identifier.
      * 
@@ -95,7 +280,7 @@ public class ImageList {
      * @return The image.
      */
     public Image getImage(String key) {
-	return images.get(key);
+	return accessed(images.get(key));
     }
 
     /**
@@ -104,11 +289,7 @@ public class ImageList {
      * @return A random image.
      */
     public Image getRandom() {
-	if (images.isEmpty()) {
-	    return null;
-	} else {
-	    return getImage(random.nextInt(images.size()));
-	}
+	return accessed(indexedImages.getRandom(random));
     }
 
     /**
@@ -117,19 +298,30 @@ public class ImageList {
      * @return The last added image.
      */
     public Image getMostRecentImage() {
-	Image outputImg = null;
-
-	for (Image img : images.values()) {
-	    if (outputImg == null) {
-		outputImg = img;
-	    }
+	return recentImages.getMostRecent();
+    }
 
-	    if (img.getTimestamp() > outputImg.getTimestamp()) {
-		outputImg = img;
-	    }
-	}
+    /**
+     * Gets the n most recent images, starting with the newest one.
+     * 
+     * @param n
+     *            The maximum number of images.
+     * @return A list of the most recent images.
+     */
+    public List<Image> getMostRecent(int n) {
+	return recentImages.getMostRecent(n);
+    }
 
-	return outputImg;
+    /**
+     * Gets all images with a timestamp equal to or greater than the given
+     * timestamp, starting with the oldest one.
+     * 
+     * @param timestamp
+     *            The timestamp.
+     * @return A list of all images since the given timestamp.
+     */
+    public List<Image> getSince(long timestamp) {
+	return recentImages.getSince(timestamp);
     }
 
     /**
@@ -140,15 +332,47 @@ public class ImageList {
      * @return The image.
      */
     public Image getImage(int index) {
-	int counter = 0;
+	return accessed(indexedImages.get(index));
+    }
 
-	for (Image img : images.values()) {
-	    if (counter == index) {
-		return img;
+    private Image accessed(Image img) {
+	if (img != null && evictionPolicy != null) {
+	    evictionPolicy.accessed(img);
+
+	    if (maxDecodedSize > 0) {
+		decodedSize.update(img);
 	    }
-	    counter++;
+	}
+	return img;
+    }
+
+    private List<Image> evict() {
+	List<Image> evicted = new ArrayList<Image>();
+
+	while (true) {
+	    Image victim;
+
+	    if (maxEntries > 0 && images.size() > maxEntries) {
+		victim = evictionPolicy.selectVictim();
+	    } else if (maxDecodedSize > 0 && decodedSize.getSize() > maxDecodedSize) {
+		victim = evictionPolicy.selectDecodedVictim();
+	    } else {
+		break;
+	    }
+
+	    if (victim == null) {
+		break;
+	    }
+
+	    images.remove(victim.getId());
+	    indexedImages.remove(victim);
+	    recentImages.remove(victim);
+	    decodedSize.remove(victim);
+	    evictionPolicy.removed(victim);
+
+	    evicted.add(victim);
 	}
 
-	return null;
+	return evicted;
     }
 }
@@ -0,0 +1,212 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.image;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import processing.core.PImage;
+
+/**
+ * A pyramid of pre-scaled variants of an image or the frames of a GIF. Every
+ * level has half the size of the level above. The levels are generated
+ * lazily, when a smaller size gets requested for the first time.
+ * 
+ * @author Mathias Markl
+ */
+public class ImagePyramid {
+
+    private List<PImage[]> levels;
+    private volatile long size;
+
+    /**
+     * Constructs a new ImagePyramid.
+     * 
+     * @param frames
+     *            The source frames, which build the first level.
+     */
+    public ImagePyramid(PImage... frames) {
+	levels = new ArrayList<PImage[]>();
+	levels.add(frames);
+    }
+
+    /**
+     * Returns true if the pyramid was built for the given source frames.
+     * 
+     * @param frames
+     *            The source frames.
+     * @return True if the frames are the first level of the pyramid.
+     */
+    public synchronized boolean isSource(PImage... frames) {
+	PImage[] source = levels.get(0);
+
+	if (source.length != frames.length) {
+	    return false;
+	}
+
+	for (int i = 0; i < source.length; i++) {
+	    if (source[i] != frames[i]) {
+		return false;
+	    }
+	}
+
+	return true;
+    }
+
+    /**
+     * Returns the smallest variant, which is still at least as large as the
+     * given size. A dimension of zero or less isn't considered.
+     * 
+     * @param width
+     *            The width the image gets drawn with.
+     * @param height
+     *            The height the image gets drawn with.
+     * @return The variant.
+     */
+    public PImage get(int width, int height) {
+	return getFrames(width, height)[0];
+    }
+
+    /**
+     * Returns the frames of the smallest level, which is still at least as
+     * large as the given size. A dimension of zero or less isn't considered.
+     * 
+     * @param width
+     *            The width the frames get drawn with.
+     * @param height
+     *            The height the frames get drawn with.
+     * @return The frames of the level.
+     */
+    public synchronized PImage[] getFrames(int width, int height) {
+	int level = 0;
+	PImage[] frames = levels.get(0);
+
+	while (frames.length > 0 && fits(frames[0].width / 2, frames[0].height / 2, width, height)) {
+	    level++;
+
+	    if (level == levels.size()) {
+		PImage[] halved = halve(frames);
+		levels.add(halved);
+
+		for (PImage frame : halved) {
+		    size += 4L * frame.width * frame.height;
+		}
+	    }
+	    frames = levels.get(level);
+	}
+
+	return frames;
+    }
+
+    /**
+     * Gets the memory used by the generated levels in bytes. The first level
+     * isn't included. The method doesn't wait for a level, which is being
+     * generated.
+     * 
+     * @return The size of the generated levels.
+     */
+    public long getSize() {
+	return size;
+    }
+
+    private static boolean fits(int levelWidth, int levelHeight, int width, int height) {
+	if (levelWidth < 1 || levelHeight < 1) {
+	    return false;
+	}
+	return levelWidth >= width && levelHeight >= height && (width > 0 || height > 0);
+    }
+
+    private static PImage[] halve(PImage[] frames) {
+	PImage[] result = new PImage[frames.length];
+
+	for (int i = 0; i < frames.length; i++) {
+	    result[i] = halve(frames[i]);
+	}
+
+	return result;
+    }
+
+    /**
+     * Scales an image to half its size. Every pixel is the average of a block
+     * of two by two pixels. The colors of transparent images are weighted by
+     * their alpha, so transparent pixels don't darken the edges.
+     */
+    private static PImage halve(PImage source) {
+	int sourceWidth = source.width;
+	int width = sourceWidth / 2;
+	int height = source.height / 2;
+	source.loadPixels();
+	int[] pixels = source.pixels;
+
+	PImage result = new PImage(width, height, source.format);
+	boolean transparent = source.format == PImage.ARGB;
+
+	for (int y = 0; y < height; y++) {
+	    int row = 2 * y * sourceWidth;
+
+	    for (int x = 0; x < width; x++) {
+		int i = row + 2 * x;
+
+		int a = pixels[i];
+		int b = pixels[i + 1];
+		int c = pixels[i + sourceWidth];
+		int d = pixels[i + sourceWidth + 1];
+
+		result.pixels[y * width + x] = transparent ? averageWeighted(a, b, c, d) : average(a, b, c, d);
+	    }
+	}
+
+	return result;
+    }
+
+    private static int average(int a, int b, int c, int d) {
+	int alpha = ((a >>> 24) + (b >>> 24) + (c >>> 24) + (d >>> 24) + 2) >> 2;
+	int red = (((a >> 16) & 0xFF) + ((b >> 16) & 0xFF) + ((c >> 16) & 0xFF) + ((d >> 16) & 0xFF) + 2) >> 2;
+	int green = (((a >> 8) & 0xFF) + ((b >> 8) & 0xFF) + ((c >> 8) & 0xFF) + ((d >> 8) & 0xFF) + 2) >> 2;
+	int blue = ((a & 0xFF) + (b & 0xFF) + (c & 0xFF) + (d & 0xFF) + 2) >> 2;
+
+	return (alpha << 24) | (red << 16) | (green << 8) | blue;
+    }
+
+    /**
+     * Averages the colors weighted by their alpha, which equals averaging the
+     * premultiplied colors and dividing the result by its alpha again.
+     */
+    private static int averageWeighted(int a, int b, int c, int d) {
+	int alphaA = a >>> 24;
+	int alphaB = b >>> 24;
+	int alphaC = c >>> 24;
+	int alphaD = d >>> 24;
+	int alphaSum = alphaA + alphaB + alphaC + alphaD;
+
+	if (alphaSum == 0) {
+	    return 0;
+	}
+
+	int half = alphaSum >> 1;
+	int red = (((a >> 16) & 0xFF) * alphaA + ((b >> 16) & 0xFF) * alphaB + ((c >> 16) & 0xFF) * alphaC
+		+ ((d >> 16) & 0xFF) * alphaD + half) / alphaSum;
+	int green = (((a >> 8) & 0xFF) * alphaA + ((b >> 8) & 0xFF) * alphaB + ((c >> 8) & 0xFF) * alphaC
+		+ ((d >> 8) & 0xFF) * alphaD + half) / alphaSum;
+	int blue = ((a & 0xFF) * alphaA + (b & 0xFF) * alphaB + (c & 0xFF) * alphaC + (d & 0xFF) * alphaD + half)
+		/ alphaSum;
+	int alpha = (alphaSum + 2) >> 2;
+
+	return (alpha << 24) | (red << 16) | (green << 8) | blue;
+    }
+}
@@ -22,6 +22,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import at.mukprojects.imageloader.ImageLoader;
+import at.mukprojects.imageloader.concurrent.LoaderScheduler;
+import at.mukprojects.imageloader.concurrent.TaskHandle;
 import at.mukprojects.imageloader.image.ImageList;
 import processing.core.PApplet;
 
@@ -36,8 +38,7 @@ public class InstagramLoader extends ImageLoader {
 
     private Instagram instagram;
 
-    private Thread thread = null;
-    private InstagramTask runnable = null;
+    private TaskHandle handle = null;
 
     /**
      * Constructs a new ImageLoader.
@@ -72,18 +73,20 @@ public class InstagramLoader extends ImageLoader {
 
     @Override
     public ImageList start(String searchParam, ImageList imageList, boolean runOnce, long delay, boolean lazyLoad) {
-	if (thread != null) {
+	if (handle != null) {
 	    logger.info("Loader is already started.");
 	    logger.info("The restart method will be used instead.");
 
 	    return restart(searchParam, imageList, runOnce, delay, lazyLoad);
 	} else {
-	    runnable = new InstagramTask(applet, searchParam, imageList, instagram, runOnce, delay, lazyLoad);
-	    thread = new Thread(runnable, "InstagramTask");
+	    InstagramTask task = new InstagramTask(applet, searchParam, imageList, instagram, runOnce, delay, lazyLoad);
+	    task.setExecutionMode(executionMode);
+	    task.setTargetSize(targetWidth, targetHeight);
+	    publish(imageList, task);
 
-	    logger.info("Starting Thread: " + thread + "...");
-	    thread.start();
-	    logger.debug(thread + " successfully started.");
+	    logger.info("Starting Task: InstagramTask...");
+	    handle = LoaderScheduler.start(task, "InstagramTask");
+	    logger.debug(handle + " successfully started.");
 
 	    return imageList;
 	}
@@ -91,28 +94,33 @@ public class InstagramLoader extends ImageLoader {
 
     @Override
     public ImageList restart(String searchParam, ImageList imageList, boolean runOnce, long delay, boolean lazyLoad) {
-	logger.info("Stopping the current thread: " + thread + "...");
-	runnable.stop();
-	logger.debug(thread + " successfully stopped.");
+	logger.info("Stopping the current task: " + handle + "...");
+	if (handle != null) {
+	    handle.stop();
+	}
+	logger.debug(handle + " successfully stopped.");
 
-	runnable = new InstagramTask(applet, searchParam, imageList, instagram, runOnce, delay, lazyLoad);
-	thread = new Thread(runnable, "InstagramTask");
+	InstagramTask task = new InstagramTask(applet, searchParam, imageList, instagram, runOnce, delay, lazyLoad);
+	task.setExecutionMode(executionMode);
+	task.setTargetSize(targetWidth, targetHeight);
+	publish(imageList, task);
 
-	logger.info("Starting Thread: " + thread + "...");
-	thread.start();
-	logger.debug(thread + " successfully started.");
+	logger.info("Starting Task: InstagramTask...");
+	handle = LoaderScheduler.start(task, "InstagramTask");
+	logger.debug(handle + " successfully started.");
 
 	return imageList;
     }
 
     @Override
     public void stop() {
-	logger.info("Stopping the current thread: " + thread + "...");
+	logger.info("Stopping the current task: " + handle + "...");
 
-	runnable.stop();
-	thread = null;
-	runnable = null;
+	if (handle != null) {
+	    handle.stop();
+	}
 
-	logger.debug(thread + " successfully stopped.");
+	logger.debug(handle + " successfully stopped.");
+	handle = null;
     }
 }
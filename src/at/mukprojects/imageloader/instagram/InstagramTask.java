@@ -27,7 +27,10 @@ import org.jinstagram.exceptions.InstagramException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import at.mukprojects.imageloader.cache.DiskCache;
+import at.mukprojects.imageloader.concurrent.LoaderTask;
 import at.mukprojects.imageloader.image.Image;
+import at.mukprojects.imageloader.image.ImageDecoder;
 import at.mukprojects.imageloader.image.ImageList;
 import processing.core.PApplet;
 import processing.core.PImage;
@@ -37,7 +40,7 @@ import processing.core.PImage;
  * 
  * @author Mathias Markl
  */
-public class InstagramTask implements Runnable {
+public class InstagramTask extends LoaderTask {
 
     private static final Logger logger = LoggerFactory.getLogger(InstagramTask.class);
 
@@ -46,12 +49,8 @@ public class InstagramTask implements Runnable {
     private ImageList imageList;
     private Instagram instagram;
 
-    private boolean runOnce;
-    private long delay;
     private boolean lazyLoad;
 
-    private volatile boolean running;
-
     /**
      * Constructs a new InstagramTask.
      * 
@@ -73,91 +72,67 @@ public class InstagramTask implements Runnable {
      */
     public InstagramTask(PApplet applet, String searchParam, ImageList imageList, Instagram instagram, boolean runOnce,
 	    long delay, boolean lazyLoad) {
+	super(runOnce, delay);
+
 	this.applet = applet;
 	this.searchParam = searchParam;
 	this.imageList = imageList;
 
 	this.instagram = instagram;
 
-	this.runOnce = runOnce;
-	this.delay = delay;
 	this.lazyLoad = lazyLoad;
-
-	running = true;
-    }
-
-    /**
-     * Stops the task.
-     */
-    public void stop() {
-	running = false;
     }
 
     @Override
-    public void run() {
-	logger.info("Task is running...");
-
-	while (running) {
-	    try {
-		logger.debug("Task loads data.");
-
-		TagMediaFeed mediaFeed = instagram.getRecentMediaTags(searchParam, 30);
-		List<MediaFeedData> mediaFeeds = mediaFeed.getData();
-
-		for (MediaFeedData data : mediaFeeds) {
-		    String id = "Instagram#" + data.getId();
-
-		    String imgInfo = "";
-		    imgInfo += "User: " + data.getUser().getFullName() + "\n";
-		    imgInfo += "Description: " + data.getCaption().getText() + "\n";
-		    imgInfo += "Filter:\n" + data.getImageFilter();
-
-		    long timestamp = new Date().getTime();
-		    String imgUrl = data.getImages().getStandardResolution().getImageUrl();
-
-		    boolean validImgUrl = false;
-
-		    if ((!(imgUrl.endsWith(".jpg") || imgUrl.endsWith(".jpeg") || imgUrl.endsWith(".tga")
-			    || imgUrl.endsWith("png") || imgUrl.endsWith(".gif")))
-			    && (imgUrl.contains(".jpg") || imgUrl.contains("jpeg") || imgUrl.contains(".tga")
-				    || imgUrl.contains("png") || imgUrl.contains(".gif"))) {
-			imgUrl = imgUrl.split("ig_cache_key=")[0];
-			imgUrl = imgUrl.substring(0, imgUrl.length() - 1);
-			validImgUrl = true;
-		    } else if (imgUrl.endsWith(".jpg") || imgUrl.endsWith(".jpeg") || imgUrl.endsWith(".tga")
-			    || imgUrl.endsWith("png") || imgUrl.endsWith(".gif")) {
-			validImgUrl = true;
-		    } else {
-			validImgUrl = false;
-		    }
-
-		    PImage img = null;
-		    if (!lazyLoad) {
-			img = applet.loadImage(imgUrl);
-		    }
-
-		    if (validImgUrl) {
-			imageList.addImage(new Image(id, imgInfo, timestamp, imgUrl, img));
-		    }
-		}
+    protected void load() throws InstagramException {
+	TagMediaFeed mediaFeed = instagram.getRecentMediaTags(searchParam, 30);
+	List<MediaFeedData> mediaFeeds = mediaFeed.getData();
+
+	for (MediaFeedData data : mediaFeeds) {
+	    String id = "Instagram#" + data.getId();
+
+	    String imgInfo = "";
+	    imgInfo += "User: " + data.getUser().getFullName() + "\n";
+	    imgInfo += "Description: " + data.getCaption().getText() + "\n";
+	    imgInfo += "Filter:\n" + data.getImageFilter();
+
+	    long timestamp = new Date().getTime();
+	    String imgUrl = data.getImages().getStandardResolution().getImageUrl();
+
+	    boolean validImgUrl = false;
+
+	    if ((!(imgUrl.endsWith(".jpg") || imgUrl.endsWith(".jpeg") || imgUrl.endsWith(".tga")
+		    || imgUrl.endsWith("png") || imgUrl.endsWith(".gif")))
+		    && (imgUrl.contains(".jpg") || imgUrl.contains("jpeg") || imgUrl.contains(".tga")
+			    || imgUrl.contains("png") || imgUrl.contains(".gif"))) {
+		imgUrl = imgUrl.split("ig_cache_key=")[0];
+		imgUrl = imgUrl.substring(0, imgUrl.length() - 1);
+		validImgUrl = true;
+	    } else if (imgUrl.endsWith(".jpg") || imgUrl.endsWith(".jpeg") || imgUrl.endsWith(".tga")
+		    || imgUrl.endsWith("png") || imgUrl.endsWith(".gif")) {
+		validImgUrl = true;
+	    } else {
+		validImgUrl = false;
+	    }
 
-		if (runOnce) {
-		    logger.debug("Task is finished.");
-		    running = false;
+	    if (validImgUrl) {
+		if (!lazyLoad) {
+		    download(id, imgInfo, timestamp, imgUrl);
 		} else {
-		    logger.debug("Task is delayed...");
-		    Thread.sleep(delay);
+		    imageList.addImage(new Image(id, imgInfo, timestamp, imgUrl, null, getTargetWidth(),
+			    getTargetHeight()));
 		}
-		logger.debug("Task is delayed...");
-		Thread.sleep(delay);
-	    } catch (InterruptedException | InstagramException e) {
-		logger.error("An error occured. The task will be stopped.", e);
-		running = false;
 	    }
-
 	}
-
-	logger.info("Task has stopped.");
     }
 
+    private void download(final String id, final String imgInfo, final long timestamp, final String imgUrl) {
+	submitDownload(id, imgUrl, new Runnable() {
+	    @Override
+	    public void run() {
+		PImage img = ImageDecoder.load(applet, DiskCache.resolve(imgUrl), getTargetWidth(), getTargetHeight());
+		imageList.addImage(new Image(id, imgInfo, timestamp, imgUrl, img, getTargetWidth(), getTargetHeight()));
+	    }
+	});
+    }
 }
@@ -0,0 +1,100 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.list;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps a running total of the decoded pixel footprint of a list, so the
+ * decoded size limit can be checked without walking all entries. Lazy
+ * entries grow once they get loaded and released entries shrink, so the
+ * recorded size of an entry has to be refreshed whenever it may have changed.
+ *
+ * @author Mathias Markl
+ */
+public class DecodedSizeCounter<T extends ListEntry> {
+
+    private Map<String, Long> sizes;
+    private long total;
+
+    /**
+     * Constructs a new DecodedSizeCounter.
+     */
+    public DecodedSizeCounter() {
+	sizes = new HashMap<String, Long>();
+	total = 0;
+    }
+
+    /**
+     * Records the current decoded size of an entry.
+     * 
+     * @param entry
+     *            The added entry.
+     */
+    public synchronized void add(T entry) {
+	long size = entry.getDecodedSize();
+	Long previous = sizes.put(entry.getId(), size);
+
+	total += size - (previous == null ? 0 : previous);
+    }
+
+    /**
+     * Refreshes the recorded size of an entry. Entries, which aren't recorded,
+     * are ignored.
+     * 
+     * @param entry
+     *            The entry.
+     */
+    public synchronized void update(T entry) {
+	if (sizes.containsKey(entry.getId())) {
+	    add(entry);
+	}
+    }
+
+    /**
+     * Removes the recorded size of an entry.
+     * 
+     * @param entry
+     *            The removed entry.
+     */
+    public synchronized void remove(T entry) {
+	Long size = sizes.remove(entry.getId());
+
+	if (size != null) {
+	    total -= size;
+	}
+    }
+
+    /**
+     * Removes all recorded sizes.
+     */
+    public synchronized void clear() {
+	sizes.clear();
+	total = 0;
+    }
+
+    /**
+     * Gets the sum of all recorded sizes.
+     * 
+     * @return The decoded size in bytes.
+     */
+    public synchronized long getSize() {
+	return total;
+    }
+}
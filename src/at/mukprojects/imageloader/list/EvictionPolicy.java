@@ -0,0 +1,75 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.list;
+
+/**
+ * An EvictionPolicy decides which entry of a bounded list gets removed once
+ * the list exceeds its limits. A policy keeps track of the entries of exactly
+ * one list, so every list needs its own instance. Implementations must be
+ * thread safe, because accesses are reported from any thread.
+ * 
+ * @author Mathias Markl
+ */
+public interface EvictionPolicy<T extends ListEntry> {
+
+    /**
+     * Gets called after an entry was added to the list.
+     * 
+     * @param entry
+     *            The added entry.
+     */
+    public void added(T entry);
+
+    /**
+     * Gets called after an entry was read from the list.
+     * 
+     * @param entry
+     *            The accessed entry.
+     */
+    public void accessed(T entry);
+
+    /**
+     * Gets called after an entry was removed from the list.
+     * 
+     * @param entry
+     *            The removed entry.
+     */
+    public void removed(T entry);
+
+    /**
+     * Gets called after the list was cleared.
+     */
+    public void cleared();
+
+    /**
+     * Selects the entry, which should be evicted next.
+     * 
+     * @return The entry or null if the policy has no entries.
+     */
+    public T selectVictim();
+
+    /**
+     * Selects the entry, which should be evicted next, among the entries
+     * which currently hold decoded pixels. Evicting an entry without pixels
+     * frees no memory, so this method is used to enforce the decoded size
+     * limit.
+     * 
+     * @return The entry or null if no entry holds decoded pixels.
+     */
+    public T selectDecodedVictim();
+}
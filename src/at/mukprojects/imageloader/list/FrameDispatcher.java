@@ -0,0 +1,135 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.list;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import processing.core.PApplet;
+
+/**
+ * The FrameDispatcher collects the events of a list and delivers them once
+ * per frame on the Processing animation thread, right before draw() gets
+ * called. Events, which happened during the same frame, are coalesced: An
+ * entry, which was added and evicted or removed in the same frame, isn't
+ * reported at all and a clear drops all events before it.
+ * 
+ * @author Mathias Markl
+ */
+public class FrameDispatcher<T extends ListEntry> {
+
+    private PApplet applet;
+    private ListListener<T> listener;
+
+    private boolean cleared;
+    private Map<String, T> added;
+    private Map<String, T> evicted;
+    private Map<String, T> removed;
+
+    FrameDispatcher(PApplet applet, ListListener<T> listener) {
+	this.applet = applet;
+	this.listener = listener;
+
+	cleared = false;
+	added = new LinkedHashMap<String, T>();
+	evicted = new LinkedHashMap<String, T>();
+	removed = new LinkedHashMap<String, T>();
+    }
+
+    /**
+     * Gets the listener, which receives the events.
+     * 
+     * @return The listener.
+     */
+    public ListListener<T> getListener() {
+	return listener;
+    }
+
+    /**
+     * Delivers the collected events. The method gets called by Processing
+     * before every frame and shouldn't be called directly.
+     */
+    public void pre() {
+	boolean currentCleared;
+	List<T> currentEvicted;
+	List<T> currentRemoved;
+	List<T> currentAdded;
+
+	synchronized (this) {
+	    if (!cleared && added.isEmpty() && evicted.isEmpty() && removed.isEmpty()) {
+		return;
+	    }
+
+	    currentCleared = cleared;
+	    currentEvicted = new ArrayList<T>(evicted.values());
+	    currentRemoved = new ArrayList<T>(removed.values());
+	    currentAdded = new ArrayList<T>(added.values());
+
+	    cleared = false;
+	    evicted.clear();
+	    removed.clear();
+	    added.clear();
+	}
+
+	if (currentCleared) {
+	    listener.listCleared();
+	}
+	for (T entry : currentEvicted) {
+	    listener.entryEvicted(entry);
+	}
+	for (T entry : currentRemoved) {
+	    listener.entryRemoved(entry);
+	}
+	for (T entry : currentAdded) {
+	    listener.entryAdded(entry);
+	}
+    }
+
+    void register() {
+	applet.registerMethod("pre", this);
+    }
+
+    void unregister() {
+	applet.unregisterMethod("pre", this);
+    }
+
+    synchronized void added(T entry) {
+	added.put(entry.getId(), entry);
+    }
+
+    synchronized void evicted(T entry) {
+	if (added.remove(entry.getId()) == null) {
+	    evicted.put(entry.getId(), entry);
+	}
+    }
+
+    synchronized void removed(T entry) {
+	if (added.remove(entry.getId()) == null) {
+	    removed.put(entry.getId(), entry);
+	}
+    }
+
+    synchronized void cleared() {
+	cleared = true;
+	added.clear();
+	evicted.clear();
+	removed.clear();
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.list;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * An array backed store which grants constant time positional access to its
+ * elements. Reads are lock free, while writes are serialized.
+ * 
+ * @author Mathias Markl
+ */
+public class IndexedStore<T> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private volatile Object[] elements;
+    private volatile int size;
+
+    private Map<T, Integer> positions;
+
+    /**
+     * Constructs a new IndexedStore.
+     */
+    public IndexedStore() {
+	elements = new Object[INITIAL_CAPACITY];
+	size = 0;
+	positions = new IdentityHashMap<T, Integer>();
+    }
+
+    /**
+     * Appends an element to the store.
+     * 
+     * @param element
+     *            The element, which should be added.
+     */
+    public synchronized void add(T element) {
+	Object[] current = elements;
+
+	if (size == current.length) {
+	    current = Arrays.copyOf(current, current.length * 2);
+	    elements = current;
+	}
+
+	current[size] = element;
+	positions.put(element, size);
+	size = size + 1;
+    }
+
+    /**
+     * Removes an element from the store. The last element takes over the
+     * position of the removed one, so the order of the store isn't preserved.
+     * 
+     * @param element
+     *            The element, which should be removed.
+     * @return True if the element was part of the store.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized boolean remove(T element) {
+	Integer position = positions.remove(element);
+
+	if (position == null) {
+	    return false;
+	}
+
+	Object[] current = elements;
+	int last = size - 1;
+	size = last;
+
+	if (position != last) {
+	    T moved = (T) current[last];
+	    current[position] = moved;
+	    positions.put(moved, position);
+	}
+	current[last] = null;
+
+	return true;
+    }
+
+    /**
+     * Removes all elements from the store.
+     */
+    public synchronized void clear() {
+	size = 0;
+	elements = new Object[INITIAL_CAPACITY];
+	positions.clear();
+    }
+
+    /**
+     * Returns the element of the given index or null if the index has no
+     * element.
+     * 
+     * @param index
+     *            The index.
+     * @return The element.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+	int currentSize = size;
+	Object[] current = elements;
+
+	if (index < 0 || index >= currentSize || index >= current.length) {
+	    return null;
+	}
+
+	return (T) current[index];
+    }
+
+    /**
+     * Returns a random element or null if the store is empty. The size and the
+     * element are read under the write lock, so a concurrent remove can't
+     * shrink the store in between.
+     * 
+     * @param random
+     *            The source of randomness.
+     * @return The element.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized T getRandom(Random random) {
+	if (size == 0) {
+	    return null;
+	}
+	return (T) elements[random.nextInt(size)];
+    }
+
+    /**
+     * Returns the number of elements in this store.
+     * 
+     * @return The size of the store.
+     */
+    public int size() {
+	return size;
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.list;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Evicts the entry with the largest decoded pixel footprint first. The
+ * entries are kept in a ranking, so a victim can be selected without
+ * comparing all entries. Lazy entries grow once they get loaded, so an entry
+ * gets ranked again whenever it is accessed, and the footprint of the
+ * selected entry is checked at the time of the eviction.
+ * 
+ * @author Mathias Markl
+ */
+public class LargestFirstEvictionPolicy<T extends ListEntry> implements EvictionPolicy<T> {
+
+    private Map<String, Rank<T>> ranks;
+    private TreeSet<Rank<T>> ranking;
+
+    /**
+     * Constructs a new LargestFirstEvictionPolicy.
+     */
+    public LargestFirstEvictionPolicy() {
+	ranks = new HashMap<String, Rank<T>>();
+	ranking = new TreeSet<Rank<T>>();
+    }
+
+    @Override
+    public synchronized void added(T entry) {
+	rank(entry);
+    }
+
+    @Override
+    public synchronized void accessed(T entry) {
+	if (ranks.containsKey(entry.getId())) {
+	    rank(entry);
+	}
+    }
+
+    @Override
+    public synchronized void removed(T entry) {
+	Rank<T> rank = ranks.remove(entry.getId());
+
+	if (rank != null) {
+	    ranking.remove(rank);
+	}
+    }
+
+    @Override
+    public synchronized void cleared() {
+	ranks.clear();
+	ranking.clear();
+    }
+
+    @Override
+    public synchronized T selectVictim() {
+	while (!ranking.isEmpty()) {
+	    Rank<T> first = ranking.first();
+
+	    if (first.entry.getDecodedSize() == first.size) {
+		return first.entry;
+	    }
+	    rank(first.entry);
+	}
+
+	return null;
+    }
+
+    @Override
+    public synchronized T selectDecodedVictim() {
+	T victim = selectVictim();
+	return victim != null && victim.getDecodedSize() > 0 ? victim : null;
+    }
+
+    private void rank(T entry) {
+	Rank<T> previous = ranks.get(entry.getId());
+
+	if (previous != null) {
+	    ranking.remove(previous);
+	}
+
+	Rank<T> rank = new Rank<T>(entry, entry.getDecodedSize());
+	ranks.put(entry.getId(), rank);
+	ranking.add(rank);
+    }
+
+    /**
+     * Ranking key of an entry. Larger footprints come first, equal
+     * footprints are ordered by id.
+     */
+    private static final class Rank<T extends ListEntry> implements Comparable<Rank<T>> {
+
+	private final T entry;
+	private final long size;
+
+	private Rank(T entry, long size) {
+	    this.entry = entry;
+	    this.size = size;
+	}
+
+	@Override
+	public int compareTo(Rank<T> other) {
+	    if (size != other.size) {
+		return size > other.size ? -1 : 1;
+	    }
+	    return entry.getId().compareTo(other.entry.getId());
+	}
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.list;
+
+/**
+ * Common interface of all entries, which can be stored in an ImageList or a
+ * GifList.
+ * 
+ * @author Mathias Markl
+ */
+public interface ListEntry {
+
+    /**
+     * Gets the entry id. The id must be unique.
+     * 
+     * @return The entry id.
+     */
+    public String getId();
+
+    /**
+     * Gets the entry timestamp.
+     * 
+     * @return The entry timestamp.
+     */
+    public long getTimestamp();
+
+    /**
+     * Gets the number of bytes, which are currently occupied by the decoded
+     * pixels of the entry.
+     * 
+     * @return The size of the decoded pixels in bytes.
+     */
+    public long getDecodedSize();
+}
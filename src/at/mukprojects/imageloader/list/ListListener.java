@@ -0,0 +1,57 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.list;
+
+/**
+ * Listener, which gets notified whenever an entry is added to, evicted from or
+ * removed from a list or the list gets cleared.
+ * 
+ * @author Mathias Markl
+ */
+public interface ListListener<T extends ListEntry> {
+
+    /**
+     * Gets called after an entry was added to the list.
+     * 
+     * @param entry
+     *            The added entry.
+     */
+    public void entryAdded(T entry);
+
+    /**
+     * Gets called after an entry was evicted from the list.
+     * 
+     * @param entry
+     *            The evicted entry.
+     */
+    public void entryEvicted(T entry);
+
+    /**
+     * Gets called after an entry was removed from the list, for example
+     * because its file was deleted.
+     * 
+     * @param entry
+     *            The removed entry.
+     */
+    public void entryRemoved(T entry);
+
+    /**
+     * Gets called after the list was cleared.
+     */
+    public void listCleared();
+}
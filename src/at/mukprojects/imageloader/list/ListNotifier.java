@@ -0,0 +1,240 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.list;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import processing.core.PApplet;
+
+/**
+ * The ListNotifier holds the listeners of a list and notifies them about
+ * added, evicted and removed entries. Listeners are either notified
+ * immediately on a thread, which changed the list, or once per frame on the
+ * Processing animation thread.
+ * 
+ * The list queues its events while it holds its lock and dispatches them
+ * after the lock is released. Only one thread dispatches at a time, so the
+ * listeners see the events of a list in the order of the changes, even if
+ * the list is changed by several threads.
+ * 
+ * @author Mathias Markl
+ */
+public class ListNotifier<T extends ListEntry> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListNotifier.class);
+
+    private CopyOnWriteArrayList<ListListener<T>> listeners;
+    private CopyOnWriteArrayList<FrameDispatcher<T>> dispatchers;
+
+    private ArrayDeque<Event<T>> events;
+    private boolean dispatching;
+
+    /**
+     * Constructs a new ListNotifier.
+     */
+    public ListNotifier() {
+	listeners = new CopyOnWriteArrayList<ListListener<T>>();
+	dispatchers = new CopyOnWriteArrayList<FrameDispatcher<T>>();
+
+	events = new ArrayDeque<Event<T>>();
+	dispatching = false;
+    }
+
+    /**
+     * Adds a listener, which gets notified immediately on a thread, which
+     * changed the list. Usually this is a thread of a loader task.
+     * 
+     * @param listener
+     *            The listener.
+     */
+    public void addListener(ListListener<T> listener) {
+	listeners.add(listener);
+    }
+
+    /**
+     * Adds a listener, which gets notified once per frame on the animation
+     * thread of the given applet. The events of a frame are coalesced.
+     * 
+     * @param listener
+     *            The listener.
+     * @param applet
+     *            The Processing PApplet.
+     */
+    public void addListener(ListListener<T> listener, PApplet applet) {
+	FrameDispatcher<T> dispatcher = new FrameDispatcher<T>(applet, listener);
+	dispatchers.add(dispatcher);
+	dispatcher.register();
+    }
+
+    /**
+     * Removes a listener.
+     * 
+     * @param listener
+     *            The listener.
+     */
+    public void removeListener(ListListener<T> listener) {
+	listeners.remove(listener);
+
+	for (FrameDispatcher<T> dispatcher : dispatchers) {
+	    if (dispatcher.getListener() == listener) {
+		dispatchers.remove(dispatcher);
+		dispatcher.unregister();
+	    }
+	}
+    }
+
+    /**
+     * Queues the notification about an added entry.
+     * 
+     * @param entry
+     *            The added entry.
+     */
+    public void added(T entry) {
+	enqueue(new Event<T>(EventType.ADDED, entry));
+    }
+
+    /**
+     * Queues the notifications about evicted entries.
+     * 
+     * @param entries
+     *            The evicted entries.
+     */
+    public void evicted(List<T> entries) {
+	for (T entry : entries) {
+	    enqueue(new Event<T>(EventType.EVICTED, entry));
+	}
+    }
+
+    /**
+     * Queues the notification about a removed entry.
+     * 
+     * @param entry
+     *            The removed entry.
+     */
+    public void removed(T entry) {
+	enqueue(new Event<T>(EventType.REMOVED, entry));
+    }
+
+    /**
+     * Queues the notification, that the list was cleared.
+     */
+    public void cleared() {
+	enqueue(new Event<T>(EventType.CLEARED, null));
+    }
+
+    /**
+     * Notifies the listeners about all queued events. If another thread is
+     * already dispatching, the events are left to that thread.
+     */
+    public void dispatch() {
+	synchronized (events) {
+	    if (dispatching) {
+		return;
+	    }
+	    dispatching = true;
+	}
+
+	while (true) {
+	    Event<T> event;
+
+	    synchronized (events) {
+		event = events.poll();
+
+		if (event == null) {
+		    dispatching = false;
+		    return;
+		}
+	    }
+
+	    try {
+		deliver(event);
+	    } catch (RuntimeException e) {
+		logger.error("A list listener failed.", e);
+	    }
+	}
+    }
+
+    private void enqueue(Event<T> event) {
+	synchronized (events) {
+	    events.add(event);
+	}
+    }
+
+    private void deliver(Event<T> event) {
+	switch (event.type) {
+	case ADDED:
+	    for (ListListener<T> listener : listeners) {
+		listener.entryAdded(event.entry);
+	    }
+	    for (FrameDispatcher<T> dispatcher : dispatchers) {
+		dispatcher.added(event.entry);
+	    }
+	    break;
+	case EVICTED:
+	    for (ListListener<T> listener : listeners) {
+		listener.entryEvicted(event.entry);
+	    }
+	    for (FrameDispatcher<T> dispatcher : dispatchers) {
+		dispatcher.evicted(event.entry);
+	    }
+	    break;
+	case REMOVED:
+	    for (ListListener<T> listener : listeners) {
+		listener.entryRemoved(event.entry);
+	    }
+	    for (FrameDispatcher<T> dispatcher : dispatchers) {
+		dispatcher.removed(event.entry);
+	    }
+	    break;
+	case CLEARED:
+	    for (ListListener<T> listener : listeners) {
+		listener.listCleared();
+	    }
+	    for (FrameDispatcher<T> dispatcher : dispatchers) {
+		dispatcher.cleared();
+	    }
+	    break;
+	}
+    }
+
+    /**
+     * Types of the queued events.
+     */
+    private static enum EventType {
+	ADDED, EVICTED, REMOVED, CLEARED
+    }
+
+    /**
+     * A queued event.
+     */
+    private static final class Event<T> {
+
+	private final EventType type;
+	private final T entry;
+
+	private Event(EventType type, T entry) {
+	    this.type = type;
+	    this.entry = entry;
+	}
+    }
+}
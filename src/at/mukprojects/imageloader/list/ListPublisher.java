@@ -0,0 +1,239 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.list;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntSupplier;
+
+import at.mukprojects.imageloader.concurrent.FlowControl;
+import at.mukprojects.imageloader.concurrent.Publisher;
+import at.mukprojects.imageloader.concurrent.Subscriber;
+import at.mukprojects.imageloader.concurrent.Subscription;
+
+/**
+ * The ListPublisher publishes every entry, which gets added to a list, to its
+ * subscribers. Entries, which weren't requested yet, are buffered for every
+ * subscriber. The publisher never blocks the thread, which adds entries to
+ * the list. Instead it serves as the flow control of the loader task, which
+ * waits before fetching further entries, as long as the buffer of a
+ * subscriber is full. So a slow subscriber throttles the loader task instead
+ * of letting the buffer grow.
+ * 
+ * The stream never completes, since a loader can be restarted at any time.
+ * 
+ * @author Mathias Markl
+ */
+public class ListPublisher<T extends ListEntry> implements Publisher<T>, ListListener<T>, FlowControl {
+
+    /**
+     * The default number of entries, which are buffered per subscriber.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 16;
+
+    private int bufferSize;
+    private CopyOnWriteArrayList<ListSubscription> subscriptions;
+
+    /**
+     * Constructs a new ListPublisher with the default buffer size.
+     */
+    public ListPublisher() {
+	this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a new ListPublisher.
+     * 
+     * @param bufferSize
+     *            The number of entries, which are buffered per subscriber.
+     */
+    public ListPublisher(int bufferSize) {
+	if (bufferSize < 1) {
+	    throw new IllegalArgumentException("The buffer needs to hold at least one entry.");
+	}
+
+	this.bufferSize = bufferSize;
+	subscriptions = new CopyOnWriteArrayList<ListSubscription>();
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+	if (subscriber == null) {
+	    throw new NullPointerException("The subscriber must not be null.");
+	}
+
+	ListSubscription subscription = new ListSubscription(subscriber);
+	subscriptions.add(subscription);
+	subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * Gets the number of active subscriptions.
+     * 
+     * @return The number of subscribers.
+     */
+    public int getSubscriberCount() {
+	return subscriptions.size();
+    }
+
+    @Override
+    public void awaitDemand(IntSupplier pending) throws InterruptedException {
+	for (ListSubscription subscription : subscriptions) {
+	    subscription.awaitDemand(pending);
+	}
+    }
+
+    @Override
+    public void signal() {
+	for (ListSubscription subscription : subscriptions) {
+	    subscription.signal();
+	}
+    }
+
+    @Override
+    public void entryAdded(T entry) {
+	for (ListSubscription subscription : subscriptions) {
+	    subscription.offer(entry);
+	}
+    }
+
+    @Override
+    public void entryEvicted(T entry) {
+    }
+
+    @Override
+    public void entryRemoved(T entry) {
+    }
+
+    @Override
+    public void listCleared() {
+    }
+
+    /**
+     * The subscription of a single subscriber.
+     */
+    private class ListSubscription implements Subscription {
+
+	private Subscriber<? super T> subscriber;
+	private ArrayDeque<T> buffer;
+	private long demand;
+	private boolean cancelled;
+	private boolean draining;
+
+	private ListSubscription(Subscriber<? super T> subscriber) {
+	    this.subscriber = subscriber;
+
+	    buffer = new ArrayDeque<T>();
+	    demand = 0;
+	    cancelled = false;
+	    draining = false;
+	}
+
+	@Override
+	public void request(long n) {
+	    if (n <= 0) {
+		cancel();
+		subscriber.onError(new IllegalArgumentException("The number of requested entries must be positive."));
+		return;
+	    }
+
+	    synchronized (this) {
+		demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+	    }
+
+	    drain();
+	}
+
+	@Override
+	public void cancel() {
+	    synchronized (this) {
+		cancelled = true;
+		buffer.clear();
+		notifyAll();
+	    }
+
+	    subscriptions.remove(this);
+	}
+
+	/**
+	 * Buffers an entry. Entries, which are fetched after the buffer was
+	 * checked by the loader task, may exceed the size of the buffer.
+	 */
+	private void offer(T entry) {
+	    synchronized (this) {
+		if (cancelled) {
+		    return;
+		}
+		buffer.add(entry);
+	    }
+
+	    drain();
+	}
+
+	/**
+	 * Waits, while the buffered and the pending entries fill the buffer.
+	 */
+	private synchronized void awaitDemand(IntSupplier pending) throws InterruptedException {
+	    while (!cancelled && buffer.size() + pending.getAsInt() >= bufferSize) {
+		wait();
+	    }
+	}
+
+	private synchronized void signal() {
+	    notifyAll();
+	}
+
+	/**
+	 * Delivers the buffered entries as long as they are requested. Only one
+	 * thread delivers at a time, so a subscriber, which requests entries
+	 * from within onNext, doesn't recurse.
+	 */
+	private void drain() {
+	    synchronized (this) {
+		if (draining) {
+		    return;
+		}
+		draining = true;
+	    }
+
+	    while (true) {
+		T entry;
+
+		synchronized (this) {
+		    if (cancelled || demand == 0 || buffer.isEmpty()) {
+			draining = false;
+			return;
+		    }
+
+		    entry = buffer.poll();
+		    if (demand != Long.MAX_VALUE) {
+			demand--;
+		    }
+		    notifyAll();
+		}
+
+		try {
+		    subscriber.onNext(entry);
+		} catch (RuntimeException e) {
+		    cancel();
+		    subscriber.onError(e);
+		}
+	    }
+	}
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.list;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Evicts the least recently accessed entry first.
+ * 
+ * @author Mathias Markl
+ */
+public class LruEvictionPolicy<T extends ListEntry> implements EvictionPolicy<T> {
+
+    private LinkedHashMap<String, T> entries;
+
+    /**
+     * Constructs a new LruEvictionPolicy.
+     */
+    public LruEvictionPolicy() {
+	entries = new LinkedHashMap<String, T>(16, 0.75f, true);
+    }
+
+    @Override
+    public synchronized void added(T entry) {
+	entries.put(entry.getId(), entry);
+    }
+
+    @Override
+    public synchronized void accessed(T entry) {
+	entries.get(entry.getId());
+    }
+
+    @Override
+    public synchronized void removed(T entry) {
+	entries.remove(entry.getId());
+    }
+
+    @Override
+    public synchronized void cleared() {
+	entries.clear();
+    }
+
+    @Override
+    public synchronized T selectVictim() {
+	Iterator<T> iterator = entries.values().iterator();
+	return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    @Override
+    public synchronized T selectDecodedVictim() {
+	for (T entry : entries.values()) {
+	    if (entry.getDecodedSize() > 0) {
+		return entry;
+	    }
+	}
+	return null;
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.list;
+
+/**
+ * Evicts the entry with the oldest timestamp first.
+ * 
+ * @author Mathias Markl
+ */
+public class OldestFirstEvictionPolicy<T extends ListEntry> implements EvictionPolicy<T> {
+
+    private TimestampIndex<T> entries;
+
+    /**
+     * Constructs a new OldestFirstEvictionPolicy.
+     */
+    public OldestFirstEvictionPolicy() {
+	entries = new TimestampIndex<T>();
+    }
+
+    @Override
+    public void added(T entry) {
+	entries.add(entry);
+    }
+
+    @Override
+    public void accessed(T entry) {
+    }
+
+    @Override
+    public void removed(T entry) {
+	entries.remove(entry);
+    }
+
+    @Override
+    public void cleared() {
+	entries.clear();
+    }
+
+    @Override
+    public T selectVictim() {
+	return entries.getOldest();
+    }
+
+    @Override
+    public T selectDecodedVictim() {
+	return entries.getOldestDecoded();
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.list;
+
+/**
+ * The order, in which a Prefetcher picks the entries of a list.
+ * 
+ * @author Mathias Markl
+ */
+public enum PrefetchOrder {
+
+    /**
+     * The entries are picked by their index. After the last entry the
+     * prefetcher starts over with the first one.
+     */
+    SEQUENTIAL,
+
+    /**
+     * The entries are picked at random, like getRandom() of the lists does.
+     */
+    RANDOM
+}
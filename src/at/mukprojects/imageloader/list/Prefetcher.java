@@ -0,0 +1,310 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.list;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import at.mukprojects.imageloader.concurrent.DecodePriority;
+import at.mukprojects.imageloader.concurrent.DecodeRequest;
+
+/**
+ * The Prefetcher picks the next entries of a list in advance and loads them
+ * in the background, so the entry returned by next() is usually already
+ * decoded when it gets drawn. The first pick gets loaded with the priority
+ * NEXT, the following picks with the priority BACKGROUND.
+ * 
+ * The picks are only loaded as long as their decoded size stays within the
+ * memory budget of the prefetcher. Picks, which are still loading, are
+ * estimated with the size of the largest pick loaded so far or with the
+ * estimate of the entry, whichever is larger. As long as no size is known,
+ * only one pick gets loaded at a time. Picks, whose pixels were released in
+ * the meantime, are loaded again.
+ * 
+ * The prefetcher listens to its list, so evicted or removed entries are
+ * dropped from the picks.
+ * 
+ * @author Mathias Markl
+ */
+public abstract class Prefetcher<T extends ListEntry> implements ListListener<T> {
+
+    private int ahead;
+    private long maxDecodedSize;
+    private PrefetchOrder order;
+
+    private List<Pick> picks;
+    private int nextIndex;
+    private long estimatedSize;
+    private Random random;
+
+    /**
+     * Constructs a new Prefetcher.
+     * 
+     * @param ahead
+     *            The number of picks, which are selected in advance.
+     * @param maxDecodedSize
+     *            The maximum number of bytes, which may be occupied by
+     *            prefetched pixels. A value of zero or less disables the
+     *            limit.
+     * @param order
+     *            The order of the picks.
+     */
+    public Prefetcher(int ahead, long maxDecodedSize, PrefetchOrder order) {
+	if (ahead < 1) {
+	    throw new IllegalArgumentException("The prefetcher needs to pick at least one entry in advance.");
+	}
+
+	this.ahead = ahead;
+	this.maxDecodedSize = maxDecodedSize;
+	this.order = order;
+
+	picks = new ArrayList<Pick>();
+	nextIndex = 0;
+	estimatedSize = 0;
+	random = new Random();
+    }
+
+    /**
+     * Returns the next pick and starts to load the following ones.
+     * 
+     * @return The next entry or null if the list is empty.
+     */
+    public synchronized T next() {
+	fill();
+
+	if (picks.isEmpty()) {
+	    return null;
+	}
+
+	Pick pick = picks.remove(0);
+
+	if (pick.request != null) {
+	    pick.request.raisePriority(DecodePriority.VISIBLE);
+	}
+
+	prefetch();
+	return pick.entry;
+    }
+
+    /**
+     * Returns the pick, which will be returned by the next call of next().
+     * 
+     * @return The next entry or null if the list is empty.
+     */
+    public synchronized T peek() {
+	fill();
+	prefetch();
+	return picks.isEmpty() ? null : picks.get(0).entry;
+    }
+
+    /**
+     * Returns the picks, which are selected in advance, starting with the next
+     * one.
+     * 
+     * @return A list of the upcoming entries.
+     */
+    public synchronized List<T> getUpcoming() {
+	fill();
+	prefetch();
+
+	List<T> upcoming = new ArrayList<T>(picks.size());
+
+	for (Pick pick : picks) {
+	    upcoming.add(pick.entry);
+	}
+
+	return upcoming;
+    }
+
+    /**
+     * Drops all picks and cancels their loads, if they are still queued. The
+     * next call of next() selects new picks. The picks are reset
+     * automatically, when the list gets cleared.
+     */
+    public synchronized void reset() {
+	for (Pick pick : picks) {
+	    if (pick.request != null) {
+		pick.request.cancel();
+	    }
+	}
+
+	picks.clear();
+	nextIndex = 0;
+    }
+
+    @Override
+    public void entryAdded(T entry) {
+    }
+
+    @Override
+    public synchronized void entryEvicted(T entry) {
+	drop(entry);
+    }
+
+    @Override
+    public synchronized void entryRemoved(T entry) {
+	drop(entry);
+    }
+
+    @Override
+    public void listCleared() {
+	reset();
+    }
+
+    /**
+     * Gets the number of entries in the list.
+     * 
+     * @return The size of the list.
+     */
+    protected abstract int size();
+
+    /**
+     * Gets the entry of the given index or null if the index has no entry.
+     * 
+     * @param index
+     *            The index.
+     * @return The entry.
+     */
+    protected abstract T get(int index);
+
+    /**
+     * Starts to load the given entry in the background.
+     * 
+     * @param entry
+     *            The entry.
+     * @param priority
+     *            The priority of the load.
+     * @return The request of the load.
+     */
+    protected abstract DecodeRequest<?> load(T entry, DecodePriority priority);
+
+    /**
+     * Estimates the decoded size of an entry, before it is loaded. The
+     * estimate should rather be too large than too small.
+     * 
+     * @param entry
+     *            The entry.
+     * @return The estimated size in bytes or zero if the size is unknown.
+     */
+    protected long estimateSize(T entry) {
+	return 0;
+    }
+
+    private void fill() {
+	int size = size();
+
+	if (size == 0) {
+	    return;
+	}
+
+	int attempts = 0;
+
+	while (picks.size() < ahead && attempts < ahead * 2) {
+	    int index;
+
+	    if (order == PrefetchOrder.RANDOM) {
+		index = random.nextInt(size);
+	    } else {
+		index = nextIndex % size;
+		nextIndex = index + 1;
+	    }
+
+	    T entry = get(index);
+
+	    if (entry != null) {
+		picks.add(new Pick(entry));
+	    }
+	    attempts++;
+	}
+    }
+
+    private void prefetch() {
+	long decodedSize = 0;
+	boolean unknownPending = false;
+
+	for (int i = 0; i < picks.size(); i++) {
+	    Pick pick = picks.get(i);
+	    DecodePriority priority = i == 0 ? DecodePriority.NEXT : DecodePriority.BACKGROUND;
+
+	    if (pick.request != null && pick.request.isDone()) {
+		long size = pick.entry.getDecodedSize();
+
+		if (size > 0 || !isReleased(pick.request)) {
+		    estimatedSize = Math.max(estimatedSize, size);
+		    decodedSize += size;
+		    continue;
+		}
+		pick.request = null;
+	    }
+
+	    long size = Math.max(estimatedSize, estimateSize(pick.entry));
+
+	    if (pick.request == null) {
+		if (maxDecodedSize > 0 && (decodedSize + size > maxDecodedSize || (size == 0 && unknownPending))) {
+		    break;
+		}
+		pick.request = load(pick.entry, priority);
+	    } else {
+		pick.request.raisePriority(priority);
+	    }
+
+	    unknownPending |= size == 0;
+	    decodedSize += size;
+	}
+    }
+
+    /**
+     * Indicates if a completed load delivered pixels, which were released in
+     * the meantime. Failed loads are not repeated.
+     */
+    private static boolean isReleased(DecodeRequest<?> request) {
+	CompletableFuture<?> future = request.getFuture();
+	return !future.isCompletedExceptionally() && future.getNow(null) != null;
+    }
+
+    private void drop(T entry) {
+	Iterator<Pick> iterator = picks.iterator();
+
+	while (iterator.hasNext()) {
+	    Pick pick = iterator.next();
+
+	    if (pick.entry == entry) {
+		if (pick.request != null) {
+		    pick.request.cancel();
+		}
+		iterator.remove();
+	    }
+	}
+    }
+
+    /**
+     * An entry, which was picked in advance.
+     */
+    private class Pick {
+
+	private T entry;
+	private DecodeRequest<?> request;
+
+	private Pick(T entry) {
+	    this.entry = entry;
+	}
+    }
+}
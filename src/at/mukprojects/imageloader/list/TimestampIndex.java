@@ -0,0 +1,171 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.list;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A concurrent index, which keeps its entries ordered by timestamp and id.
+ * 
+ * @author Mathias Markl
+ */
+public class TimestampIndex<T extends ListEntry> {
+
+    private ConcurrentSkipListMap<Key, T> entries;
+
+    /**
+     * Constructs a new TimestampIndex.
+     */
+    public TimestampIndex() {
+	entries = new ConcurrentSkipListMap<Key, T>();
+    }
+
+    /**
+     * Adds an entry to the index.
+     * 
+     * @param entry
+     *            The entry, which should be added.
+     */
+    public void add(T entry) {
+	entries.put(new Key(entry.getTimestamp(), entry.getId()), entry);
+    }
+
+    /**
+     * Removes an entry from the index.
+     * 
+     * @param entry
+     *            The entry, which should be removed.
+     */
+    public void remove(T entry) {
+	entries.remove(new Key(entry.getTimestamp(), entry.getId()));
+    }
+
+    /**
+     * Removes all entries from the index.
+     */
+    public void clear() {
+	entries.clear();
+    }
+
+    /**
+     * Gets the oldest entry or null if the index is empty.
+     * 
+     * @return The oldest entry.
+     */
+    public T getOldest() {
+	Map.Entry<Key, T> first = entries.firstEntry();
+	return first == null ? null : first.getValue();
+    }
+
+    /**
+     * Gets the oldest entry, which currently holds decoded pixels, or null if
+     * the index has no such entry.
+     * 
+     * @return The oldest decoded entry.
+     */
+    public T getOldestDecoded() {
+	for (T entry : entries.values()) {
+	    if (entry.getDecodedSize() > 0) {
+		return entry;
+	    }
+	}
+	return null;
+    }
+
+    /**
+     * Gets the most recent entry or null if the index is empty.
+     * 
+     * @return The most recent entry.
+     */
+    public T getMostRecent() {
+	Map.Entry<Key, T> last = entries.lastEntry();
+	return last == null ? null : last.getValue();
+    }
+
+    /**
+     * Gets the n most recent entries, starting with the newest one.
+     * 
+     * @param n
+     *            The maximum number of entries.
+     * @return The most recent entries.
+     */
+    public List<T> getMostRecent(int n) {
+	List<T> result = new ArrayList<T>();
+
+	for (T entry : entries.descendingMap().values()) {
+	    if (result.size() >= n) {
+		break;
+	    }
+	    result.add(entry);
+	}
+
+	return result;
+    }
+
+    /**
+     * Gets all entries with a timestamp equal to or greater than the given
+     * one, starting with the oldest one.
+     * 
+     * @param timestamp
+     *            The timestamp.
+     * @return The entries since the given timestamp.
+     */
+    public List<T> getSince(long timestamp) {
+	return new ArrayList<T>(entries.tailMap(new Key(timestamp, ""), true).values());
+    }
+
+    /**
+     * Sort key of the index. Entries are ordered by their timestamp first and
+     * by their id second, so equal timestamps don't collide.
+     */
+    private static final class Key implements Comparable<Key> {
+
+	private final long timestamp;
+	private final String id;
+
+	private Key(long timestamp, String id) {
+	    this.timestamp = timestamp;
+	    this.id = id;
+	}
+
+	@Override
+	public int compareTo(Key other) {
+	    if (timestamp != other.timestamp) {
+		return timestamp < other.timestamp ? -1 : 1;
+	    }
+	    return id.compareTo(other.id);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+	    if (!(obj instanceof Key)) {
+		return false;
+	    }
+	    Key other = (Key) obj;
+	    return timestamp == other.timestamp && id.equals(other.id);
+	}
+
+	@Override
+	public int hashCode() {
+	    return 31 * Long.hashCode(timestamp) + id.hashCode();
+	}
+    }
+}
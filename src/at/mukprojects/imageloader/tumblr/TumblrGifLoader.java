@@ -24,6 +24,8 @@ import com.tumblr.jumblr.JumblrClient;
 
 import at.mukprojects.giphy4j.Giphy;
 import at.mukprojects.imageloader.GifLoader;
+import at.mukprojects.imageloader.concurrent.LoaderScheduler;
+import at.mukprojects.imageloader.concurrent.TaskHandle;
 import at.mukprojects.imageloader.gif.GifList;
 import processing.core.PApplet;
 
@@ -39,8 +41,7 @@ public class TumblrGifLoader extends GifLoader {
     private String apiKey;
     private String apiSecret;
 
-    private Thread thread = null;
-    private TumblrGifTask runnable = null;
+    private TaskHandle handle = null;
 
     private JumblrClient jumblr;
 
@@ -61,18 +62,21 @@ public class TumblrGifLoader extends GifLoader {
 
     @Override
     public GifList start(String searchParam, GifList gifList, boolean runOnce, long delay, boolean lazyLoad) {
-	if (thread != null) {
+	if (handle != null) {
 	    logger.info("Loader is already started.");
 	    logger.info("The restart method will be used instead.");
 
 	    return restart(searchParam, gifList, runOnce, delay, lazyLoad);
 	} else {
-	    runnable = new TumblrGifTask(applet, searchParam, gifList, apiKey, apiSecret, jumblr, runOnce, delay, lazyLoad);
-	    thread = new Thread(runnable, "GiphyTask");
+	    TumblrGifTask task = new TumblrGifTask(applet, searchParam, gifList, apiKey, apiSecret, jumblr, runOnce,
+		    delay, lazyLoad);
+	    task.setExecutionMode(executionMode);
+	    task.setTargetSize(targetWidth, targetHeight);
+	    publish(gifList, task);
 
-	    logger.info("Starting Thread: " + thread + "...");
-	    thread.start();
-	    logger.debug(thread + " successfully started.");
+	    logger.info("Starting Task: GiphyTask...");
+	    handle = LoaderScheduler.start(task, "GiphyTask");
+	    logger.debug(handle + " successfully started.");
 
 	    return gifList;
 	}
@@ -80,28 +84,34 @@ public class TumblrGifLoader extends GifLoader {
 
     @Override
     public GifList restart(String searchParam, GifList gifList, boolean runOnce, long delay, boolean lazyLoad) {
-	logger.info("Stopping the current thread: " + thread + "...");
-	runnable.stop();
-	logger.debug(thread + " successfully stopped.");
+	logger.info("Stopping the current task: " + handle + "...");
+	if (handle != null) {
+	    handle.stop();
+	}
+	logger.debug(handle + " successfully stopped.");
 
-	runnable = new TumblrGifTask(applet, searchParam, gifList, apiKey, apiSecret, jumblr, runOnce, delay, lazyLoad);
-	thread = new Thread(runnable, "GiphyTask");
+	TumblrGifTask task = new TumblrGifTask(applet, searchParam, gifList, apiKey, apiSecret, jumblr, runOnce, delay,
+		lazyLoad);
+	task.setExecutionMode(executionMode);
+	task.setTargetSize(targetWidth, targetHeight);
+	publish(gifList, task);
 
-	logger.info("Starting Thread: " + thread + "...");
-	thread.start();
-	logger.debug(thread + " successfully started.");
+	logger.info("Starting Task: GiphyTask...");
+	handle = LoaderScheduler.start(task, "GiphyTask");
+	logger.debug(handle + " successfully started.");
 
 	return gifList;
     }
 
     @Override
     public void stop() {
-	logger.info("Stopping the current thread: " + thread + "...");
+	logger.info("Stopping the current task: " + handle + "...");
 
-	runnable.stop();
-	thread = null;
-	runnable = null;
+	if (handle != null) {
+	    handle.stop();
+	}
 
-	logger.debug(thread + " successfully stopped.");
+	logger.debug(handle + " successfully stopped.");
+	handle = null;
     }
 }
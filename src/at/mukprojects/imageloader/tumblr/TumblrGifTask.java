@@ -29,6 +29,7 @@ import com.tumblr.jumblr.JumblrClient;
 import com.tumblr.jumblr.types.PhotoPost;
 import com.tumblr.jumblr.types.Post;
 
+import at.mukprojects.imageloader.concurrent.LoaderTask;
 import at.mukprojects.imageloader.gif.GifData;
 import at.mukprojects.imageloader.gif.GifList;
 import processing.core.PApplet;
@@ -38,7 +39,7 @@ import processing.core.PApplet;
  * 
  * @author Mathias Markl
  */
-public class TumblrGifTask implements Runnable {
+public class TumblrGifTask extends LoaderTask {
 
     private static final Logger logger = LoggerFactory.getLogger(TumblrGifTask.class);
 
@@ -51,10 +52,7 @@ public class TumblrGifTask implements Runnable {
     private boolean lazyLoad;
     private JumblrClient jumblr;
 
-    private boolean runOnce;
-    private long delay;
-
-    private volatile boolean running;
+    private int offset;
 
     /**
      * Constructs a new GoogleTask.
@@ -79,6 +77,8 @@ public class TumblrGifTask implements Runnable {
      */
     public TumblrGifTask(PApplet applet, String searchParam, GifList gifList, String apiKey, String apiSecret,
 	    JumblrClient jumblr, boolean runOnce, long delay, boolean lazyLoad) {
+	super(runOnce, delay);
+
 	this.applet = applet;
 	this.searchParam = searchParam;
 	this.gifList = gifList;
@@ -88,69 +88,54 @@ public class TumblrGifTask implements Runnable {
 	this.lazyLoad = lazyLoad;
 	this.jumblr = jumblr;
 
-	this.runOnce = runOnce;
-	this.delay = delay;
-
-	running = true;
-    }
-
-    /**
-     * Stops the task.
-     */
-    public void stop() {
-	running = false;
+	this.offset = 0;
     }
 
     @Override
-    public void run() {
-	logger.info("Task is running...");
-
-	for (int i = 0; running; i += 20) {
-	    try {
-		logger.debug("Task loads data.");
-
-		Map<String, Integer> options = new HashMap<String, Integer>();
-		options.put("limit", 20);
-		options.put("offset", i);
-
-		for (Post post : jumblr.tagged(searchParam, options)) {
-
-		    if (post.getType().equals("photo") && post instanceof PhotoPost) {
-			String id = "Tumblr#" + post.getId();
-
-			String imgInfo = "";
-			imgInfo += "Blog: " + post.getBlogName() + "\n";
-			imgInfo += "Tags: " + post.getTags();
-
-			long timestamp = new Date().getTime();
-			String imgUrl = ((PhotoPost) post).getPhotos().get(0).getOriginalSize().getUrl();
-
-			if (imgUrl.endsWith("gif")) {
-			    if (!lazyLoad) {
-				GifData gif = new GifData(id, imgInfo, timestamp, imgUrl, null);
-				gif.loadGif();
-				gifList.addImage(gif);
-			    } else {
-				gifList.addImage(new GifData(id, imgInfo, timestamp, imgUrl, null));
-			    }
-			}
-		    }
-		}
+    protected void load() {
+	Map<String, Integer> options = new HashMap<String, Integer>();
+	options.put("limit", 20);
+	options.put("offset", offset);
 
-		if (runOnce) {
-		    logger.debug("Task is finished.");
-		    running = false;
-		} else {
-		    logger.debug("Task is delayed...");
-		    Thread.sleep(delay);
+	for (Post post : jumblr.tagged(searchParam, options)) {
+
+	    if (post.getType().equals("photo") && post instanceof PhotoPost) {
+		String id = "Tumblr#" + post.getId();
+
+		String imgInfo = "";
+		imgInfo += "Blog: " + post.getBlogName() + "\n";
+		imgInfo += "Tags: " + post.getTags();
+
+		long timestamp = new Date().getTime();
+		String imgUrl = ((PhotoPost) post).getPhotos().get(0).getOriginalSize().getUrl();
+
+		if (imgUrl.endsWith("gif")) {
+		    GifData gif = new GifData(id, imgInfo, timestamp, imgUrl, null, getTargetWidth(),
+			    getTargetHeight());
+
+		    if (!lazyLoad) {
+			download(gif);
+		    } else {
+			gifList.addImage(gif);
+		    }
 		}
-	    } catch (InterruptedException | IOException e) {
-		logger.error("An error occured. The task will be stopped.", e);
-		running = false;
 	    }
 	}
 
-	logger.info("Task has stopped.");
+	offset += 20;
     }
 
+    private void download(final GifData gif) {
+	submitDownload(gif.getId(), gif.getGifUrl(), new Runnable() {
+	    @Override
+	    public void run() {
+		try {
+		    gif.loadGif();
+		    gifList.addImage(gif);
+		} catch (IOException e) {
+		    logger.error("The GIF couldn't be loaded: " + gif.getGifUrl(), e);
+		}
+	    }
+	});
+    }
 }
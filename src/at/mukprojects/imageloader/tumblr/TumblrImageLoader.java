@@ -23,6 +23,8 @@ import org.slf4j.LoggerFactory;
 import com.tumblr.jumblr.JumblrClient;
 
 import at.mukprojects.imageloader.ImageLoader;
+import at.mukprojects.imageloader.concurrent.LoaderScheduler;
+import at.mukprojects.imageloader.concurrent.TaskHandle;
 import at.mukprojects.imageloader.image.ImageList;
 import processing.core.PApplet;
 
@@ -40,8 +42,7 @@ public class TumblrImageLoader extends ImageLoader {
 
     private JumblrClient jumblr;
 
-    private Thread thread = null;
-    private TumblrImageTask runnable = null;
+    private TaskHandle handle = null;
 
     /**
      * Constructs a new ImageLoader.
@@ -64,18 +65,21 @@ public class TumblrImageLoader extends ImageLoader {
 
     @Override
     public ImageList start(String searchParam, ImageList imageList, boolean runOnce, long delay, boolean lazyLoad) {
-	if (thread != null) {
+	if (handle != null) {
 	    logger.info("Loader is already started.");
 	    logger.info("The restart method will be used instead.");
 
 	    return restart(searchParam, imageList, runOnce, delay, lazyLoad);
 	} else {
-	    runnable = new TumblrImageTask(applet, searchParam, imageList, jumblr, runOnce, delay, lazyLoad);
-	    thread = new Thread(runnable, "TumblrTask");
+	    TumblrImageTask task = new TumblrImageTask(applet, searchParam, imageList, jumblr, runOnce, delay,
+		    lazyLoad);
+	    task.setExecutionMode(executionMode);
+	    task.setTargetSize(targetWidth, targetHeight);
+	    publish(imageList, task);
 
-	    logger.info("Starting Thread: " + thread + "...");
-	    thread.start();
-	    logger.debug(thread + " successfully started.");
+	    logger.info("Starting Task: TumblrTask...");
+	    handle = LoaderScheduler.start(task, "TumblrTask");
+	    logger.debug(handle + " successfully started.");
 
 	    return imageList;
 	}
@@ -83,28 +87,33 @@ public class TumblrImageLoader extends ImageLoader {
 
     @Override
     public ImageList restart(String searchParam, ImageList imageList, boolean runOnce, long delay, boolean lazyLoad) {
-	logger.info("Stopping the current thread: " + thread + "...");
-	runnable.stop();
-	logger.debug(thread + " successfully stopped.");
+	logger.info("Stopping the current task: " + handle + "...");
+	if (handle != null) {
+	    handle.stop();
+	}
+	logger.debug(handle + " successfully stopped.");
 
-	runnable = new TumblrImageTask(applet, searchParam, imageList, jumblr, runOnce, delay, lazyLoad);
-	thread = new Thread(runnable, "TumblrTask");
+	TumblrImageTask task = new TumblrImageTask(applet, searchParam, imageList, jumblr, runOnce, delay, lazyLoad);
+	task.setExecutionMode(executionMode);
+	task.setTargetSize(targetWidth, targetHeight);
+	publish(imageList, task);
 
-	logger.info("Starting Thread: " + thread + "...");
-	thread.start();
-	logger.debug(thread + " successfully started.");
+	logger.info("Starting Task: TumblrTask...");
+	handle = LoaderScheduler.start(task, "TumblrTask");
+	logger.debug(handle + " successfully started.");
 
 	return imageList;
     }
 
     @Override
     public void stop() {
-	logger.info("Stopping the current thread: " + thread + "...");
+	logger.info("Stopping the current task: " + handle + "...");
 
-	runnable.stop();
-	thread = null;
-	runnable = null;
+	if (handle != null) {
+	    handle.stop();
+	}
 
-	logger.debug(thread + " successfully stopped.");
+	logger.debug(handle + " successfully stopped.");
+	handle = null;
     }
 }
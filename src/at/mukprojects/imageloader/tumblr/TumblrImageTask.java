@@ -28,7 +28,10 @@ import com.tumblr.jumblr.JumblrClient;
 import com.tumblr.jumblr.types.PhotoPost;
 import com.tumblr.jumblr.types.Post;
 
+import at.mukprojects.imageloader.cache.DiskCache;
+import at.mukprojects.imageloader.concurrent.LoaderTask;
 import at.mukprojects.imageloader.image.Image;
+import at.mukprojects.imageloader.image.ImageDecoder;
 import at.mukprojects.imageloader.image.ImageList;
 import processing.core.PApplet;
 import processing.core.PImage;
@@ -38,7 +41,7 @@ import processing.core.PImage;
  * 
  * @author Mathias Markl
  */
-public class TumblrImageTask implements Runnable {
+public class TumblrImageTask extends LoaderTask {
 
     private static final Logger logger = LoggerFactory.getLogger(TumblrImageTask.class);
 
@@ -48,11 +51,9 @@ public class TumblrImageTask implements Runnable {
 
     private JumblrClient client;
 
-    private boolean runOnce;
-    private long delay;
     private boolean lazyLoad;
 
-    private volatile boolean running;
+    private int offset;
 
     /**
      * Constructs a new GoogleTask.
@@ -70,73 +71,56 @@ public class TumblrImageTask implements Runnable {
      */
     public TumblrImageTask(PApplet applet, String searchParam, ImageList imageList, JumblrClient client,
 	    boolean runOnce, long delay, boolean lazyLoad) {
+	super(runOnce, delay);
+
 	this.applet = applet;
 	this.searchParam = searchParam;
 	this.imageList = imageList;
 
 	this.client = client;
 
-	this.runOnce = runOnce;
-	this.delay = delay;
 	this.lazyLoad = lazyLoad;
 
-	running = true;
-    }
-
-    /**
-     * Stops the task.
-     */
-    public void stop() {
-	running = false;
+	this.offset = 0;
     }
 
     @Override
-    public void run() {
-	logger.info("Task is running...");
-
-	for (int i = 0; running; i += 20) {
-	    try {
-		logger.debug("Task loads data.");
+    protected void load() {
+	Map<String, Integer> options = new HashMap<String, Integer>();
+	options.put("limit", 20);
+	options.put("offset", offset);
 
-		Map<String, Integer> options = new HashMap<String, Integer>();
-		options.put("limit", 20);
-		options.put("offset", i);
+	for (Post post : client.tagged(searchParam, options)) {
 
-		for (Post post : client.tagged(searchParam, options)) {
+	    if (post.getType().equals("photo") && post instanceof PhotoPost) {
+		String id = "Tumblr#" + post.getId();
 
-		    if (post.getType().equals("photo") && post instanceof PhotoPost) {
-			String id = "Tumblr#" + post.getId();
+		String imgInfo = "";
+		imgInfo += "Blog: " + post.getBlogName() + "\n";
+		imgInfo += "Tags: " + post.getTags();
 
-			String imgInfo = "";
-			imgInfo += "Blog: " + post.getBlogName() + "\n";
-			imgInfo += "Tags: " + post.getTags();
+		long timestamp = new Date().getTime();
+		String imgUrl = ((PhotoPost) post).getPhotos().get(0).getOriginalSize().getUrl();
 
-			long timestamp = new Date().getTime();
-			String imgUrl = ((PhotoPost) post).getPhotos().get(0).getOriginalSize().getUrl();
-
-			PImage img = null;
-			if (!lazyLoad) {
-			    img = applet.loadImage(imgUrl);
-			}
-
-			imageList.addImage(new Image(id, imgInfo, timestamp, imgUrl, img));
-		    }
-		}
-
-		if (runOnce) {
-		    logger.debug("Task is finished.");
-		    running = false;
+		if (!lazyLoad) {
+		    download(id, imgInfo, timestamp, imgUrl);
 		} else {
-		    logger.debug("Task is delayed...");
-		    Thread.sleep(delay);
+		    imageList.addImage(new Image(id, imgInfo, timestamp, imgUrl, null, getTargetWidth(),
+			    getTargetHeight()));
 		}
-	    } catch (InterruptedException e) {
-		logger.error("An error occured. The task will be stopped.", e);
-		running = false;
 	    }
 	}
 
-	logger.info("Task has stopped.");
+	offset += 20;
     }
 
+    private void download(final String id, final String imgInfo, final long timestamp, final String imgUrl) {
+	submitDownload(id, imgUrl, new Runnable() {
+	    @Override
+	    public void run() {
+		PImage img = ImageDecoder.load(applet, DiskCache.resolve(imgUrl), getTargetWidth(), getTargetHeight());
+		imageList.addImage(new Image(id, imgInfo, timestamp, imgUrl, img, getTargetWidth(), getTargetHeight()));
+	    }
+	});
+    }
 }
@@ -0,0 +1,164 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests the DiskCache against a local HTTP server.
+ * 
+ * @author Mathias Markl
+ */
+public class DiskCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private ConcurrentHashMap<String, AtomicInteger> requests;
+
+    @Before
+    public void setUp() throws IOException {
+	requests = new ConcurrentHashMap<String, AtomicInteger>();
+
+	server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+	server.createContext("/", new HttpHandler() {
+	    @Override
+	    public void handle(HttpExchange exchange) throws IOException {
+		String path = exchange.getRequestURI().getPath();
+		requests.putIfAbsent(path, new AtomicInteger());
+		requests.get(path).incrementAndGet();
+
+		int length = Integer.parseInt(path.replaceAll("\\D", ""));
+		exchange.sendResponseHeaders(200, length);
+
+		try (OutputStream out = exchange.getResponseBody()) {
+		    out.write(new byte[length]);
+		}
+	    }
+	});
+	server.start();
+    }
+
+    @After
+    public void tearDown() {
+	server.stop(0);
+    }
+
+    @Test
+    public void servesCachedFilesWithoutDownloadingThemAgain() throws IOException {
+	DiskCache cache = new DiskCache(folder.newFolder(), 1000, 0);
+
+	File first = cache.fetch(url("/a100.png"));
+	File second = cache.fetch(url("/a100.png"));
+
+	assertEquals(first, second);
+	assertTrue(first.isFile());
+	assertEquals(100, first.length());
+	assertEquals(1, requests.get("/a100.png").get());
+	assertEquals(100, cache.getSize());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedFilesAtTheSizeLimit() throws IOException {
+	DiskCache cache = new DiskCache(folder.newFolder(), 250, 0);
+
+	File a = cache.fetch(url("/a100.png"));
+	File b = cache.fetch(url("/b100.png"));
+	cache.fetch(url("/a100.png"));
+	File c = cache.fetch(url("/c100.png"));
+
+	assertTrue(a.isFile());
+	assertFalse(b.isFile());
+	assertTrue(c.isFile());
+	assertEquals(200, cache.getSize());
+    }
+
+    @Test
+    public void keepsTheFetchedFileWhenItFillsTheWholeCache() throws IOException {
+	DiskCache cache = new DiskCache(folder.newFolder(), 100, 0);
+
+	File a = cache.fetch(url("/a100.png"));
+	File b = cache.fetch(url("/b100.png"));
+
+	assertFalse(a.isFile());
+	assertTrue(b.isFile());
+	assertEquals(100, cache.getSize());
+    }
+
+    @Test
+    public void doesNotCacheFilesLargerThanTheLimit() throws IOException {
+	File directory = folder.newFolder();
+	DiskCache cache = new DiskCache(directory, 100, 0);
+	File a = cache.fetch(url("/a100.png"));
+
+	try {
+	    cache.fetch(url("/b200.png"));
+	    fail("The file exceeds the size limit.");
+	} catch (IOException e) {
+	}
+
+	assertTrue(a.isFile());
+	assertEquals(1, directory.listFiles().length);
+	assertEquals(100, cache.getSize());
+
+	DiskCache.setDefault(cache);
+
+	try {
+	    assertEquals(url("/b200.png"), DiskCache.resolve(url("/b200.png")));
+	} finally {
+	    DiskCache.setDefault(null);
+	}
+    }
+
+    @Test
+    public void protectsRecentlyHandedOutFiles() throws IOException {
+	DiskCache cache = new DiskCache(folder.newFolder(), 150, 60000);
+
+	File a = cache.fetch(url("/a100.png"));
+	File b = cache.fetch(url("/b100.png"));
+
+	assertTrue(a.isFile());
+	assertTrue(b.isFile());
+	assertEquals(200, cache.getSize());
+    }
+
+    private String url(String path) {
+	return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+}
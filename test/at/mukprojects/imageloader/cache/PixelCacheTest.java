@@ -0,0 +1,154 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the budget and the eviction of the PixelCache.
+ * 
+ * @author Mathias Markl
+ */
+public class PixelCacheTest {
+
+    @Before
+    public void setUp() {
+	PixelCache.setMaxSize(300);
+    }
+
+    @After
+    public void tearDown() {
+	PixelCache.setMaxSize(0);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedEntries() {
+	Entry a = new Entry(100);
+	Entry b = new Entry(100);
+	Entry c = new Entry(100);
+
+	PixelCache.put(a);
+	PixelCache.put(b);
+	PixelCache.put(c);
+	assertEquals(300, PixelCache.getSize());
+
+	PixelCache.touch(a);
+	PixelCache.put(new Entry(100));
+
+	assertFalse(a.released);
+	assertTrue(b.released);
+	assertFalse(c.released);
+	assertEquals(300, PixelCache.getSize());
+    }
+
+    @Test
+    public void keepsEntryLargerThanBudget() {
+	Entry a = new Entry(100);
+	Entry large = new Entry(500);
+
+	PixelCache.put(a);
+	PixelCache.put(large);
+
+	assertTrue(a.released);
+	assertFalse(large.released);
+	assertEquals(500, PixelCache.getSize());
+    }
+
+    @Test
+    public void updatesSizeOfKnownEntry() {
+	Entry a = new Entry(100);
+
+	PixelCache.put(a);
+	a.size = 250;
+	PixelCache.put(a);
+	assertEquals(250, PixelCache.getSize());
+
+	PixelCache.remove(a);
+	assertEquals(0, PixelCache.getSize());
+	assertFalse(a.released);
+    }
+
+    @Test
+    public void releasedPixelsAreNotCounted() {
+	Entry a = new Entry(200);
+	Entry b = new Entry(200);
+
+	PixelCache.put(a);
+	PixelCache.put(b);
+	assertTrue(a.released);
+
+	/*
+	 * A load of the evicted entry, which registers after the eviction,
+	 * only counts the pixels the entry still holds.
+	 */
+	PixelCache.put(a);
+	assertEquals(200, PixelCache.getSize());
+    }
+
+    @Test
+    public void smallerBudgetEvictsEntries() {
+	Entry a = new Entry(100);
+	Entry b = new Entry(100);
+
+	PixelCache.put(a);
+	PixelCache.put(b);
+	PixelCache.setMaxSize(150);
+
+	assertTrue(a.released);
+	assertFalse(b.released);
+	assertEquals(100, PixelCache.getSize());
+    }
+
+    @Test
+    public void disabledCacheIgnoresEntries() {
+	PixelCache.setMaxSize(0);
+	PixelCache.put(new Entry(100));
+
+	assertEquals(0, PixelCache.getSize());
+    }
+
+    /**
+     * An entry with a fixed size, which drops to zero once it is released.
+     */
+    private static class Entry implements PixelCacheEntry {
+
+	private long size;
+	private boolean released;
+
+	private Entry(long size) {
+	    this.size = size;
+	}
+
+	@Override
+	public void releasePixels() {
+	    size = 0;
+	    released = true;
+	}
+
+	@Override
+	public long getDecodedSize() {
+	    return size;
+	}
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package at.mukprojects.imageloader.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the priorities and the cancellation of queued loads of the
+ * DecodeScheduler.
+ * 
+ * @author Mathias Markl
+ */
+public class DecodeSchedulerTest {
+
+    private DecodeScheduler scheduler;
+    private CountDownLatch started;
+    private CountDownLatch gate;
+    private List<String> completed;
+
+    @Before
+    public void setUp() throws InterruptedException {
+	scheduler = new DecodeScheduler(1);
+	started = new CountDownLatch(1);
+	gate = new CountDownLatch(1);
+	completed = new CopyOnWriteArrayList<String>();
+
+	/*
+	 * Occupies the only thread, so the following loads stay queued.
+	 */
+	scheduler.submit(new Callable<String>() {
+	    @Override
+	    public String call() throws InterruptedException {
+		started.countDown();
+		gate.await();
+		return "gate";
+	    }
+	});
+	assertTrue(started.await(10, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() {
+	gate.countDown();
+	scheduler.shutdown();
+    }
+
+    @Test(timeout = 10000)
+    public void runsQueuedLoadsByPriority() throws Exception {
+	DecodeRequest<String> a = scheduler.submit(load("a"), DecodePriority.BACKGROUND);
+	DecodeRequest<String> b = scheduler.submit(load("b"), DecodePriority.NEXT);
+	DecodeRequest<String> c = scheduler.submit(load("c"), DecodePriority.BACKGROUND);
+	DecodeRequest<String> d = scheduler.submit(load("d"), DecodePriority.NEXT);
+
+	c.setPriority(DecodePriority.VISIBLE);
+	assertEquals(DecodePriority.VISIBLE, c.getPriority());
+
+	gate.countDown();
+	a.getFuture().get();
+	b.getFuture().get();
+	c.getFuture().get();
+	d.getFuture().get();
+
+	assertEquals(Arrays.asList("c", "b", "d", "a"), completed);
+    }
+
+    @Test
+    public void raisePriorityNeverLowersThePriority() {
+	DecodeRequest<String> a = scheduler.submit(load("a"), DecodePriority.VISIBLE);
+	DecodeRequest<String> b = scheduler.submit(load("b"), DecodePriority.BACKGROUND);
+
+	a.raisePriority(DecodePriority.BACKGROUND);
+	b.raisePriority(DecodePriority.NEXT);
+
+	assertEquals(DecodePriority.VISIBLE, a.getPriority());
+	assertEquals(DecodePriority.NEXT, b.getPriority());
+    }
+
+    @Test(timeout = 10000)
+    public void cancelRemovesQueuedLoad() throws Exception {
+	DecodeRequest<String> a = scheduler.submit(load("a"), DecodePriority.NEXT);
+	DecodeRequest<String> b = scheduler.submit(load("b"), DecodePriority.NEXT);
+
+	assertTrue(a.cancel());
+	assertTrue(a.isDone());
+	assertTrue(a.getFuture().isCancelled());
+	assertEquals(1, scheduler.getQueueSize());
+
+	gate.countDown();
+	b.getFuture().get();
+
+	assertFalse(a.cancel());
+	assertFalse(b.cancel());
+	assertEquals(Arrays.asList("b"), completed);
+    }
+
+    @Test(timeout = 10000)
+    public void derivedRequestSharesTheQueuedLoad() throws Exception {
+	DecodeRequest<String> a = scheduler.submit(load("a"), DecodePriority.BACKGROUND);
+	DecodeRequest<String> b = scheduler.submit(load("b"), DecodePriority.NEXT);
+	DecodeRequest<Integer> derived = a.thenApply(new Function<String, Integer>() {
+	    @Override
+	    public Integer apply(String value) {
+		return value.length();
+	    }
+	});
+
+	derived.setPriority(DecodePriority.VISIBLE);
+	assertEquals(DecodePriority.VISIBLE, a.getPriority());
+
+	gate.countDown();
+	assertEquals(Integer.valueOf(1), derived.getFuture().get());
+	b.getFuture().get();
+	assertEquals(Arrays.asList("a", "b"), completed);
+    }
+
+    @Test
+    public void cancelOfDerivedRequestCancelsTheLoad() {
+	DecodeRequest<String> a = scheduler.submit(load("a"), DecodePriority.NEXT);
+	DecodeRequest<Integer> derived = a.thenApply(new Function<String, Integer>() {
+	    @Override
+	    public Integer apply(String value) {
+		return value.length();
+	    }
+	});
+
+	assertTrue(derived.cancel());
+	assertTrue(a.getFuture().isCancelled());
+	assertTrue(derived.getFuture().isCompletedExceptionally());
+	assertEquals(0, scheduler.getQueueSize());
+    }
+
+    @Test
+    public void submitAfterShutdownFails() throws InterruptedException {
+	scheduler.shutdown();
+	DecodeRequest<String> a = scheduler.submit(load("a"), DecodePriority.VISIBLE);
+
+	try {
+	    a.getFuture().get();
+	    fail("The load wasn't rejected.");
+	} catch (ExecutionException e) {
+	    assertTrue(e.getCause() instanceof RejectedExecutionException);
+	}
+    }
+
+    private Callable<String> load(final String name) {
+	return new Callable<String>() {
+	    @Override
+	    public String call() {
+		completed.add(name);
+		return name;
+	    }
+	};
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the host limits and the shutdown of a DownloadPipeline.
+ * 
+ * @author Mathias Markl
+ */
+public class DownloadPipelineTest {
+
+    private ExecutorService executor;
+    private CountDownLatch gate;
+    private CountDownLatch done;
+    private List<String> completed;
+
+    @Before
+    public void setUp() {
+	executor = Executors.newSingleThreadExecutor();
+	gate = new CountDownLatch(1);
+	done = new CountDownLatch(3);
+	completed = new CopyOnWriteArrayList<String>();
+    }
+
+    @After
+    public void tearDown() {
+	gate.countDown();
+	executor.shutdownNow();
+    }
+
+    @Test
+    public void limitsDownloadsPerHost() throws InterruptedException {
+	DownloadPipeline pipeline = new DownloadPipeline(executor, 1);
+
+	pipeline.submit("http://a.example/1", gated("a1"));
+	pipeline.submit("http://a.example/2", download("a2"));
+	pipeline.submit("http://b.example/1", download("b1"));
+
+	gate.countDown();
+	assertTrue(done.await(10, TimeUnit.SECONDS));
+
+	/*
+	 * The second download of host a waits for the first one, while the
+	 * download of host b is handed to the executor at once.
+	 */
+	assertEquals(Arrays.asList("a1", "b1", "a2"), completed);
+    }
+
+    @Test
+    public void shutdownRunsPendingDownloadsOfHost() throws InterruptedException {
+	DownloadPipeline pipeline = new DownloadPipeline(executor, 1);
+
+	pipeline.submit("http://a.example/1", gated("a1"));
+	pipeline.submit("http://a.example/2", download("a2"));
+	pipeline.submit("http://a.example/3", download("a3"));
+
+	pipeline.shutdown();
+	gate.countDown();
+
+	assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+	assertEquals(Arrays.asList("a1", "a2", "a3"), completed);
+    }
+
+    @Test
+    public void submitAfterShutdownRunsOnCallingThread() {
+	DownloadPipeline pipeline = new DownloadPipeline(executor, 1);
+	pipeline.shutdown();
+
+	final Thread caller = Thread.currentThread();
+	pipeline.submit("http://a.example/1", new Runnable() {
+	    @Override
+	    public void run() {
+		assertEquals(caller, Thread.currentThread());
+		completed.add("a1");
+	    }
+	});
+
+	assertEquals(Arrays.asList("a1"), completed);
+    }
+
+    private Runnable download(final String name) {
+	return new Runnable() {
+	    @Override
+	    public void run() {
+		completed.add(name);
+		done.countDown();
+	    }
+	};
+    }
+
+    private Runnable gated(final String name) {
+	return new Runnable() {
+	    @Override
+	    public void run() {
+		try {
+		    gate.await();
+		} catch (InterruptedException e) {
+		    Thread.currentThread().interrupt();
+		}
+		completed.add(name);
+		done.countDown();
+	    }
+	};
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the eager downloads of a LoaderTask.
+ * 
+ * @author Mathias Markl
+ */
+public class LoaderTaskTest {
+
+    private ExecutorService executor;
+    private CountDownLatch gate;
+
+    @Before
+    public void setUp() {
+	executor = Executors.newSingleThreadExecutor();
+	gate = new CountDownLatch(1);
+
+	/*
+	 * The single download thread is blocked until the gate opens, so all
+	 * downloads stay queued until the test releases them.
+	 */
+	executor.execute(new Runnable() {
+	    @Override
+	    public void run() {
+		try {
+		    gate.await();
+		} catch (InterruptedException e) {
+		    Thread.currentThread().interrupt();
+		}
+	    }
+	});
+
+	DownloadPipeline.setDefault(new DownloadPipeline(executor, 16));
+    }
+
+    @After
+    public void tearDown() {
+	gate.countDown();
+	DownloadPipeline.setDefault(null);
+    }
+
+    @Test
+    public void runOnceCompletesQueuedDownloads() throws InterruptedException {
+	EagerTask task = new EagerTask(true, 5);
+
+	task.run();
+	assertFalse(task.isRunning());
+	assertFalse(task.isStopped());
+	assertEquals(1, task.releases);
+
+	release();
+	assertEquals(5, task.loaded.size());
+    }
+
+    @Test
+    public void failedPassCompletesQueuedDownloads() throws InterruptedException {
+	EagerTask task = new EagerTask(false, 5);
+	task.fail = true;
+
+	task.run();
+	assertFalse(task.isRunning());
+	assertEquals(1, task.releases);
+
+	release();
+	assertEquals(5, task.loaded.size());
+    }
+
+    @Test
+    public void stopDiscardsQueuedDownloads() throws InterruptedException {
+	EagerTask task = new EagerTask(true, 5);
+
+	task.run();
+	task.stop();
+	assertTrue(task.isStopped());
+	assertEquals(1, task.releases);
+
+	release();
+	assertTrue(task.loaded.isEmpty());
+    }
+
+    @Test
+    public void skipsDownloadsWhichArePending() throws InterruptedException {
+	EagerTask task = new EagerTask(false, 3);
+
+	assertTrue(task.runPass());
+	assertTrue(task.runPass());
+	assertTrue(task.isDownloadPending("0"));
+
+	release();
+	assertEquals(3, task.loaded.size());
+	assertFalse(task.isDownloadPending("0"));
+    }
+
+    @Test
+    public void stopReleasesTaskOnce() {
+	EagerTask task = new EagerTask(false, 0);
+
+	assertTrue(task.runPass());
+	assertEquals(0, task.releases);
+
+	task.stop();
+	task.stop();
+	assertFalse(task.runPass());
+	assertEquals(1, task.releases);
+    }
+
+    private void release() throws InterruptedException {
+	gate.countDown();
+	executor.shutdown();
+	assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Submits a download for every id in each pass.
+     */
+    private static class EagerTask extends LoaderTask {
+
+	private int count;
+	private boolean fail;
+	private int releases;
+	private List<String> loaded = new CopyOnWriteArrayList<String>();
+
+	private EagerTask(boolean runOnce, int count) {
+	    super(runOnce, 0);
+	    this.count = count;
+	}
+
+	@Override
+	protected void load() throws Exception {
+	    for (int i = 0; i < count; i++) {
+		final String id = String.valueOf(i);
+
+		submitDownload(id, "http://localhost/" + id, new Runnable() {
+		    @Override
+		    public void run() {
+			loaded.add(id);
+		    }
+		});
+	    }
+
+	    if (fail) {
+		throw new IllegalStateException("The pass failed.");
+	    }
+	}
+
+	@Override
+	protected void release() {
+	    releases++;
+	}
+    }
+}
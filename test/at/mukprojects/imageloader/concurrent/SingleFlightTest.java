@@ -0,0 +1,220 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package at.mukprojects.imageloader.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the deduplication of concurrent loads by the SingleFlight.
+ * 
+ * @author Mathias Markl
+ */
+public class SingleFlightTest {
+
+    private SingleFlight<String> flight;
+    private CountDownLatch gate;
+    private AtomicInteger loads;
+
+    @Before
+    public void setUp() throws InterruptedException {
+	DecodeScheduler.setDefault(new DecodeScheduler(1));
+	flight = new SingleFlight<String>();
+	gate = new CountDownLatch(1);
+	loads = new AtomicInteger();
+
+	/*
+	 * Occupies the only thread of the scheduler, so submitted loads stay
+	 * queued until the gate opens.
+	 */
+	final CountDownLatch started = new CountDownLatch(1);
+	DecodeScheduler.getDefault().submit(new Callable<String>() {
+	    @Override
+	    public String call() throws InterruptedException {
+		started.countDown();
+		gate.await();
+		return "gate";
+	    }
+	});
+	assertTrue(started.await(10, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() {
+	gate.countDown();
+	DecodeScheduler.setDefault(null);
+    }
+
+    @Test(timeout = 10000)
+    public void sharesQueuedLoadOfTheSameKey() throws Exception {
+	DecodeRequest<String> first = flight.submit("url", load("a"), DecodePriority.BACKGROUND);
+	DecodeRequest<String> second = flight.submit("url", load("b"), DecodePriority.NEXT);
+
+	assertSame(first, second);
+	assertEquals(DecodePriority.NEXT, first.getPriority());
+	assertTrue(flight.isRunning("url"));
+
+	gate.countDown();
+	assertEquals("a", first.getFuture().get());
+	assertEquals(1, loads.get());
+
+	/*
+	 * Finished loads aren't remembered.
+	 */
+	assertEquals("c", flight.execute("url", load("c")));
+	assertEquals(2, loads.get());
+	assertFalse(flight.isRunning("url"));
+    }
+
+    @Test(timeout = 10000)
+    public void executeWaitsForRunningLoad() throws Exception {
+	final CountDownLatch running = new CountDownLatch(1);
+	final CountDownLatch release = new CountDownLatch(1);
+	final AtomicReference<String> result = new AtomicReference<String>();
+
+	Thread first = new Thread(new Runnable() {
+	    @Override
+	    public void run() {
+		try {
+		    result.set(flight.execute("url", new Callable<String>() {
+			@Override
+			public String call() throws InterruptedException {
+			    loads.incrementAndGet();
+			    running.countDown();
+			    release.await();
+			    return "a";
+			}
+		    }));
+		} catch (Exception e) {
+		    result.set(e.toString());
+		}
+	    }
+	});
+	first.start();
+	assertTrue(running.await(10, TimeUnit.SECONDS));
+
+	final Thread caller = Thread.currentThread();
+	Thread releaser = new Thread(new Runnable() {
+	    @Override
+	    public void run() {
+		/*
+		 * The load finishes once the caller waits for it.
+		 */
+		while (caller.getState() != Thread.State.WAITING) {
+		    Thread.yield();
+		}
+		release.countDown();
+	    }
+	});
+	releaser.start();
+
+	assertEquals("a", flight.execute("url", load("b")));
+	first.join();
+	assertEquals("a", result.get());
+	assertEquals(1, loads.get());
+    }
+
+    @Test(timeout = 10000)
+    public void executeLoadsAgainIfSharedLoadGetsCancelled() throws Exception {
+	final DecodeRequest<String> queued = flight.submit("url", load("a"), DecodePriority.BACKGROUND);
+
+	Thread canceller = new Thread(new Runnable() {
+	    @Override
+	    public void run() {
+		/*
+		 * The waiting caller raises the priority of the shared load
+		 * before it waits for it.
+		 */
+		while (queued.getPriority() != DecodePriority.VISIBLE) {
+		    Thread.yield();
+		}
+		queued.cancel();
+	    }
+	});
+	canceller.start();
+
+	assertEquals("b", flight.execute("url", load("b")));
+	canceller.join();
+
+	assertTrue(queued.getFuture().isCancelled());
+	assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void executeThrowsTheErrorOfTheLoad() {
+	final IOException error = new IOException("failed");
+
+	try {
+	    flight.execute("url", new Callable<String>() {
+		@Override
+		public String call() throws IOException {
+		    throw error;
+		}
+	    });
+	    fail("The error wasn't thrown.");
+	} catch (Exception e) {
+	    assertSame(error, e);
+	}
+
+	assertFalse(flight.isRunning("url"));
+    }
+
+    @Test(timeout = 10000)
+    public void submittedLoadFailsWithTheErrorOfTheLoad() throws InterruptedException {
+	final IOException error = new IOException("failed");
+	DecodeRequest<String> request = flight.submit("url", new Callable<String>() {
+	    @Override
+	    public String call() throws IOException {
+		throw error;
+	    }
+	}, DecodePriority.NEXT);
+
+	gate.countDown();
+
+	try {
+	    request.getFuture().get();
+	    fail("The error wasn't thrown.");
+	} catch (ExecutionException e) {
+	    assertSame(error, e.getCause());
+	}
+    }
+
+    private Callable<String> load(final String value) {
+	return new Callable<String>() {
+	    @Override
+	    public String call() {
+		loads.incrementAndGet();
+		return value;
+	    }
+	};
+    }
+}
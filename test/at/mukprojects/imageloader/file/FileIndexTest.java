@@ -0,0 +1,136 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the loading and saving of a FileIndex.
+ * 
+ * @author Mathias Markl
+ */
+public class FileIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+    private File indexFile;
+    private File image;
+
+    @Before
+    public void setUp() throws IOException {
+	root = folder.newFolder("images");
+	indexFile = new File(folder.getRoot(), "index.bin");
+
+	image = new File(root, "a.png");
+	ImageIO.write(new BufferedImage(40, 30, BufferedImage.TYPE_INT_ARGB), "png", image);
+    }
+
+    @Test
+    public void savedIndexCanBeLoaded() throws IOException {
+	FileIndex index = new FileIndex(indexFile, root);
+	index.update(image);
+	index.save();
+
+	FileIndex loaded = new FileIndex(indexFile, root);
+	loaded.load();
+
+	assertEquals(1, loaded.size());
+	assertTrue(loaded.isCurrent(image));
+
+	FileIndex.Entry entry = loaded.get(image.getAbsolutePath());
+	assertNotNull(entry);
+	assertEquals(image.length(), entry.getSize());
+	assertEquals(40, entry.getWidth());
+	assertEquals(30, entry.getHeight());
+
+	assertEquals(2, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void truncatedIndexIsRebuilt() throws IOException {
+	FileIndex index = new FileIndex(indexFile, root);
+	index.update(image);
+	index.save();
+
+	RandomAccessFile file = new RandomAccessFile(indexFile, "rw");
+
+	try {
+	    file.setLength(file.length() - 10);
+	} finally {
+	    file.close();
+	}
+
+	FileIndex loaded = new FileIndex(indexFile, root);
+	loaded.load();
+	assertEquals(0, loaded.size());
+    }
+
+    @Test
+    public void indexOfAnotherRootIsIgnored() throws IOException {
+	FileIndex index = new FileIndex(indexFile, root);
+	index.update(image);
+	index.save();
+
+	FileIndex loaded = new FileIndex(indexFile, folder.getRoot());
+	loaded.load();
+	assertEquals(0, loaded.size());
+    }
+
+    @Test
+    public void failedSaveKeepsModifications() throws IOException {
+	assertTrue(indexFile.mkdir());
+	File blocker = new File(indexFile, "blocker");
+	assertTrue(blocker.createNewFile());
+
+	FileIndex index = new FileIndex(indexFile, root);
+	index.update(image);
+
+	try {
+	    index.save();
+	    fail("The index shouldn't replace a directory.");
+	} catch (IOException e) {
+	    // expected
+	}
+
+	assertTrue(blocker.delete());
+	assertTrue(indexFile.delete());
+	index.save();
+
+	FileIndex loaded = new FileIndex(indexFile, root);
+	loaded.load();
+	assertEquals(1, loaded.size());
+	assertEquals(2, folder.getRoot().list().length);
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the parallel walk of the FileScanner.
+ * 
+ * @author Mathias Markl
+ */
+public class FileScannerTest {
+
+    private static final FileFilter FILTER = new FileFilter() {
+	@Override
+	public boolean accept(File file) {
+	    return file.getName().endsWith(".png");
+	}
+    };
+
+    private static final BooleanSupplier NEVER = new BooleanSupplier() {
+	@Override
+	public boolean getAsBoolean() {
+	    return false;
+	}
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FileScanner scanner;
+
+    @Before
+    public void setUp() throws IOException {
+	scanner = new FileScanner(4);
+
+	for (int i = 0; i < 5; i++) {
+	    File directory = folder.newFolder("dir" + i);
+
+	    for (int j = 0; j < 4; j++) {
+		assertTrue(new File(directory, j + ".png").createNewFile());
+	    }
+	    assertTrue(new File(directory, "notes.txt").createNewFile());
+	}
+    }
+
+    @After
+    public void tearDown() {
+	scanner.shutdown();
+    }
+
+    @Test
+    public void reportsFilesOnCallingThread() throws Exception {
+	final Thread caller = Thread.currentThread();
+	final List<String> files = new ArrayList<String>();
+	final List<String> directories = Collections.synchronizedList(new ArrayList<String>());
+
+	scanner.scan(folder.getRoot(), FILTER, new FileScanner.Listener() {
+	    @Override
+	    public void fileFound(File file) {
+		assertEquals(caller, Thread.currentThread());
+		files.add(file.getParentFile().getName() + "/" + file.getName());
+	    }
+
+	    @Override
+	    public void directoryFound(File directory) {
+		directories.add(directory.getName());
+	    }
+	}, NEVER);
+
+	assertEquals(20, files.size());
+	assertEquals(6, directories.size());
+    }
+
+    @Test
+    public void cancelledScanStopsReporting() throws Exception {
+	final AtomicBoolean cancelled = new AtomicBoolean();
+	final List<File> files = new ArrayList<File>();
+
+	scanner.scan(folder.getRoot(), FILTER, new FileScanner.Listener() {
+	    @Override
+	    public void fileFound(File file) {
+		files.add(file);
+		cancelled.set(true);
+	    }
+
+	    @Override
+	    public void directoryFound(File directory) {
+	    }
+	}, new BooleanSupplier() {
+	    @Override
+	    public boolean getAsBoolean() {
+		return cancelled.get();
+	    }
+	});
+
+	assertEquals(1, files.size());
+    }
+
+    @Test
+    public void interruptEndsScan() throws Exception {
+	Thread.currentThread().interrupt();
+
+	try {
+	    scanner.scan(folder.getRoot(), FILTER, new FileScanner.Listener() {
+		@Override
+		public void fileFound(File file) {
+		}
+
+		@Override
+		public void directoryFound(File directory) {
+		}
+	    }, NEVER);
+	    fail("The scan should have been interrupted.");
+	} catch (InterruptedException e) {
+	    // expected
+	}
+    }
+
+    @Test
+    public void listenerErrorsArePassedOn() throws Exception {
+	try {
+	    scanner.scan(folder.getRoot(), FILTER, new FileScanner.Listener() {
+		@Override
+		public void fileFound(File file) {
+		}
+
+		@Override
+		public void directoryFound(File directory) throws IOException {
+		    throw new IOException("The directory can't be handled.");
+		}
+	    }, NEVER);
+	    fail("The scan should have failed.");
+	} catch (IOException e) {
+	    assertEquals(Arrays.asList("The directory can't be handled."), Arrays.asList(e.getMessage()));
+	}
+    }
+}
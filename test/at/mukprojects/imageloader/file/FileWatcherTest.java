@@ -0,0 +1,193 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the changes reported by the FileWatcher.
+ * 
+ * @author Mathias Markl
+ */
+public class FileWatcherTest {
+
+    private static final long TIMEOUT = 10000;
+
+    private static final FileFilter FILTER = new FileFilter() {
+	@Override
+	public boolean accept(File file) {
+	    return file.getName().endsWith(".png");
+	}
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FileWatcher watcher;
+    private Recorder recorder;
+
+    @Before
+    public void setUp() throws Exception {
+	write(new File(folder.getRoot(), "a.png"), 1000000);
+	write(new File(folder.getRoot(), "b.png"), 1000000);
+	write(new File(folder.getRoot(), "c.txt"), 1000000);
+
+	watcher = new FileWatcher(folder.getRoot(), FILTER);
+	recorder = new Recorder();
+
+	watcher.scan(recorder);
+	assertEquals(2, watcher.size());
+	assertEquals(names("a.png", "b.png"), recorder.changed());
+
+	recorder.clear();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+	watcher.close();
+    }
+
+    @Test
+    public void reportsCreatedFiles() throws Exception {
+	write(new File(folder.getRoot(), "d.png"), 2000000);
+
+	pollUntil(1);
+	assertEquals(names("d.png"), recorder.changed());
+	assertTrue(recorder.deleted().isEmpty());
+    }
+
+    @Test
+    public void reportsOnlyModifiedFiles() throws Exception {
+	write(new File(folder.getRoot(), "a.png"), 2000000);
+
+	pollUntil(1);
+	assertEquals(names("a.png"), recorder.changed());
+	assertTrue(recorder.deleted().isEmpty());
+    }
+
+    @Test
+    public void reportsDeletedFiles() throws Exception {
+	assertTrue(new File(folder.getRoot(), "b.png").delete());
+
+	pollUntil(1);
+	assertTrue(recorder.changed().isEmpty());
+	assertEquals(names("b.png"), recorder.deleted());
+    }
+
+    @Test
+    public void reportsFilesOfCreatedDirectories() throws Exception {
+	File directory = new File(folder.getRoot(), "sub");
+	assertTrue(directory.mkdir());
+
+	pollUntil(0);
+	write(new File(directory, "e.png"), 2000000);
+
+	pollUntil(1);
+	assertEquals(names("e.png"), recorder.changed());
+	assertEquals(3, watcher.size());
+
+	assertTrue(new File(directory, "e.png").delete());
+	assertTrue(directory.delete());
+
+	pollUntil(2);
+	assertEquals(names("e.png"), recorder.deleted());
+	assertEquals(2, watcher.size());
+    }
+
+    /**
+     * Polls the watcher until the expected number of changes was reported and
+     * keeps polling a little longer, so duplicate reports would show up.
+     */
+    private void pollUntil(int count) throws Exception {
+	long end = System.currentTimeMillis() + TIMEOUT;
+
+	while (recorder.size() < count && System.currentTimeMillis() < end) {
+	    watcher.poll(recorder);
+	    Thread.sleep(20);
+	}
+
+	Thread.sleep(200);
+	watcher.poll(recorder);
+	assertEquals(count, recorder.size());
+    }
+
+    private static void write(File file, long lastModified) throws IOException {
+	Files.write(file.toPath(), new byte[] { 1, 2, 3 });
+	assertTrue(file.setLastModified(lastModified));
+    }
+
+    private static List<String> names(String... names) {
+	return Arrays.asList(names);
+    }
+
+    /**
+     * Records the names of the reported files.
+     */
+    private static class Recorder implements FileWatcher.Listener {
+
+	private List<String> changed = new CopyOnWriteArrayList<String>();
+	private List<String> deleted = new CopyOnWriteArrayList<String>();
+
+	@Override
+	public void fileChanged(File file) {
+	    changed.add(file.getName());
+	}
+
+	@Override
+	public void fileDeleted(File file) {
+	    deleted.add(file.getName());
+	}
+
+	private List<String> changed() {
+	    List<String> names = new CopyOnWriteArrayList<String>(changed);
+	    Collections.sort(names);
+	    return names;
+	}
+
+	private List<String> deleted() {
+	    List<String> names = new CopyOnWriteArrayList<String>(deleted);
+	    Collections.sort(names);
+	    return names;
+	}
+
+	private int size() {
+	    return changed.size() + deleted.size();
+	}
+
+	private void clear() {
+	    changed.clear();
+	    deleted.clear();
+	}
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package at.mukprojects.imageloader.gif;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+import org.junit.Test;
+
+import processing.core.PImage;
+
+/**
+ * Tests the conversion of decoded GIF frames into Processing images.
+ * 
+ * @author Mathias Markl
+ */
+public class FrameConverterTest {
+
+    @Test
+    public void usesTheDataArrayOfIntegerFrames() {
+	BufferedImage frame = newFrame(5, 4, BufferedImage.TYPE_INT_ARGB);
+	int[] data = ((DataBufferInt) frame.getRaster().getDataBuffer()).getData();
+
+	PImage image = FrameConverter.toPImage(frame, 1);
+	assertSame(data, image.pixels);
+	assertEquals(5, image.width);
+	assertEquals(4, image.height);
+	assertSame(data, FrameConverter.getPixels(frame, 1));
+    }
+
+    @Test
+    public void subsamplesEveryNthPixel() {
+	BufferedImage frame = newFrame(5, 4, BufferedImage.TYPE_INT_ARGB);
+
+	PImage image = FrameConverter.toPImage(frame, 2);
+	assertEquals(3, image.width);
+	assertEquals(2, image.height);
+	assertArrayEquals(new int[] { pixel(0, 0), pixel(2, 0), pixel(4, 0), pixel(0, 2), pixel(2, 2), pixel(4, 2) },
+		image.pixels);
+	assertArrayEquals(image.pixels, FrameConverter.getPixels(frame, 2));
+    }
+
+    @Test
+    public void copiesPixelsOfOtherFrames() {
+	BufferedImage frame = newFrame(6, 6, BufferedImage.TYPE_INT_ARGB).getSubimage(1, 2, 4, 3);
+	int[] expected = frame.getRGB(0, 0, 4, 3, null, 0, 4);
+
+	PImage image = FrameConverter.toPImage(frame, 1);
+	assertArrayEquals(expected, image.pixels);
+
+	frame = newFrame(4, 3, BufferedImage.TYPE_INT_RGB);
+	expected = frame.getRGB(0, 0, 4, 3, null, 0, 4);
+
+	int[] target = new int[12];
+	FrameConverter.copyPixels(frame, 1, target);
+	assertArrayEquals(expected, target);
+	assertArrayEquals(expected, FrameConverter.getPixels(frame, 1));
+    }
+
+    @Test
+    public void roundsSubsampledSizesUp() {
+	assertEquals(5, FrameConverter.getSubsampledSize(5, 1));
+	assertEquals(3, FrameConverter.getSubsampledSize(5, 2));
+	assertEquals(2, FrameConverter.getSubsampledSize(6, 3));
+	assertEquals(1, FrameConverter.getSubsampledSize(1, 4));
+    }
+
+    private static BufferedImage newFrame(int width, int height, int type) {
+	BufferedImage frame = new BufferedImage(width, height, type);
+
+	for (int y = 0; y < height; y++) {
+	    for (int x = 0; x < width; x++) {
+		frame.setRGB(x, y, pixel(x, y));
+	    }
+	}
+
+	return frame;
+    }
+
+    private static int pixel(int x, int y) {
+	return 0xFF000000 | (x * 40) << 16 | (y * 40) << 8;
+    }
+}
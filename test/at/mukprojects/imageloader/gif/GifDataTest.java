@@ -0,0 +1,249 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package at.mukprojects.imageloader.gif;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import processing.core.PImage;
+
+/**
+ * Tests the lazy loading of a GifData.
+ * 
+ * @author Mathias Markl
+ */
+public class GifDataTest {
+
+    private static final int FRAMES = 5;
+    private static final int WIDTH = 20;
+    private static final int HEIGHT = 10;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String url;
+    private AtomicInteger opened;
+
+    @Before
+    public void setUp() throws IOException {
+	File file = folder.newFile("anim.gif");
+	writeGif(file);
+	url = file.getPath();
+	opened = new AtomicInteger();
+    }
+
+    @Test(timeout = 10000)
+    public void concurrentLoadsOfTheSameUrlReadTheGifOnce() throws Exception {
+	final CountDownLatch reading = new CountDownLatch(1);
+	final CountDownLatch release = new CountDownLatch(1);
+
+	final GifData first = new CountingGif("1") {
+	    @Override
+	    BufferedInputStream openStream() throws IOException {
+		BufferedInputStream stream = super.openStream();
+		reading.countDown();
+
+		try {
+		    release.await();
+		} catch (InterruptedException e) {
+		    throw new IOException(e);
+		}
+		return stream;
+	    }
+	};
+	GifData second = new CountingGif("2");
+
+	final AtomicReference<PImage[]> firstFrames = new AtomicReference<PImage[]>();
+	Thread loader = new Thread(new Runnable() {
+	    @Override
+	    public void run() {
+		firstFrames.set(first.getGifFrames());
+	    }
+	});
+	loader.start();
+	assertTrue(reading.await(10, TimeUnit.SECONDS));
+
+	final Thread caller = Thread.currentThread();
+	Thread releaser = new Thread(new Runnable() {
+	    @Override
+	    public void run() {
+		/*
+		 * The GIF is read once the second GIF waits for the load.
+		 */
+		while (caller.getState() != Thread.State.WAITING) {
+		    Thread.yield();
+		}
+		release.countDown();
+	    }
+	});
+	releaser.start();
+
+	PImage[] secondFrames = second.getGifFrames();
+	loader.join();
+
+	assertEquals(1, opened.get());
+	assertNotNull(firstFrames.get());
+	assertEquals(FRAMES, secondFrames.length);
+	assertEquals(FRAMES, firstFrames.get().length);
+	assertArrayEquals(firstFrames.get()[FRAMES - 1].pixels, secondFrames[FRAMES - 1].pixels);
+    }
+
+    @Test
+    public void previewReadsOnlyTheFirstFrame() throws IOException {
+	final AtomicLong read = new AtomicLong();
+	GifData gif = new CountingGif("1") {
+	    @Override
+	    BufferedInputStream openStream() throws IOException {
+		return new BufferedInputStream(new FilterInputStream(super.openStream()) {
+		    @Override
+		    public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			read.addAndGet(Math.max(n, 0));
+			return n;
+		    }
+		}, 64);
+	    }
+	};
+
+	PImage preview = gif.getPreviewImage();
+	assertNotNull(preview);
+	assertTrue(read.get() < new File(url).length());
+	assertEquals(4L * WIDTH * HEIGHT, gif.getDecodedSize());
+
+	PImage[] frames = new CountingGif("2").getGifFrames();
+	assertArrayEquals(frames[0].pixels, preview.pixels);
+    }
+
+    @Test
+    public void loadedGifHoldsNoDecoder() throws IOException {
+	GifData gif = new CountingGif("1");
+
+	assertEquals(FRAMES, gif.getGifFrames().length);
+	assertEquals(Integer.valueOf(100), gif.getDelay());
+	assertFalse(gif.hasDecoder());
+	assertEquals(4L * FRAMES * WIDTH * HEIGHT, gif.getDecodedSize());
+
+	assertEquals(FRAMES, gif.getDecoder().getFrameCount());
+	assertTrue(gif.hasDecoder());
+	assertEquals(2, opened.get());
+
+	gif.releaseDecoder();
+	assertFalse(gif.hasDecoder());
+    }
+
+    @Test
+    public void heldDecoderIsUsedToLoadTheFrames() throws IOException {
+	GifData gif = new CountingGif("1");
+
+	gif.getDecoder();
+	assertEquals(FRAMES, gif.getGifFrames().length);
+	assertEquals(1, opened.get());
+
+	gif.clearMemSpace();
+	assertFalse(gif.hasDecoder());
+	assertEquals(0, gif.getDecodedSize());
+    }
+
+    /**
+     * Writes a GIF, whose frames cover the whole image.
+     */
+    private static void writeGif(File file) throws IOException {
+	ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+	ImageOutputStream out = ImageIO.createImageOutputStream(file);
+
+	try {
+	    writer.setOutput(out);
+	    writer.prepareWriteSequence(null);
+
+	    for (int i = 0; i < FRAMES; i++) {
+		BufferedImage image = newFrame(i);
+		IIOMetadata metadata = writer.getDefaultImageMetadata(
+			ImageTypeSpecifier.createFromRenderedImage(image), null);
+		String format = metadata.getNativeMetadataFormatName();
+		IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(format);
+
+		IIOMetadataNode control = (IIOMetadataNode) root.getElementsByTagName("GraphicControlExtension")
+			.item(0);
+		control.setAttribute("delayTime", "10");
+		control.setAttribute("disposalMethod", "none");
+
+		metadata.setFromTree(format, root);
+		writer.writeToSequence(new IIOImage(image, null, metadata), null);
+	    }
+
+	    writer.endWriteSequence();
+	} finally {
+	    out.close();
+	    writer.dispose();
+	}
+    }
+
+    private static BufferedImage newFrame(int index) {
+	BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+
+	for (int y = 0; y < HEIGHT; y++) {
+	    for (int x = 0; x < WIDTH; x++) {
+		image.setRGB(x, y, ((x * 12 + index * 50) & 0xff) << 16 | ((y * 25) & 0xff) << 8);
+	    }
+	}
+
+	return image;
+    }
+
+    /**
+     * A GIF of the written file, which counts how often the file is opened.
+     */
+    private class CountingGif extends GifData {
+
+	private CountingGif(String id) {
+	    super(id, "", 0, url);
+	}
+
+	@Override
+	BufferedInputStream openStream() throws IOException {
+	    opened.incrementAndGet();
+	    return super.openStream();
+	}
+    }
+}
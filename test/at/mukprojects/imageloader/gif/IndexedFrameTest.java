@@ -0,0 +1,100 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package at.mukprojects.imageloader.gif;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import processing.core.PImage;
+
+/**
+ * Tests the palette storage of the IndexedFrame and its fallback to ARGB
+ * pixels.
+ * 
+ * @author Mathias Markl
+ */
+public class IndexedFrameTest {
+
+    private static final int WIDTH = 32;
+    private static final int HEIGHT = 16;
+
+    @Test
+    public void storesFramesWithUpTo256ColorsIndexed() {
+	int[] argb = newPixels(256);
+	IndexedFrame frame = IndexedFrame.create(argb, WIDTH, HEIGHT);
+
+	assertTrue(frame.isIndexed());
+	assertEquals(WIDTH * HEIGHT + 4L * 256, frame.getSize());
+	assertArrayEquals(argb, frame.toPImage().pixels);
+    }
+
+    @Test
+    public void keepsArgbPixelsOfFramesWithMoreColors() {
+	int[] argb = newPixels(257);
+	IndexedFrame frame = IndexedFrame.create(argb, WIDTH, HEIGHT);
+
+	assertFalse(frame.isIndexed());
+	assertEquals(4L * WIDTH * HEIGHT, frame.getSize());
+	assertArrayEquals(argb, frame.toPImage().pixels);
+    }
+
+    @Test
+    public void copiesThePixelsOfTheFrame() {
+	int[] argb = newPixels(300);
+	int[] expected = argb.clone();
+	IndexedFrame frame = IndexedFrame.create(argb, WIDTH, HEIGHT);
+
+	argb[0] = 0x12345678;
+	assertArrayEquals(expected, frame.toPImage().pixels);
+    }
+
+    @Test
+    public void expandsIntoReusedImage() {
+	int[] transparent = new int[WIDTH * HEIGHT];
+	int[] colored = newPixels(3);
+	PImage image = new PImage(WIDTH, HEIGHT, PImage.ARGB);
+
+	IndexedFrame.create(colored, WIDTH, HEIGHT).expandInto(image);
+	assertArrayEquals(colored, image.pixels);
+
+	/*
+	 * Transparent black is a color of its own and not an empty slot.
+	 */
+	IndexedFrame frame = IndexedFrame.create(transparent, WIDTH, HEIGHT);
+	assertTrue(frame.isIndexed());
+	frame.expandInto(image);
+	assertArrayEquals(transparent, image.pixels);
+    }
+
+    /**
+     * Creates pixels, which cycle through the given number of distinct
+     * colors.
+     */
+    private static int[] newPixels(int colors) {
+	int[] argb = new int[WIDTH * HEIGHT];
+
+	for (int i = 0; i < argb.length; i++) {
+	    argb[i] = 0xFF000000 | ((i % colors) << 12) | 0x0AB;
+	}
+
+	return argb;
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package at.mukprojects.imageloader.gif;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import gifAnimation.GifDecoder;
+
+/**
+ * Tests that the StreamingGifDecoder disposes frames like the GifDecoder,
+ * although it only keeps the last frames.
+ * 
+ * @author Mathias Markl
+ */
+public class StreamingGifDecoderTest {
+
+    private static final int WIDTH = 40;
+    private static final int HEIGHT = 30;
+
+    /**
+     * The disposal method and the position of every frame after the first
+     * one, which covers the whole image.
+     */
+    private static final String[] DISPOSALS = { "restoreToPrevious", "restoreToBackgroundColor", "doNotDispose",
+	    "restoreToPrevious", "none", "restoreToPrevious", "restoreToBackgroundColor", "none" };
+    private static final int[][] POSITIONS = { { 5, 5 }, { 20, 10 }, { 10, 15 }, { 0, 0 }, { 25, 15 }, { 15, 5 },
+	    { 3, 3 }, { 28, 18 } };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File gif;
+    private StreamingGifDecoder decoder;
+
+    @Before
+    public void setUp() throws IOException {
+	gif = folder.newFile("anim.gif");
+	writeGif(gif);
+	decoder = new StreamingGifDecoder();
+    }
+
+    @After
+    public void tearDown() {
+	decoder.close();
+    }
+
+    @Test
+    public void decodesTheSameFramesAsTheGifDecoder() throws IOException {
+	GifDecoder full = new GifDecoder();
+	assertEquals(GifDecoder.STATUS_OK, full.read(open()));
+	assertEquals(DISPOSALS.length + 1, full.getFrameCount());
+
+	assertTrue(decoder.open(open()));
+
+	for (int i = 0; i < full.getFrameCount(); i++) {
+	    BufferedImage frame = decoder.nextFrame();
+	    assertNotNull(frame);
+	    assertArrayEquals("Frame " + i, pixels(full.getFrame(i)), pixels(frame));
+	    assertEquals(full.getDelay(i), decoder.getDelay(i));
+	}
+
+	assertNull(decoder.nextFrame());
+	assertTrue(decoder.isFinished());
+    }
+
+    @Test
+    public void keepsOnlyTheLastFrames() throws IOException {
+	assertTrue(decoder.open(open()));
+
+	for (int i = 0; i < 4; i++) {
+	    assertNotNull(decoder.nextFrame());
+	}
+
+	assertNull(decoder.getFrame(0));
+	assertNull(decoder.getFrame(1));
+	assertNotNull(decoder.getFrame(2));
+	assertNotNull(decoder.getFrame(3));
+	assertEquals(-1, decoder.getDelay(0));
+	assertFalse(decoder.isFinished());
+    }
+
+    @Test
+    public void readStopsAfterTheFirstImage() throws IOException {
+	assertEquals(GifDecoder.STATUS_OK, decoder.read(open()));
+	assertEquals(1, decoder.getFrameCount());
+	assertNotNull(decoder.getFrame(0));
+    }
+
+    private BufferedInputStream open() throws IOException {
+	return new BufferedInputStream(new FileInputStream(gif));
+    }
+
+    private static int[] pixels(BufferedImage image) {
+	return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    /**
+     * Writes a GIF, whose first frame covers the whole image, while the
+     * following frames only cover a part of it.
+     */
+    private static void writeGif(File file) throws IOException {
+	ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+	ImageOutputStream out = ImageIO.createImageOutputStream(file);
+
+	try {
+	    writer.setOutput(out);
+	    writer.prepareWriteSequence(null);
+
+	    writeFrame(writer, newFrame(WIDTH, HEIGHT, 0), "none", 0, 0);
+	    for (int i = 0; i < DISPOSALS.length; i++) {
+		writeFrame(writer, newFrame(12, 10, i + 1), DISPOSALS[i], POSITIONS[i][0], POSITIONS[i][1]);
+	    }
+
+	    writer.endWriteSequence();
+	} finally {
+	    out.close();
+	    writer.dispose();
+	}
+    }
+
+    private static void writeFrame(ImageWriter writer, BufferedImage image, String disposal, int left, int top)
+	    throws IOException {
+	IIOMetadata metadata = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(image),
+		null);
+	String format = metadata.getNativeMetadataFormatName();
+	IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(format);
+
+	IIOMetadataNode control = (IIOMetadataNode) root.getElementsByTagName("GraphicControlExtension").item(0);
+	control.setAttribute("delayTime", "10");
+	control.setAttribute("disposalMethod", disposal);
+
+	IIOMetadataNode descriptor = (IIOMetadataNode) root.getElementsByTagName("ImageDescriptor").item(0);
+	descriptor.setAttribute("imageLeftPosition", String.valueOf(left));
+	descriptor.setAttribute("imageTopPosition", String.valueOf(top));
+
+	metadata.setFromTree(format, root);
+	writer.writeToSequence(new IIOImage(image, null, metadata), null);
+    }
+
+    private static BufferedImage newFrame(int width, int height, int index) {
+	BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+	for (int y = 0; y < height; y++) {
+	    for (int x = 0; x < width; x++) {
+		image.setRGB(x, y, ((x * 6 + index * 40) & 0xff) << 16 | ((y * 8) & 0xff) << 8 | (index * 30 & 0xff));
+	    }
+	}
+
+	return image;
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package at.mukprojects.imageloader.image;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import processing.core.PImage;
+
+/**
+ * Tests the subsampling of the ImageDecoder.
+ * 
+ * @author Mathias Markl
+ */
+public class ImageDecoderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void subsamplingKeepsTheImageAtLeastAsLargeAsTheTarget() {
+	assertEquals(4, ImageDecoder.getSubsampling(400, 300, 100, 75));
+	assertEquals(3, ImageDecoder.getSubsampling(400, 300, 100, 80));
+	assertEquals(2, ImageDecoder.getSubsampling(400, 300, 150, 0));
+	assertEquals(5, ImageDecoder.getSubsampling(400, 300, 0, 60));
+    }
+
+    @Test
+    public void subsamplingNeverEnlargesTheImage() {
+	assertEquals(1, ImageDecoder.getSubsampling(400, 300, 0, 0));
+	assertEquals(1, ImageDecoder.getSubsampling(400, 300, -1, -1));
+	assertEquals(1, ImageDecoder.getSubsampling(400, 300, 800, 600));
+	assertEquals(1, ImageDecoder.getSubsampling(400, 300, 300, 0));
+    }
+
+    @Test
+    public void decodesSubsampledImage() throws IOException {
+	File file = folder.newFile("image.png");
+	ImageIO.write(new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB), "png", file);
+
+	assertEquals(new Dimension(400, 300), ImageDecoder.readSize(file.getPath()));
+
+	PImage image = ImageDecoder.decode(file.getPath(), 100, 0);
+	assertEquals(100, image.width);
+	assertEquals(75, image.height);
+    }
+
+    @Test
+    public void unsupportedFormatsAreNotDecoded() throws IOException {
+	File file = folder.newFile("image.txt");
+	FileWriter writer = new FileWriter(file);
+	writer.write("This isn't an image.");
+	writer.close();
+
+	assertNull(ImageDecoder.decode(file.getPath(), 100, 0));
+	assertNull(ImageDecoder.readSize(file.getPath()));
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package at.mukprojects.imageloader.image;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import at.mukprojects.imageloader.list.LruEvictionPolicy;
+import at.mukprojects.imageloader.list.OldestFirstEvictionPolicy;
+import processing.core.PImage;
+
+/**
+ * Tests the limits of a bounded ImageList.
+ * 
+ * @author Mathias Markl
+ */
+public class ImageListTest {
+
+    @Test
+    public void evictsEntriesAboveTheEntryLimit() {
+	ImageList list = new ImageList(2, 0, new OldestFirstEvictionPolicy<Image>());
+	list.addImage(newImage("a", 10, 1));
+	list.addImage(newImage("b", 20, 1));
+	list.addImage(newImage("c", 30, 1));
+
+	assertEquals(2, list.size());
+	assertFalse(list.containsImage("a"));
+	assertTrue(list.containsImage("b"));
+	assertTrue(list.containsImage("c"));
+    }
+
+    @Test
+    public void containsImageDoesNotCountAsAccess() {
+	ImageList list = new ImageList(2, 0, new LruEvictionPolicy<Image>());
+	list.addImage(newImage("a", 10, 1));
+	list.addImage(newImage("b", 20, 1));
+
+	assertTrue(list.containsImage("a"));
+	list.addImage(newImage("c", 30, 1));
+	assertFalse(list.containsImage("a"));
+
+	assertNotNull(list.getImage("b"));
+	list.addImage(newImage("d", 40, 1));
+	assertTrue(list.containsImage("b"));
+	assertFalse(list.containsImage("c"));
+    }
+
+    @Test
+    public void decodedSizeLimitOnlyEvictsEntriesWithPixels() {
+	ImageList list = new ImageList(0, 2 * 4 * 10 * 10, new OldestFirstEvictionPolicy<Image>());
+	list.addImage(new Image("lazy", "", 0, "url", null));
+	list.addImage(newImage("a", 10, 10));
+	list.addImage(newImage("b", 20, 10));
+
+	assertEquals(3, list.size());
+
+	list.addImage(newImage("c", 30, 10));
+	assertEquals(3, list.size());
+	assertTrue(list.containsImage("lazy"));
+	assertFalse(list.containsImage("a"));
+    }
+
+    @Test
+    public void getRandomReturnsNullOnlyIfEmpty() {
+	ImageList list = new ImageList();
+	assertNull(list.getRandom());
+
+	list.addImage(newImage("a", 10, 1));
+	assertEquals("a", list.getRandom().getId());
+    }
+
+    private static Image newImage(String id, long timestamp, int size) {
+	return new Image(id, "", timestamp, "url", new PImage(size, size, PImage.ARGB));
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package at.mukprojects.imageloader.image;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import processing.core.PImage;
+
+/**
+ * Tests the level selection and the filtering of the ImagePyramid.
+ * 
+ * @author Mathias Markl
+ */
+public class ImagePyramidTest {
+
+    @Test
+    public void selectsTheSmallestLevelWhichIsLargeEnough() {
+	PImage source = new PImage(64, 32, PImage.RGB);
+	ImagePyramid pyramid = new ImagePyramid(source);
+
+	assertSame(source, pyramid.get(0, 0));
+	assertSame(source, pyramid.get(64, 32));
+	assertSize(32, 16, pyramid.get(17, 8));
+	assertSize(16, 8, pyramid.get(16, 8));
+	assertSize(16, 8, pyramid.get(16, 0));
+	assertSize(2, 1, pyramid.get(1, 1));
+    }
+
+    @Test
+    public void keepsGeneratedLevels() {
+	PImage source = new PImage(64, 32, PImage.RGB);
+	ImagePyramid pyramid = new ImagePyramid(source);
+	assertEquals(0, pyramid.getSize());
+
+	PImage level = pyramid.get(16, 8);
+	assertSame(level, pyramid.get(16, 8));
+	assertEquals(4L * (32 * 16 + 16 * 8), pyramid.getSize());
+
+	pyramid.get(32, 16);
+	assertEquals(4L * (32 * 16 + 16 * 8), pyramid.getSize());
+    }
+
+    @Test
+    public void halvesAllFramesOfALevel() {
+	PImage first = new PImage(8, 8, PImage.ARGB);
+	PImage second = new PImage(8, 8, PImage.ARGB);
+	ImagePyramid pyramid = new ImagePyramid(first, second);
+
+	assertTrue(pyramid.isSource(first, second));
+	assertFalse(pyramid.isSource(second, first));
+	assertFalse(pyramid.isSource(first));
+
+	PImage[] frames = pyramid.getFrames(4, 4);
+	assertEquals(2, frames.length);
+	assertSize(4, 4, frames[0]);
+	assertSize(4, 4, frames[1]);
+    }
+
+    @Test
+    public void averagesBlocksOfOpaqueImages() {
+	PImage source = newImage(PImage.RGB, 0xFF000000, 0xFF020406, 0xFF020406, 0xFF0204FF);
+
+	assertEquals(0xFF020343, halve(source).pixels[0]);
+    }
+
+    @Test
+    public void weightsColorsOfTransparentImagesByAlpha() {
+	PImage source = newImage(PImage.ARGB, 0xFFFF0000, 0x00000000, 0x00000000, 0x00000000);
+	assertEquals(0x40FF0000, halve(source).pixels[0]);
+
+	source = newImage(PImage.ARGB, 0xFF0000FF, 0x80FF0000, 0x00000000, 0x00000000);
+	int pixel = halve(source).pixels[0];
+	assertEquals(0x60, pixel >>> 24);
+	assertEquals(0x55, (pixel >> 16) & 0xFF);
+	assertEquals(0xAA, pixel & 0xFF);
+
+	source = newImage(PImage.ARGB, 0x00FFFFFF, 0x00FFFFFF, 0x00FFFFFF, 0x00FFFFFF);
+	assertEquals(0, halve(source).pixels[0]);
+    }
+
+    private static PImage halve(PImage source) {
+	PImage level = new ImagePyramid(source).get(1, 1);
+	assertSize(1, 1, level);
+	return level;
+    }
+
+    /**
+     * Creates an image of two by two pixels.
+     */
+    private static PImage newImage(int format, int a, int b, int c, int d) {
+	PImage image = new PImage(2, 2, format);
+	image.pixels = new int[] { a, b, c, d };
+	return image;
+    }
+
+    private static void assertSize(int width, int height, PImage image) {
+	assertEquals(width, image.width);
+	assertEquals(height, image.height);
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package at.mukprojects.imageloader.list;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * Tests the victim selection of the eviction policies.
+ * 
+ * @author Mathias Markl
+ */
+public class EvictionPolicyTest {
+
+    @Test
+    public void lruEvictsTheLeastRecentlyAccessedEntry() {
+	EvictionPolicy<Entry> policy = new LruEvictionPolicy<Entry>();
+	Entry a = new Entry("a", 10, 100);
+	Entry b = new Entry("b", 20, 100);
+	Entry c = new Entry("c", 30, 100);
+	policy.added(a);
+	policy.added(b);
+	policy.added(c);
+
+	policy.accessed(a);
+	assertSame(b, policy.selectVictim());
+
+	policy.removed(b);
+	assertSame(c, policy.selectVictim());
+    }
+
+    @Test
+    public void oldestFirstIgnoresAccesses() {
+	EvictionPolicy<Entry> policy = new OldestFirstEvictionPolicy<Entry>();
+	Entry b = new Entry("b", 20, 100);
+	Entry a = new Entry("a", 10, 100);
+	policy.added(b);
+	policy.added(a);
+
+	policy.accessed(a);
+	assertSame(a, policy.selectVictim());
+
+	policy.removed(a);
+	assertSame(b, policy.selectVictim());
+    }
+
+    @Test
+    public void largestFirstRanksEntriesAgainWhenTheyGrow() {
+	EvictionPolicy<Entry> policy = new LargestFirstEvictionPolicy<Entry>();
+	Entry a = new Entry("a", 10, 100);
+	Entry b = new Entry("b", 20, 300);
+	Entry c = new Entry("c", 30, 200);
+	policy.added(a);
+	policy.added(b);
+	policy.added(c);
+
+	assertSame(b, policy.selectVictim());
+
+	a.decodedSize = 400;
+	policy.accessed(a);
+	assertSame(a, policy.selectVictim());
+
+	/*
+	 * A change, which wasn't reported, is noticed at the time of the
+	 * eviction.
+	 */
+	a.decodedSize = 0;
+	assertSame(b, policy.selectVictim());
+    }
+
+    @Test
+    public void selectDecodedVictimSkipsEntriesWithoutPixels() {
+	Entry a = new Entry("a", 10, 0);
+	Entry b = new Entry("b", 20, 100);
+
+	for (EvictionPolicy<Entry> policy : newPolicies()) {
+	    policy.added(a);
+	    policy.added(b);
+
+	    assertSame(b, policy.selectDecodedVictim());
+
+	    policy.removed(b);
+	    assertNull(policy.selectDecodedVictim());
+
+	    policy.cleared();
+	    assertNull(policy.selectVictim());
+	}
+    }
+
+    @SuppressWarnings("unchecked")
+    private static EvictionPolicy<Entry>[] newPolicies() {
+	return new EvictionPolicy[] { new LruEvictionPolicy<Entry>(), new OldestFirstEvictionPolicy<Entry>(),
+		new LargestFirstEvictionPolicy<Entry>() };
+    }
+
+    /**
+     * A list entry with a fixed timestamp and a changeable decoded size.
+     */
+    private static class Entry implements ListEntry {
+
+	private String id;
+	private long timestamp;
+	private long decodedSize;
+
+	private Entry(String id, long timestamp, long decodedSize) {
+	    this.id = id;
+	    this.timestamp = timestamp;
+	    this.decodedSize = decodedSize;
+	}
+
+	@Override
+	public String getId() {
+	    return id;
+	}
+
+	@Override
+	public long getTimestamp() {
+	    return timestamp;
+	}
+
+	@Override
+	public long getDecodedSize() {
+	    return decodedSize;
+	}
+    }
+}
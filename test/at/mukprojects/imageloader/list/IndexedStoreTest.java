@@ -0,0 +1,133 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package at.mukprojects.imageloader.list;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the positional access and the swap remove of the IndexedStore.
+ * 
+ * @author Mathias Markl
+ */
+public class IndexedStoreTest {
+
+    @Test
+    public void removeMovesTheLastElementIntoTheGap() {
+	IndexedStore<String> store = new IndexedStore<String>();
+	String a = "a";
+	String b = "b";
+	String c = "c";
+	store.add(a);
+	store.add(b);
+	store.add(c);
+
+	assertTrue(store.remove(a));
+	assertEquals(2, store.size());
+	assertSame(c, store.get(0));
+	assertSame(b, store.get(1));
+	assertNull(store.get(2));
+
+	assertTrue(store.remove(c));
+	assertSame(b, store.get(0));
+	assertFalse(store.remove(c));
+	assertEquals(1, store.size());
+    }
+
+    @Test
+    public void removeOfTheLastElementKeepsTheOthers() {
+	IndexedStore<String> store = new IndexedStore<String>();
+	String a = "a";
+	String b = "b";
+	store.add(a);
+	store.add(b);
+
+	assertTrue(store.remove(b));
+	assertEquals(1, store.size());
+	assertSame(a, store.get(0));
+	assertNull(store.get(1));
+    }
+
+    @Test
+    public void growsBeyondTheInitialCapacity() {
+	IndexedStore<Integer> store = new IndexedStore<Integer>();
+	Integer[] values = new Integer[40];
+	for (int i = 0; i < values.length; i++) {
+	    values[i] = Integer.valueOf(i);
+	    store.add(values[i]);
+	}
+
+	assertEquals(40, store.size());
+	for (int i = 0; i < values.length; i++) {
+	    assertSame(values[i], store.get(i));
+	}
+
+	assertTrue(store.remove(values[3]));
+	assertSame(values[39], store.get(3));
+
+	store.clear();
+	assertEquals(0, store.size());
+	assertNull(store.get(0));
+    }
+
+    @Test
+    public void getRandomReturnsNullOnlyIfEmpty() {
+	IndexedStore<String> store = new IndexedStore<String>();
+	Random random = new Random(1);
+	assertNull(store.getRandom(random));
+
+	store.add("a");
+	store.add("b");
+	for (int i = 0; i < 20; i++) {
+	    String element = store.getRandom(random);
+	    assertTrue("a".equals(element) || "b".equals(element));
+	}
+    }
+
+    @Test(timeout = 10000)
+    public void getRandomNeverMissesDuringConcurrentRemoves() throws InterruptedException {
+	final IndexedStore<Object> store = new IndexedStore<Object>();
+	final Object keep = new Object();
+	store.add(keep);
+
+	Thread writer = new Thread(new Runnable() {
+	    @Override
+	    public void run() {
+		for (int i = 0; i < 20000; i++) {
+		    Object element = new Object();
+		    store.add(element);
+		    store.remove(element);
+		}
+	    }
+	});
+	writer.start();
+
+	Random random = new Random(1);
+	while (writer.isAlive()) {
+	    assertNotNull(store.getRandom(random));
+	}
+	writer.join();
+    }
+}
@@ -0,0 +1,206 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package at.mukprojects.imageloader.list;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+
+import at.mukprojects.imageloader.image.Image;
+import at.mukprojects.imageloader.image.ImageList;
+
+/**
+ * Tests the order, in which the ListNotifier delivers the events of a list.
+ * 
+ * @author Mathias Markl
+ */
+public class ListNotifierTest {
+
+    @Test
+    public void deliversQueuedEventsInOrder() {
+	ListNotifier<Entry> notifier = new ListNotifier<Entry>();
+	RecordingListener<Entry> listener = new RecordingListener<Entry>();
+	notifier.addListener(listener);
+
+	notifier.added(new Entry("a"));
+	notifier.evicted(Arrays.asList(new Entry("b"), new Entry("c")));
+	notifier.removed(new Entry("d"));
+	notifier.cleared();
+	assertEquals(0, listener.events.size());
+
+	notifier.dispatch();
+	assertEquals(Arrays.asList("added a", "evicted b", "evicted c", "removed d", "cleared"), listener.events);
+    }
+
+    @Test
+    public void eventsQueuedByAListenerFollowTheQueuedEvents() {
+	final ListNotifier<Entry> notifier = new ListNotifier<Entry>();
+	RecordingListener<Entry> listener = new RecordingListener<Entry>() {
+	    @Override
+	    public void entryAdded(Entry entry) {
+		super.entryAdded(entry);
+
+		if (entry.getId().equals("a")) {
+		    notifier.removed(entry);
+		    notifier.dispatch();
+		}
+	    }
+	};
+	notifier.addListener(listener);
+
+	notifier.added(new Entry("a"));
+	notifier.added(new Entry("b"));
+	notifier.dispatch();
+
+	assertEquals(Arrays.asList("added a", "added b", "removed a"), listener.events);
+    }
+
+    @Test
+    public void failingListenerDoesNotStopTheDispatch() {
+	ListNotifier<Entry> notifier = new ListNotifier<Entry>();
+	RecordingListener<Entry> listener = new RecordingListener<Entry>();
+	notifier.addListener(new RecordingListener<Entry>() {
+	    @Override
+	    public void entryAdded(Entry entry) {
+		throw new IllegalStateException("Listener failed.");
+	    }
+	});
+	notifier.addListener(listener);
+
+	notifier.added(new Entry("a"));
+	notifier.removed(new Entry("a"));
+	notifier.dispatch();
+
+	assertEquals(Arrays.asList("removed a"), listener.events);
+
+	notifier.removeListener(listener);
+	notifier.cleared();
+	notifier.dispatch();
+	assertEquals(Arrays.asList("removed a"), listener.events);
+    }
+
+    @Test(timeout = 10000)
+    public void listenersSeeTheChangesOfSeveralThreadsInOrder() throws InterruptedException {
+	final ImageList list = new ImageList(1, 0, new OldestFirstEvictionPolicy<Image>());
+	RecordingListener<Image> listener = new RecordingListener<Image>();
+	list.addListener(listener);
+
+	Thread[] threads = new Thread[4];
+	for (int t = 0; t < threads.length; t++) {
+	    final int offset = t * 1000;
+
+	    threads[t] = new Thread(new Runnable() {
+		@Override
+		public void run() {
+		    for (int i = 0; i < 200; i++) {
+			String id = String.valueOf(offset + i);
+			list.addImage(new Image(id, "", offset + i, "url", null));
+		    }
+		}
+	    });
+	    threads[t].start();
+	}
+	for (Thread thread : threads) {
+	    thread.join();
+	}
+
+	/*
+	 * Every entry gets evicted after it was added, and the entries, which
+	 * remain according to the events, are the entries of the list.
+	 */
+	Set<String> live = new HashSet<String>();
+	for (String event : listener.events) {
+	    String id = event.substring(event.indexOf(' ') + 1);
+
+	    if (event.startsWith("added")) {
+		assertTrue(live.add(id));
+	    } else {
+		assertTrue(event, live.remove(id));
+	    }
+	}
+
+	List<String> ids = new ArrayList<String>();
+	for (Image image : list.getCopyList()) {
+	    ids.add(image.getId());
+	}
+	assertEquals(new HashSet<String>(ids), live);
+	assertEquals(1, live.size());
+    }
+
+    /**
+     * A list entry without timestamp and pixels.
+     */
+    private static class Entry implements ListEntry {
+
+	private String id;
+
+	private Entry(String id) {
+	    this.id = id;
+	}
+
+	@Override
+	public String getId() {
+	    return id;
+	}
+
+	@Override
+	public long getTimestamp() {
+	    return 0;
+	}
+
+	@Override
+	public long getDecodedSize() {
+	    return 0;
+	}
+    }
+
+    /**
+     * Records all received events.
+     */
+    private static class RecordingListener<T extends ListEntry> implements ListListener<T> {
+
+	private List<String> events = new CopyOnWriteArrayList<String>();
+
+	@Override
+	public void entryAdded(T entry) {
+	    events.add("added " + entry.getId());
+	}
+
+	@Override
+	public void entryEvicted(T entry) {
+	    events.add("evicted " + entry.getId());
+	}
+
+	@Override
+	public void entryRemoved(T entry) {
+	    events.add("removed " + entry.getId());
+	}
+
+	@Override
+	public void listCleared() {
+	    events.add("cleared");
+	}
+    }
+}
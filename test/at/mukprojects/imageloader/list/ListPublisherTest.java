@@ -0,0 +1,212 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package at.mukprojects.imageloader.list;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import org.junit.Test;
+
+import at.mukprojects.imageloader.concurrent.Subscriber;
+import at.mukprojects.imageloader.concurrent.Subscription;
+
+/**
+ * Tests the demand handling of the ListPublisher.
+ * 
+ * @author Mathias Markl
+ */
+public class ListPublisherTest {
+
+    @Test
+    public void deliversOnlyRequestedEntries() {
+	ListPublisher<Entry> publisher = new ListPublisher<Entry>(4);
+	RecordingSubscriber subscriber = new RecordingSubscriber();
+	publisher.subscribe(subscriber);
+
+	subscriber.subscription.request(2);
+	for (int i = 0; i < 3; i++) {
+	    publisher.entryAdded(new Entry(i));
+	}
+	assertEquals(2, subscriber.received.size());
+
+	subscriber.subscription.request(5);
+	assertEquals(3, subscriber.received.size());
+
+	publisher.entryAdded(new Entry(3));
+	assertEquals(4, subscriber.received.size());
+	assertEquals("3", subscriber.received.get(3).getId());
+    }
+
+    @Test(timeout = 10000)
+    public void neverBlocksTheThreadWhichAddsEntries() {
+	ListPublisher<Entry> publisher = new ListPublisher<Entry>(2);
+	RecordingSubscriber subscriber = new RecordingSubscriber();
+	publisher.subscribe(subscriber);
+
+	for (int i = 0; i < 10; i++) {
+	    publisher.entryAdded(new Entry(i));
+	}
+
+	subscriber.subscription.request(Long.MAX_VALUE);
+	assertEquals(10, subscriber.received.size());
+    }
+
+    @Test(timeout = 10000)
+    public void awaitsDemandWhileTheBufferIsFull() throws InterruptedException {
+	final ListPublisher<Entry> publisher = new ListPublisher<Entry>(2);
+	RecordingSubscriber subscriber = new RecordingSubscriber();
+	publisher.subscribe(subscriber);
+
+	publisher.entryAdded(new Entry(0));
+	publisher.entryAdded(new Entry(1));
+
+	Thread waiter = awaitDemand(publisher, new AtomicInteger());
+	waiter.join(200);
+	assertTrue(waiter.isAlive());
+
+	subscriber.subscription.request(1);
+	waiter.join();
+	assertEquals(1, subscriber.received.size());
+    }
+
+    @Test(timeout = 10000)
+    public void countsPendingEntriesAsTaken() throws InterruptedException {
+	ListPublisher<Entry> publisher = new ListPublisher<Entry>(2);
+	RecordingSubscriber subscriber = new RecordingSubscriber();
+	publisher.subscribe(subscriber);
+
+	AtomicInteger pending = new AtomicInteger(2);
+	Thread waiter = awaitDemand(publisher, pending);
+	waiter.join(200);
+	assertTrue(waiter.isAlive());
+
+	pending.decrementAndGet();
+	publisher.signal();
+	waiter.join();
+    }
+
+    @Test(timeout = 10000)
+    public void cancelReleasesTheWaitingTask() throws InterruptedException {
+	ListPublisher<Entry> publisher = new ListPublisher<Entry>(1);
+	RecordingSubscriber subscriber = new RecordingSubscriber();
+	publisher.subscribe(subscriber);
+
+	publisher.entryAdded(new Entry(0));
+
+	Thread waiter = awaitDemand(publisher, new AtomicInteger());
+	waiter.join(200);
+	assertTrue(waiter.isAlive());
+
+	subscriber.subscription.cancel();
+	waiter.join();
+	assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    @Test(timeout = 10000)
+    public void doesNotWaitWithoutSubscribers() throws InterruptedException {
+	ListPublisher<Entry> publisher = new ListPublisher<Entry>(1);
+
+	publisher.awaitDemand(new IntSupplier() {
+	    @Override
+	    public int getAsInt() {
+		return 5;
+	    }
+	});
+	assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    private static Thread awaitDemand(final ListPublisher<Entry> publisher, final AtomicInteger pending) {
+	Thread thread = new Thread(new Runnable() {
+	    @Override
+	    public void run() {
+		try {
+		    publisher.awaitDemand(new IntSupplier() {
+			@Override
+			public int getAsInt() {
+			    return pending.get();
+			}
+		    });
+		} catch (InterruptedException e) {
+		    Thread.currentThread().interrupt();
+		}
+	    }
+	});
+	thread.start();
+	return thread;
+    }
+
+    /**
+     * A list entry with a numeric id.
+     */
+    private static class Entry implements ListEntry {
+
+	private String id;
+
+	private Entry(int id) {
+	    this.id = String.valueOf(id);
+	}
+
+	@Override
+	public String getId() {
+	    return id;
+	}
+
+	@Override
+	public long getTimestamp() {
+	    return 0;
+	}
+
+	@Override
+	public long getDecodedSize() {
+	    return 0;
+	}
+    }
+
+    /**
+     * Records all received entries.
+     */
+    private static class RecordingSubscriber implements Subscriber<Entry> {
+
+	private Subscription subscription;
+	private List<Entry> received = new CopyOnWriteArrayList<Entry>();
+
+	@Override
+	public void onSubscribe(Subscription subscription) {
+	    this.subscription = subscription;
+	}
+
+	@Override
+	public void onNext(Entry item) {
+	    received.add(item);
+	}
+
+	@Override
+	public void onError(Throwable error) {
+	}
+
+	@Override
+	public void onComplete() {
+	}
+    }
+}
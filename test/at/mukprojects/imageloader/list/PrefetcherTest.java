@@ -0,0 +1,228 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package at.mukprojects.imageloader.list;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import at.mukprojects.imageloader.concurrent.DecodePriority;
+import at.mukprojects.imageloader.concurrent.DecodeRequest;
+import at.mukprojects.imageloader.concurrent.DecodeScheduler;
+
+/**
+ * Tests the picks and the memory budget of the Prefetcher.
+ * 
+ * @author Mathias Markl
+ */
+public class PrefetcherTest {
+
+    private DecodeScheduler scheduler;
+    private CountDownLatch gate;
+    private List<Entry> entries;
+
+    @Before
+    public void setUp() throws InterruptedException {
+	scheduler = new DecodeScheduler(1);
+	gate = new CountDownLatch(1);
+
+	/*
+	 * Occupies the only thread, so pending loads stay queued.
+	 */
+	final CountDownLatch started = new CountDownLatch(1);
+	scheduler.submit(new Callable<Object>() {
+	    @Override
+	    public Object call() throws InterruptedException {
+		started.countDown();
+		gate.await();
+		return null;
+	    }
+	});
+	assertTrue(started.await(10, TimeUnit.SECONDS));
+
+	entries = new ArrayList<Entry>();
+	for (String id : new String[] { "a", "b", "c", "d", "e" }) {
+	    entries.add(new Entry(id));
+	}
+    }
+
+    @After
+    public void tearDown() {
+	gate.countDown();
+	scheduler.shutdown();
+    }
+
+    @Test
+    public void loadsTheNextPicksInOrder() {
+	ListPrefetcher prefetcher = new ListPrefetcher(3, 0, false);
+
+	/*
+	 * The returned pick is loaded by the caller, the following picks are
+	 * loaded in advance.
+	 */
+	assertSame(entries.get(0), prefetcher.next());
+	assertEquals(Arrays.asList("b NEXT", "c BACKGROUND"), prefetcher.loads);
+
+	assertEquals(Arrays.asList(entries.get(1), entries.get(2), entries.get(3)), prefetcher.getUpcoming());
+	assertEquals(Arrays.asList("b NEXT", "c BACKGROUND", "d BACKGROUND"), prefetcher.loads);
+
+	assertSame(entries.get(1), prefetcher.next());
+	assertSame(entries.get(2), prefetcher.peek());
+	assertEquals("e BACKGROUND", prefetcher.loads.get(3));
+    }
+
+    @Test
+    public void keepsLoadedPicksWithinTheBudget() {
+	for (Entry entry : entries) {
+	    entry.estimate = 100;
+	}
+	ListPrefetcher prefetcher = new ListPrefetcher(4, 250, false);
+
+	assertSame(entries.get(0), prefetcher.peek());
+	assertEquals(Arrays.asList("a NEXT", "b BACKGROUND"), prefetcher.loads);
+    }
+
+    @Test
+    public void loadsOnlyOnePickOfUnknownSize() {
+	ListPrefetcher prefetcher = new ListPrefetcher(3, 1000, true);
+
+	prefetcher.peek();
+	assertEquals(Arrays.asList("a NEXT"), prefetcher.loads);
+    }
+
+    @Test
+    public void reloadsPicksWhosePixelsWereReleased() {
+	ListPrefetcher prefetcher = new ListPrefetcher(2, 0, false);
+
+	prefetcher.peek();
+	assertEquals(Arrays.asList("a NEXT", "b BACKGROUND"), prefetcher.loads);
+
+	entries.get(1).decodedSize = 0;
+	prefetcher.peek();
+	assertEquals(Arrays.asList("a NEXT", "b BACKGROUND", "b BACKGROUND"), prefetcher.loads);
+    }
+
+    @Test
+    public void dropsEvictedPicksAndCancelsTheirLoads() {
+	ListPrefetcher prefetcher = new ListPrefetcher(3, 0, true);
+
+	prefetcher.peek();
+	assertEquals(3, prefetcher.requests.size());
+
+	prefetcher.entryEvicted(entries.get(1));
+	assertTrue(prefetcher.requests.get(1).getFuture().isCancelled());
+	assertEquals(Arrays.asList(entries.get(0), entries.get(2), entries.get(3)), prefetcher.getUpcoming());
+
+	prefetcher.listCleared();
+	entries.clear();
+	assertNull(prefetcher.next());
+	assertTrue(prefetcher.requests.get(0).getFuture().isCancelled());
+    }
+
+    /**
+     * A list entry, whose pixels are set by the prefetcher.
+     */
+    private static class Entry implements ListEntry {
+
+	private String id;
+	private long estimate;
+	private long decodedSize;
+
+	private Entry(String id) {
+	    this.id = id;
+	}
+
+	@Override
+	public String getId() {
+	    return id;
+	}
+
+	@Override
+	public long getTimestamp() {
+	    return 0;
+	}
+
+	@Override
+	public long getDecodedSize() {
+	    return decodedSize;
+	}
+    }
+
+    /**
+     * Picks the entries of the test list and records its loads. Loads either
+     * complete at once with a size of 100 bytes or stay queued.
+     */
+    private class ListPrefetcher extends Prefetcher<Entry> {
+
+	private boolean pending;
+	private List<String> loads = new ArrayList<String>();
+	private List<DecodeRequest<?>> requests = new ArrayList<DecodeRequest<?>>();
+
+	private ListPrefetcher(int ahead, long maxDecodedSize, boolean pending) {
+	    super(ahead, maxDecodedSize, PrefetchOrder.SEQUENTIAL);
+	    this.pending = pending;
+	}
+
+	@Override
+	protected int size() {
+	    return entries.size();
+	}
+
+	@Override
+	protected Entry get(int index) {
+	    return index < entries.size() ? entries.get(index) : null;
+	}
+
+	@Override
+	protected DecodeRequest<?> load(final Entry entry, DecodePriority priority) {
+	    loads.add(entry.id + " " + priority);
+	    DecodeRequest<?> request;
+
+	    if (pending) {
+		request = scheduler.submit(new Callable<Entry>() {
+		    @Override
+		    public Entry call() {
+			return entry;
+		    }
+		}, priority);
+	    } else {
+		entry.decodedSize = 100;
+		request = DecodeRequest.completed(entry);
+	    }
+
+	    requests.add(request);
+	    return request;
+	}
+
+	@Override
+	protected long estimateSize(Entry entry) {
+	    return entry.estimate;
+	}
+    }
+}
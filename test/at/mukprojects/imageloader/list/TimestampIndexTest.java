@@ -0,0 +1,122 @@
+/**
+ * This code is copyright (c) Mathias Markl 2016
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package at.mukprojects.imageloader.list;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the ordering of the TimestampIndex.
+ * 
+ * @author Mathias Markl
+ */
+public class TimestampIndexTest {
+
+    @Test
+    public void ordersEntriesByTimestamp() {
+	TimestampIndex<Entry> index = new TimestampIndex<Entry>();
+	Entry b = new Entry("b", 20, 0);
+	Entry a = new Entry("a", 10, 0);
+	Entry c = new Entry("c", 30, 0);
+	index.add(b);
+	index.add(c);
+	index.add(a);
+
+	assertSame(a, index.getOldest());
+	assertSame(c, index.getMostRecent());
+
+	List<Entry> recent = index.getMostRecent(2);
+	assertEquals(2, recent.size());
+	assertSame(c, recent.get(0));
+	assertSame(b, recent.get(1));
+
+	List<Entry> since = index.getSince(20);
+	assertEquals(2, since.size());
+	assertSame(b, since.get(0));
+	assertSame(c, since.get(1));
+    }
+
+    @Test
+    public void keepsEntriesWithEqualTimestamps() {
+	TimestampIndex<Entry> index = new TimestampIndex<Entry>();
+	Entry b = new Entry("b", 10, 0);
+	Entry a = new Entry("a", 10, 0);
+	index.add(b);
+	index.add(a);
+
+	assertEquals(2, index.getSince(10).size());
+	assertSame(a, index.getOldest());
+	assertSame(b, index.getMostRecent());
+
+	index.remove(a);
+	assertSame(b, index.getOldest());
+	assertEquals(1, index.getSince(0).size());
+    }
+
+    @Test
+    public void getOldestDecodedSkipsEntriesWithoutPixels() {
+	TimestampIndex<Entry> index = new TimestampIndex<Entry>();
+	Entry a = new Entry("a", 10, 0);
+	Entry b = new Entry("b", 20, 100);
+	index.add(a);
+	index.add(b);
+
+	assertSame(b, index.getOldestDecoded());
+
+	index.clear();
+	assertNull(index.getOldest());
+	assertNull(index.getMostRecent());
+	assertNull(index.getOldestDecoded());
+	assertEquals(0, index.getMostRecent(5).size());
+    }
+
+    /**
+     * A list entry with a fixed timestamp and decoded size.
+     */
+    private static class Entry implements ListEntry {
+
+	private String id;
+	private long timestamp;
+	private long decodedSize;
+
+	private Entry(String id, long timestamp, long decodedSize) {
+	    this.id = id;
+	    this.timestamp = timestamp;
+	    this.decodedSize = decodedSize;
+	}
+
+	@Override
+	public String getId() {
+	    return id;
+	}
+
+	@Override
+	public long getTimestamp() {
+	    return timestamp;
+	}
+
+	@Override
+	public long getDecodedSize() {
+	    return decodedSize;
+	}
+    }
+}